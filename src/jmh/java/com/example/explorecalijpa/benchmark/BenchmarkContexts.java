@@ -0,0 +1,28 @@
+package com.example.explorecalijpa.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.explorecalijpa.ExplorecaliJpaApplication;
+
+/**
+ * Starts the application without a web server for benchmarks, against the
+ * embedded H2 database unless the properties point elsewhere.
+ */
+final class BenchmarkContexts {
+
+  private BenchmarkContexts() {
+  }
+
+  static ConfigurableApplicationContext start(String... properties) {
+    return new SpringApplicationBuilder(ExplorecaliJpaApplication.class)
+        .web(WebApplicationType.NONE)
+        .properties(
+            "spring.main.banner-mode=off",
+            "logging.level.root=WARN",
+            "logging.level.com.example.explorecalijpa=WARN")
+        .properties(properties)
+        .run();
+  }
+}
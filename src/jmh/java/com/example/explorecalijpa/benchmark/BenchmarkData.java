@@ -0,0 +1,54 @@
+package com.example.explorecalijpa.benchmark;
+
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.explorecalijpa.datagen.SyntheticData;
+
+import edu.ensign.cs460.recommendation.TourLeaderboard;
+
+/**
+ * Fills the database of a benchmark context with synthetic tours, or with
+ * synthetic ratings of the seeded tours, with the skew of the datagen
+ * profile, then rebuilds the leaderboard from them.
+ *
+ * A million ratings load into the embedded H2 database in seconds. Ten
+ * million need a larger heap, e.g. -jvmArgsAppend -Xmx8g.
+ */
+final class BenchmarkData {
+
+  /** Customer ids of the seeded ratings start here, clear of those the benchmarks make up. */
+  static final int FIRST_CUSTOMER = 100_000_000;
+
+  private BenchmarkData() {
+  }
+
+  /**
+   * Insert ratings.
+   *
+   * @param context the benchmark context
+   * @param ratings number of ratings
+   * @return what was inserted
+   */
+  static SyntheticData.Result seedRatings(ConfigurableApplicationContext context, int ratings) {
+    SyntheticData data = new SyntheticData(context.getBean(JdbcTemplate.class),
+        context.getBean(TransactionTemplate.class));
+    SyntheticData.Result result = data.load(
+        new SyntheticData.Settings(0, 0, ratings, Integer.MAX_VALUE, 1.0, 1.2, FIRST_CUSTOMER, 42));
+    context.getBean(TourLeaderboard.class).rebuild();
+    return result;
+  }
+
+  /**
+   * Insert tours, spread over the existing tour packages, without ratings.
+   *
+   * @param context the benchmark context
+   * @param tours   number of tours
+   */
+  static void seedTours(ConfigurableApplicationContext context, int tours) {
+    SyntheticData data = new SyntheticData(context.getBean(JdbcTemplate.class),
+        context.getBean(TransactionTemplate.class));
+    data.load(new SyntheticData.Settings(0, tours, 0, Integer.MAX_VALUE, 1.0, 1.2, FIRST_CUSTOMER, 42));
+  }
+}
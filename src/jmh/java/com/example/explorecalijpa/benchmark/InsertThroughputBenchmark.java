@@ -0,0 +1,90 @@
+package com.example.explorecalijpa.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.explorecalijpa.model.Difficulty;
+import com.example.explorecalijpa.model.Region;
+import com.example.explorecalijpa.model.Tour;
+import com.example.explorecalijpa.model.TourPackage;
+import com.example.explorecalijpa.model.TourRating;
+import com.example.explorecalijpa.repo.TourPackageRepository;
+import com.example.explorecalijpa.repo.TourRatingRepository;
+import com.example.explorecalijpa.repo.TourRepository;
+
+/**
+ * Rows per second inserted through JPA when a transaction saves many Tours or
+ * TourRatings, which is where the id generation strategy decides whether
+ * Hibernate can use JDBC batching.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class InsertThroughputBenchmark {
+
+  private static final int ROWS_PER_TRANSACTION = 1000;
+
+  private ConfigurableApplicationContext context;
+  private TransactionTemplate tx;
+  private TourRepository tourRepository;
+  private TourRatingRepository tourRatingRepository;
+  private TourPackage tourPackage;
+  private Tour tour;
+  private int nextCustomer = 1_000_000;
+
+  @Setup(Level.Trial)
+  public void start() {
+    context = BenchmarkContexts.start();
+    tx = context.getBean(TransactionTemplate.class);
+    tourRepository = context.getBean(TourRepository.class);
+    tourRatingRepository = context.getBean(TourRatingRepository.class);
+    tourPackage = context.getBean(TourPackageRepository.class).findById("BC").orElseThrow();
+    tour = tourRepository.findById(1).orElseThrow();
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS_PER_TRANSACTION)
+  public void insertTourRatings() {
+    List<TourRating> ratings = new ArrayList<>(ROWS_PER_TRANSACTION);
+    for (int i = 0; i < ROWS_PER_TRANSACTION; i++) {
+      ratings.add(new TourRating(tour, nextCustomer++, 4, "benchmark"));
+    }
+    tx.executeWithoutResult(status -> tourRatingRepository.saveAll(ratings));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS_PER_TRANSACTION)
+  public void insertTours() {
+    List<Tour> tours = new ArrayList<>(ROWS_PER_TRANSACTION);
+    for (int i = 0; i < ROWS_PER_TRANSACTION; i++) {
+      tours.add(new Tour("Benchmark Tour", "description", "blurb", 100, "1 day", "bullets",
+          "keywords", tourPackage, Difficulty.Easy, Region.Varies));
+    }
+    tx.executeWithoutResult(status -> tourRepository.saveAll(tours));
+  }
+}
@@ -0,0 +1,117 @@
+package com.example.explorecalijpa.benchmark;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.ensign.cs460.recommendation.ItemSimilarityModel;
+
+/**
+ * Build time of the item-item similarity model and the latency of scoring one
+ * customer against it, on synthetic ratings: customers rate a handful of
+ * tours picked with a skew towards popular ones, scoring them by tour quality
+ * plus a per-customer taste for the tour's category.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ItemSimilarityBenchmark {
+
+  private static final int TOURS = 1000;
+  private static final int CATEGORIES = 20;
+  private static final int RATINGS_PER_CUSTOMER = 10;
+
+  @Param({ "100000", "1000000" })
+  private int customers;
+
+  private int[] customerIds;
+  private int[] tourIds;
+  private int[] scores;
+  private ItemSimilarityModel model;
+  private int[][] profileTours;
+  private int[][] profileScores;
+  private int nextProfile;
+
+  @Setup(Level.Trial)
+  public void generate() {
+    SplittableRandom random = new SplittableRandom(42);
+    double[] quality = new double[TOURS];
+    for (int t = 0; t < TOURS; t++) {
+      quality[t] = random.nextDouble(1.5, 4.5);
+    }
+    int n = customers * RATINGS_PER_CUSTOMER;
+    customerIds = new int[n];
+    tourIds = new int[n];
+    scores = new int[n];
+    int at = 0;
+    for (int c = 1; c <= customers; c++) {
+      double[] taste = new double[CATEGORIES];
+      for (int g = 0; g < CATEGORIES; g++) {
+        taste[g] = random.nextDouble(-1.5, 1.5);
+      }
+      boolean[] seen = new boolean[TOURS + 1];
+      for (int r = 0; r < RATINGS_PER_CUSTOMER; r++) {
+        int tour;
+        do {
+          // squaring skews the picks towards low tour ids, the popular tours
+          double u = random.nextDouble();
+          tour = 1 + (int) (u * u * TOURS);
+        } while (seen[tour]);
+        seen[tour] = true;
+        customerIds[at] = c;
+        tourIds[at] = tour;
+        scores[at] = (int) Math.max(0, Math.min(5, Math.round(quality[tour - 1] + taste[tour % CATEGORIES])));
+        at++;
+      }
+    }
+    model = build();
+
+    profileTours = new int[1024][];
+    profileScores = new int[1024][];
+    for (int p = 0; p < profileTours.length; p++) {
+      int from = random.nextInt(customers) * RATINGS_PER_CUSTOMER;
+      profileTours[p] = Arrays.copyOfRange(tourIds, from, from + RATINGS_PER_CUSTOMER);
+      profileScores[p] = Arrays.copyOfRange(scores, from, from + RATINGS_PER_CUSTOMER);
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public ItemSimilarityModel buildModel() {
+    return build();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @Warmup(iterations = 2, time = 5)
+  @Measurement(iterations = 5, time = 5)
+  public List<ItemSimilarityModel.ScoredTour> scoreCustomer() {
+    int p = nextProfile++ & (profileTours.length - 1);
+    return model.score(profileTours[p], profileScores[p], 10);
+  }
+
+  private ItemSimilarityModel build() {
+    ItemSimilarityModel.Builder builder = ItemSimilarityModel.builder();
+    for (int i = 0; i < customerIds.length; i++) {
+      builder.add(customerIds[i], tourIds[i], scores[i]);
+    }
+    return builder.build(50, 2);
+  }
+}
@@ -0,0 +1,388 @@
+package com.example.explorecalijpa.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * HTTP load test of a running instance, e.g. the jar on H2 with the datagen
+ * profile or the Docker Compose stack on MySQL.
+ *
+ * By default it is an open model: requests are started on a fixed schedule at
+ * the configured rate, whatever the service's response times, and each
+ * latency is measured from the time its request was scheduled to start
+ * rather than from when it was sent. A service stall therefore shows up in
+ * every request that should have run during it, which corrects for
+ * coordinated omission.
+ *
+ * With the concurrency setting it is a closed model instead, run once per
+ * listed client count: each client sends one request after another, so the
+ * throughput reached with a fixed number of concurrent clients can be
+ * compared, e.g. with and without the virtual-threads profile. Latencies are
+ * then measured from when each request was sent.
+ *
+ * Settings are passed as key=value arguments, see Settings. The results are
+ * printed, written as JSON, and checked against the slo.* settings; the
+ * process exits with status 1 if any is missed.
+ */
+public final class LoadTest {
+
+  /** Latencies above this are recorded as this. */
+  private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+  enum Operation {
+    LIST("GET /tours/{id}/ratings"),
+    AVERAGE("GET /tours/{id}/ratings/average"),
+    RATE("POST /tours/{id}/ratings"),
+    BATCH("POST /tours/{id}/ratings/batch"),
+    TOP("GET /recommendations/top/{limit}"),
+    CUSTOMER("GET /recommendations/customer/{id}"),
+    TOURS("GET /tours"),
+    PACKAGES("GET /packages");
+
+    final String endpoint;
+
+    Operation(String endpoint) {
+      this.endpoint = endpoint;
+    }
+
+    String key() {
+      return name().toLowerCase(Locale.ROOT);
+    }
+  }
+
+  /**
+   * @param url           base URL of the service
+   * @param rate          requests started per second
+   * @param warmup        time to run before measuring
+   * @param duration      time to measure
+   * @param tours         tour ids requested are 1 .. tours
+   * @param firstCustomer lowest customer id used
+   * @param customers     number of customer ids used
+   * @param maxInFlight   most requests outstanding at once; when reached the
+   *                      schedule waits, and the wait counts in the latencies
+   * @param concurrency   client counts to run the closed model with, one
+   *                      after the other; empty for the open model at rate
+   * @param mix           relative weight of each operation
+   * @param slos          latency objectives in ms by "percentile" for all
+   *                      operations or "operation.percentile", and the maximum
+   *                      "error-rate"
+   * @param result        file the JSON results are written to
+   */
+  record Settings(URI url, double rate, Duration warmup, Duration duration, int tours, int firstCustomer,
+      int customers, int maxInFlight, List<Integer> concurrency, Map<Operation, Integer> mix,
+      Map<String, Double> slos, Path result) {
+
+    static Settings parse(String... args) {
+      Map<String, String> values = new LinkedHashMap<>();
+      values.put("url", "http://localhost:8080");
+      values.put("rate", "200");
+      values.put("warmup", "PT10S");
+      values.put("duration", "PT60S");
+      values.put("tours", "19");
+      values.put("first-customer", "1");
+      values.put("customers", "1000");
+      values.put("max-in-flight", "2000");
+      values.put("concurrency", "");
+      values.put("mix", "list:30,average:30,rate:10,batch:2,top:15,customer:8,packages:5");
+      values.put("result", "target/loadtest-result.json");
+      Map<String, Double> slos = new LinkedHashMap<>();
+      for (String arg : args) {
+        int eq = arg.indexOf('=');
+        if (eq < 0) {
+          throw new IllegalArgumentException("Expected key=value but got " + arg);
+        }
+        String key = arg.substring(0, eq);
+        if (key.startsWith("slo.")) {
+          slos.put(key.substring(4), Double.valueOf(arg.substring(eq + 1)));
+        } else if (values.containsKey(key)) {
+          values.put(key, arg.substring(eq + 1));
+        } else {
+          throw new IllegalArgumentException("Unknown setting " + key);
+        }
+      }
+      Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+      for (String weight : values.get("mix").split(",")) {
+        String[] parts = weight.split(":");
+        mix.put(Operation.valueOf(parts[0].strip().toUpperCase(Locale.ROOT)), Integer.valueOf(parts[1].strip()));
+      }
+      List<Integer> concurrency = new ArrayList<>();
+      for (String clients : values.get("concurrency").split(",")) {
+        if (!clients.isBlank()) {
+          concurrency.add(Integer.valueOf(clients.strip()));
+        }
+      }
+      return new Settings(URI.create(values.get("url")), Double.parseDouble(values.get("rate")),
+          Duration.parse(values.get("warmup")), Duration.parse(values.get("duration")),
+          Integer.parseInt(values.get("tours")), Integer.parseInt(values.get("first-customer")),
+          Integer.parseInt(values.get("customers")), Integer.parseInt(values.get("max-in-flight")), concurrency,
+          mix, slos, Path.of(values.get("result")));
+    }
+  }
+
+  /** Latencies and errors of one operation. */
+  static final class Stats {
+    final Histogram latencies = new ConcurrentHistogram(3);
+    final LongAdder errors = new LongAdder();
+
+    void record(long latencyNanos, boolean ok) {
+      latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), MAX_LATENCY_MICROS));
+      if (!ok) {
+        errors.increment();
+      }
+    }
+  }
+
+  private final Settings settings;
+  private final HttpClient client;
+  private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+  private final Operation[] schedule;
+  private final SplittableRandom random = new SplittableRandom(42);
+
+  LoadTest(Settings settings) {
+    this.settings = settings;
+    this.client = HttpClient.newBuilder()
+        .executor(Executors.newVirtualThreadPerTaskExecutor())
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+    List<Operation> weighted = new ArrayList<>();
+    settings.mix().forEach((operation, weight) -> {
+      stats.put(operation, new Stats());
+      for (int i = 0; i < weight; i++) {
+        weighted.add(operation);
+      }
+    });
+    this.schedule = weighted.toArray(Operation[]::new);
+  }
+
+  public static void main(String[] args) throws Exception {
+    Settings settings = Settings.parse(args);
+    Map<String, Object> results = new LinkedHashMap<>();
+    List<String> violations = new ArrayList<>();
+    if (settings.concurrency().isEmpty()) {
+      LoadTest test = new LoadTest(settings);
+      test.run();
+      results.putAll(test.report("", violations));
+    } else {
+      for (int clients : settings.concurrency()) {
+        LoadTest test = new LoadTest(settings);
+        test.runClients(clients);
+        results.put("clients-" + clients, test.report(clients + " clients ", violations));
+      }
+    }
+    write(settings.result(), results, settings.slos(), violations);
+    if (!violations.isEmpty()) {
+      violations.forEach(v -> System.out.println("SLO missed: " + v));
+      System.exit(1);
+    }
+  }
+
+  void run() throws InterruptedException {
+    Semaphore inFlight = new Semaphore(settings.maxInFlight());
+    long intervalNanos = Math.round(TimeUnit.SECONDS.toNanos(1) / settings.rate());
+    long start = System.nanoTime();
+    long measureFrom = start + settings.warmup().toNanos();
+    long end = measureFrom + settings.duration().toNanos();
+    System.out.printf("Running %s at %.0f requests/s for %s after a %s warmup%n", settings.url(), settings.rate(),
+        settings.duration(), settings.warmup());
+    for (long i = 0;; i++) {
+      long intended = start + i * intervalNanos;
+      if (intended >= end) {
+        break;
+      }
+      long wait = intended - System.nanoTime();
+      if (wait > 0) {
+        LockSupport.parkNanos(wait);
+      }
+      inFlight.acquire();
+      Operation operation = schedule[random.nextInt(schedule.length)];
+      Stats target = intended >= measureFrom ? stats.get(operation) : null;
+      client.sendAsync(request(operation, random), HttpResponse.BodyHandlers.discarding())
+          .whenComplete((response, error) -> {
+            inFlight.release();
+            if (target != null) {
+              target.record(System.nanoTime() - intended, error == null && response.statusCode() / 100 == 2);
+            }
+          });
+    }
+    if (!inFlight.tryAcquire(settings.maxInFlight(), 1, TimeUnit.MINUTES)) {
+      System.out.println("Requests still outstanding after a minute are left out");
+    }
+  }
+
+  /**
+   * Run the closed model: each client sends its next request as soon as the
+   * previous one completes.
+   *
+   * @param clients number of concurrent clients
+   */
+  void runClients(int clients) {
+    long start = System.nanoTime();
+    long measureFrom = start + settings.warmup().toNanos();
+    long end = measureFrom + settings.duration().toNanos();
+    System.out.printf("Running %s with %d clients for %s after a %s warmup%n", settings.url(), clients,
+        settings.duration(), settings.warmup());
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int c = 0; c < clients; c++) {
+        SplittableRandom clientRandom = random.split();
+        executor.submit(() -> drive(clientRandom, measureFrom, end));
+      }
+    }
+  }
+
+  private void drive(SplittableRandom clientRandom, long measureFrom, long end) {
+    for (long sent = System.nanoTime(); sent < end; sent = System.nanoTime()) {
+      Operation operation = schedule[clientRandom.nextInt(schedule.length)];
+      boolean ok;
+      try {
+        ok = client.send(request(operation, clientRandom), HttpResponse.BodyHandlers.discarding())
+            .statusCode() / 100 == 2;
+      } catch (IOException e) {
+        ok = false;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      if (sent >= measureFrom) {
+        stats.get(operation).record(System.nanoTime() - sent, ok);
+      }
+    }
+  }
+
+  private HttpRequest request(Operation operation, SplittableRandom random) {
+    int tourId = 1 + random.nextInt(settings.tours());
+    int customerId = settings.firstCustomer() + random.nextInt(settings.customers());
+    int score = 1 + random.nextInt(5);
+    return switch (operation) {
+      case LIST -> get("/tours/" + tourId + "/ratings?limit=20");
+      case AVERAGE -> get("/tours/" + tourId + "/ratings/average");
+      case RATE -> post("/tours/" + tourId + "/ratings",
+          "{\"score\":" + score + ",\"comment\":\"load test\",\"customerId\":" + customerId + "}");
+      case BATCH -> {
+        StringBuilder customers = new StringBuilder("[").append(customerId);
+        for (int i = 1; i < 10; i++) {
+          customers.append(',').append(settings.firstCustomer() + random.nextInt(settings.customers()));
+        }
+        yield post("/tours/" + tourId + "/ratings/batch?score=" + score, customers.append(']').toString());
+      }
+      case TOP -> get("/recommendations/top/10");
+      case CUSTOMER -> get("/recommendations/customer/" + customerId + "?limit=5");
+      case TOURS -> get("/tours?page=0&size=10");
+      case PACKAGES -> get("/packages");
+    };
+  }
+
+  private HttpRequest get(String path) {
+    return HttpRequest.newBuilder(settings.url().resolve(path))
+        .header("Accept", "application/json")
+        .timeout(Duration.ofSeconds(30))
+        .build();
+  }
+
+  private HttpRequest post(String path, String json) {
+    return HttpRequest.newBuilder(settings.url().resolve(path))
+        .header("Content-Type", "application/json")
+        .timeout(Duration.ofSeconds(30))
+        .POST(HttpRequest.BodyPublishers.ofString(json))
+        .build();
+  }
+
+  /**
+   * Print the results and check the objectives.
+   *
+   * @param label      prefix of the objectives missed
+   * @param violations collects the objectives missed
+   * @return the results by operation and for all operations
+   */
+  Map<String, Object> report(String label, List<String> violations) {
+    double seconds = settings.duration().toMillis() / 1000.0;
+    Map<String, Object> results = new LinkedHashMap<>();
+    Stats all = new Stats();
+    System.out.printf("%n%-36s %9s %7s %9s %9s %9s %9s %9s %9s%n", "operation", "requests", "errors", "req/s",
+        "p50 ms", "p95 ms", "p99 ms", "p99.9 ms", "max ms");
+    for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+      Stats s = entry.getValue();
+      all.latencies.add(s.latencies);
+      all.errors.add(s.errors.sum());
+      results.put(entry.getKey().key(), summarize(entry.getKey().endpoint, s, seconds));
+    }
+    Map<String, Object> total = summarize("all", all, seconds);
+    results.put("all", total);
+
+    settings.slos().forEach((key, limit) -> {
+      String operation = "all";
+      String measure = key;
+      int dot = key.indexOf('.');
+      if (dot > 0 && results.containsKey(key.substring(0, dot))) {
+        operation = key.substring(0, dot);
+        measure = key.substring(dot + 1);
+      }
+      @SuppressWarnings("unchecked")
+      Map<String, Object> summary = (Map<String, Object>) results.get(operation);
+      if (summary == null || !summary.containsKey(measure)) {
+        violations.add(label + "unknown objective " + key);
+      } else if (((Number) summary.get(measure)).doubleValue() > limit) {
+        violations.add(String.format(Locale.ROOT, "%s%s %s was %s, objective %s", label, operation, measure,
+            summary.get(measure), limit));
+      }
+    });
+    return results;
+  }
+
+  private static void write(Path result, Map<String, Object> results, Map<String, Double> slos,
+      List<String> violations) throws IOException {
+    results.put("slo", Map.of("objectives", slos, "missed", violations));
+    if (result.getParent() != null) {
+      Files.createDirectories(result.getParent());
+    }
+    new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(result.toFile(), results);
+    System.out.println("\nResults written to " + result);
+  }
+
+  private static Map<String, Object> summarize(String name, Stats s, double seconds) {
+    Histogram h = s.latencies;
+    long requests = h.getTotalCount();
+    Map<String, Object> summary = new LinkedHashMap<>();
+    summary.put("requests", requests);
+    summary.put("errors", s.errors.sum());
+    summary.put("error-rate", requests == 0 ? 0.0 : (double) s.errors.sum() / requests);
+    summary.put("throughput", requests / seconds);
+    summary.put("p50", millis(h.getValueAtPercentile(50)));
+    summary.put("p95", millis(h.getValueAtPercentile(95)));
+    summary.put("p99", millis(h.getValueAtPercentile(99)));
+    summary.put("p99.9", millis(h.getValueAtPercentile(99.9)));
+    summary.put("max", millis(h.getMaxValue()));
+    System.out.printf(Locale.ROOT, "%-36s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, requests,
+        s.errors.sum(), requests / seconds, summary.get("p50"), summary.get("p95"), summary.get("p99"),
+        summary.get("p99.9"), summary.get("max"));
+    return summary;
+  }
+
+  private static double millis(long micros) {
+    return micros / 1000.0;
+  }
+}
@@ -0,0 +1,68 @@
+package com.example.explorecalijpa.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.explorecalijpa.business.RateManyResult;
+import com.example.explorecalijpa.business.TourRatingService;
+
+/**
+ * Time to rate one tour for a batch of new customers through
+ * TourRatingService.rateMany, i.e. POST /tours/{tourId}/ratings/batch, on top
+ * of a number of ratings already stored.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class RateManyBenchmark {
+
+  @Param({ "100", "10000", "100000" })
+  private int customers;
+
+  @Param({ "1000", "1000000" })
+  private int ratings;
+
+  private ConfigurableApplicationContext context;
+  private TourRatingService service;
+  private int nextCustomer = 1_000_000;
+
+  @Setup(Level.Trial)
+  public void start() {
+    context = BenchmarkContexts.start();
+    service = context.getBean(TourRatingService.class);
+    BenchmarkData.seedRatings(context, ratings);
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  @Benchmark
+  public RateManyResult rateMany() {
+    List<Integer> batch = new ArrayList<>(customers);
+    for (int i = 0; i < customers; i++) {
+      batch.add(nextCustomer++);
+    }
+    return service.rateMany(1, 5, batch);
+  }
+}
@@ -0,0 +1,98 @@
+package com.example.explorecalijpa.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.explorecalijpa.model.TourRating;
+import com.example.explorecalijpa.web.RatingDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Cost of turning TourRatings into the JSON of the rating endpoints, without
+ * a database: mapping to RatingDto, writing a page as one JSON array, and
+ * writing the same ratings one line at a time as the NDJSON stream does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class RatingDtoBenchmark {
+
+  @Param({ "20", "1000" })
+  private int ratings;
+
+  private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+  private final ObjectWriter dtoWriter = objectMapper.writerFor(RatingDto.class);
+  private List<TourRating> entities;
+  private List<RatingDto> dtos;
+
+  @Setup(Level.Trial)
+  public void generate() {
+    SplittableRandom random = new SplittableRandom(42);
+    entities = new ArrayList<>(ratings);
+    for (int i = 0; i < ratings; i++) {
+      entities.add(new TourRating(null, BenchmarkData.FIRST_CUSTOMER + i, random.nextInt(1, 6),
+          i % 3 == 0 ? null : "Rating comment number " + i));
+    }
+    dtos = map();
+  }
+
+  @Benchmark
+  public List<RatingDto> map() {
+    List<RatingDto> mapped = new ArrayList<>(entities.size());
+    for (TourRating entity : entities) {
+      mapped.add(new RatingDto(entity));
+    }
+    return mapped;
+  }
+
+  @Benchmark
+  public byte[] writeJsonArray() throws IOException {
+    return objectMapper.writeValueAsBytes(dtos);
+  }
+
+  @Benchmark
+  public long writeNdjson() throws IOException {
+    CountingOutputStream out = new CountingOutputStream();
+    for (RatingDto dto : dtos) {
+      out.write(dtoWriter.writeValueAsBytes(dto));
+      out.write('\n');
+    }
+    return out.count;
+  }
+
+  private static final class CountingOutputStream extends OutputStream {
+    private long count;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+  }
+}
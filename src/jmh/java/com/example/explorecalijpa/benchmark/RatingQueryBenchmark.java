@@ -0,0 +1,115 @@
+package com.example.explorecalijpa.benchmark;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.explorecalijpa.datagen.SyntheticData;
+import com.example.explorecalijpa.model.TourRating;
+import com.example.explorecalijpa.repo.TourRatingRepository;
+
+import edu.ensign.cs460.recommendation.TourSummary;
+
+/**
+ * Latency of the three tour_rating queries the V1.6 indexes are for:
+ * findByTourId, findByTourIdAndCustomerId and the NOT IN subquery of
+ * findRecommendedForCustomer. With indexes=false the tour_rating indexes and
+ * foreign key are dropped after seeding, which gives the full table scans of
+ * the schema before V1.6 to compare against.
+ *
+ * Tours and customers are taken round robin, so findByTourId goes over
+ * popular and rarely rated tours alike, and most findByTourIdAndCustomerId
+ * calls miss, which costs the same index probe as a hit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx8g")
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class RatingQueryBenchmark {
+
+  private static final int LIMIT = 10;
+
+  // H2 syntax, as the benchmarks run on the embedded database
+  private static final String[] DROP_INDEXES = {
+      "alter table tour_rating drop constraint FK_TOUR_RATING_TOUR",
+      "drop index UX_TOUR_RATING_TOUR_CUSTOMER",
+      "drop index IX_TOUR_RATING_CUSTOMER_TOUR",
+      "drop index IX_TOUR_RATING_TOUR_SCORE",
+      "drop index IX_TOUR_RATING_TOUR_ID" };
+
+  @Param({ "1000000", "10000000" })
+  private int ratings;
+
+  @Param({ "true", "false" })
+  private boolean indexes;
+
+  private ConfigurableApplicationContext context;
+  private TourRatingRepository repository;
+  private List<Integer> tourIds;
+  private int firstCustomer;
+  private int customers;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void start() {
+    context = BenchmarkContexts.start();
+    repository = context.getBean(TourRatingRepository.class);
+    SyntheticData.Result seeded = BenchmarkData.seedRatings(context, ratings);
+    tourIds = seeded.tourIds();
+    firstCustomer = seeded.firstCustomer();
+    customers = seeded.customers();
+    if (!indexes) {
+      JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+      for (String drop : DROP_INDEXES) {
+        jdbc.execute(drop);
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  @Benchmark
+  public List<TourRating> findByTourId() {
+    return repository.findByTourId(nextTour());
+  }
+
+  @Benchmark
+  public Optional<TourRating> findByTourIdAndCustomerId() {
+    return repository.findByTourIdAndCustomerId(nextTour(), nextCustomer());
+  }
+
+  @Benchmark
+  public List<TourSummary> findRecommendedForCustomer() {
+    return repository.findRecommendedForCustomer(nextCustomer(), PageRequest.of(0, LIMIT));
+  }
+
+  private int nextTour() {
+    return tourIds.get(next++ % tourIds.size());
+  }
+
+  private int nextCustomer() {
+    return firstCustomer + next++ % customers;
+  }
+}
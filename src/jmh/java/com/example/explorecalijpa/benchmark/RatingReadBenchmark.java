@@ -0,0 +1,73 @@
+package com.example.explorecalijpa.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.explorecalijpa.business.TourRatingService;
+import com.example.explorecalijpa.repo.TourRatingView;
+
+/**
+ * Latency of the rating reads behind GET /tours/{tourId}/ratings/average and
+ * the first page of GET /tours/{tourId}/ratings, as the number of stored
+ * ratings grows. Neither should depend on it: the average comes from the
+ * running stats and the page from the (tour_id, id) index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class RatingReadBenchmark {
+
+  private static final int PAGE_SIZE = 20;
+
+  @Param({ "1000", "100000", "1000000" })
+  private int ratings;
+
+  private ConfigurableApplicationContext context;
+  private TourRatingService service;
+  private List<Integer> tourIds;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void start() {
+    context = BenchmarkContexts.start();
+    service = context.getBean(TourRatingService.class);
+    tourIds = BenchmarkData.seedRatings(context, ratings).tourIds();
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  @Benchmark
+  public Double getAverageScore() {
+    return service.getAverageScore(nextTour());
+  }
+
+  @Benchmark
+  public List<TourRatingView> lookupFirstPage() {
+    return service.lookupRatings(nextTour(), null, PAGE_SIZE);
+  }
+
+  private int nextTour() {
+    return tourIds.get(next++ % tourIds.size());
+  }
+}
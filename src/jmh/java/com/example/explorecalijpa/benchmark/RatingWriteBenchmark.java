@@ -0,0 +1,99 @@
+package com.example.explorecalijpa.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.explorecalijpa.business.TourRatingService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Time and SQL statements per rating write: TourRatingService.update, which
+ * loads and merges the TourRating entity, against TourRatingService.upsert,
+ * i.e. PUT /tours/{tourId}/ratings. The statements per write are printed at
+ * the end of every iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class RatingWriteBenchmark {
+
+  private static final int TOUR_ID = 1;
+  private static final int CUSTOMERS = 1000;
+  private static final int FIRST_CUSTOMER = 2_000_000;
+
+  private ConfigurableApplicationContext context;
+  private TourRatingService service;
+  private Statistics statistics;
+  private int next;
+  private long writes;
+
+  @Setup(Level.Trial)
+  public void start() {
+    context = BenchmarkContexts.start();
+    service = context.getBean(TourRatingService.class);
+    statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+    statistics.setStatisticsEnabled(true);
+    List<Integer> customers = new ArrayList<>(CUSTOMERS);
+    for (int i = 0; i < CUSTOMERS; i++) {
+      customers.add(FIRST_CUSTOMER + i);
+    }
+    service.rateMany(TOUR_ID, 3, customers);
+  }
+
+  @Setup(Level.Iteration)
+  public void resetStatistics() {
+    statistics.clear();
+    writes = 0;
+  }
+
+  @TearDown(Level.Iteration)
+  public void printStatementsPerWrite() {
+    System.out.printf("%n%.2f statements, %.2f entity loads per write%n",
+        (double) statistics.getPrepareStatementCount() / writes, (double) statistics.getEntityLoadCount() / writes);
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  @Benchmark
+  public void update() {
+    service.update(TOUR_ID, nextCustomer(), nextScore(), "benchmark");
+  }
+
+  @Benchmark
+  public boolean upsert() {
+    return service.upsert(TOUR_ID, nextCustomer(), nextScore(), "benchmark");
+  }
+
+  private int nextCustomer() {
+    writes++;
+    return FIRST_CUSTOMER + (next++ % CUSTOMERS);
+  }
+
+  private int nextScore() {
+    return next % 5 + 1;
+  }
+}
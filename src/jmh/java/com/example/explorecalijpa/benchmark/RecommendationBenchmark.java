@@ -0,0 +1,88 @@
+package com.example.explorecalijpa.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+
+import com.example.explorecalijpa.datagen.SyntheticData;
+import com.example.explorecalijpa.repo.TourRatingRepository;
+
+import edu.ensign.cs460.recommendation.RecommendationService;
+import edu.ensign.cs460.recommendation.TourRecommendation;
+import edu.ensign.cs460.recommendation.TourSummary;
+
+/**
+ * Latency of /recommendations/top and /recommendations/customer/{id}, served
+ * from the in-memory leaderboard and rated-tours cache, against the
+ * TourRatingRepository.findTopTours query they fall back on before the
+ * leaderboard is built.
+ *
+ * Customers are taken round robin from a pool larger than the rated-tours
+ * cache holds at the biggest sizes, so recommendForCustomer sees both hits
+ * and misses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class RecommendationBenchmark {
+
+  private static final int LIMIT = 10;
+
+  @Param({ "1000", "100000", "1000000" })
+  private int ratings;
+
+  private ConfigurableApplicationContext context;
+  private RecommendationService service;
+  private TourRatingRepository repository;
+  private int firstCustomer;
+  private int customers;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void start() {
+    context = BenchmarkContexts.start();
+    service = context.getBean(RecommendationService.class);
+    repository = context.getBean(TourRatingRepository.class);
+    SyntheticData.Result seeded = BenchmarkData.seedRatings(context, ratings);
+    firstCustomer = seeded.firstCustomer();
+    customers = seeded.customers();
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  @Benchmark
+  public List<TourRecommendation> recommendTopN() {
+    return service.recommendTopN(LIMIT);
+  }
+
+  @Benchmark
+  public List<TourRecommendation> recommendForCustomer() {
+    return service.recommendForCustomer(firstCustomer + next++ % customers, LIMIT);
+  }
+
+  @Benchmark
+  public List<TourSummary> findTopTours() {
+    return repository.findTopTours(PageRequest.of(0, LIMIT));
+  }
+}
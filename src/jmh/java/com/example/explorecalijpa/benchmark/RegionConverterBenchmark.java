@@ -0,0 +1,94 @@
+package com.example.explorecalijpa.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.example.explorecalijpa.model.Difficulty;
+import com.example.explorecalijpa.model.Region;
+import com.example.explorecalijpa.model.RegionConverter;
+
+/**
+ * Cost per row of turning the region and difficulty columns of a million
+ * hydrated Tour rows into enums, without a database. Every row brings its
+ * own String, as a JDBC driver does, though its hash code is cached after
+ * the first pass. linearScan is the loop over Region.values() that
+ * RegionConverter used before the label map.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class RegionConverterBenchmark {
+
+  private static final int ROWS = 1_000_000;
+
+  private final RegionConverter converter = new RegionConverter();
+  private String[] regions;
+  private String[] difficulties;
+
+  @Setup(Level.Trial)
+  public void generate() {
+    SplittableRandom random = new SplittableRandom(42);
+    Region[] regionValues = Region.values();
+    Difficulty[] difficultyValues = Difficulty.values();
+    regions = new String[ROWS];
+    difficulties = new String[ROWS];
+    for (int i = 0; i < ROWS; i++) {
+      regions[i] = new String(regionValues[random.nextInt(regionValues.length)].getLabel());
+      difficulties[i] = new String(difficultyValues[random.nextInt(difficultyValues.length)].name());
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void converter(Blackhole blackhole) {
+    for (String label : regions) {
+      blackhole.consume(converter.convertToEntityAttribute(label));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void linearScan(Blackhole blackhole) {
+    for (String label : regions) {
+      blackhole.consume(linearScan(label));
+    }
+  }
+
+  /**
+   * Difficulty is mapped with @Enumerated(EnumType.STRING), which Hibernate
+   * reads with Enum.valueOf.
+   */
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void difficulty(Blackhole blackhole) {
+    for (String name : difficulties) {
+      blackhole.consume(Difficulty.valueOf(name));
+    }
+  }
+
+  private static Region linearScan(String byLabel) {
+    for (Region r : Region.values()) {
+      if (r.getLabel().equalsIgnoreCase(byLabel)) {
+        return r;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,68 @@
+package com.example.explorecalijpa.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import com.example.explorecalijpa.business.TourService;
+import com.example.explorecalijpa.model.Tour;
+
+/**
+ * Latency of TourService.lookupByPrice, i.e. /tours/search/byPrice, as the
+ * number of tours grows: the first page of a narrow and of a wide price
+ * range, each with the count query behind the page metadata. Synthetic
+ * prices run from 50 to 2525 in steps of 25.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class TourPriceBenchmark {
+
+  private static final PageRequest FIRST_PAGE = PageRequest.of(0, 20);
+
+  @Param({ "100000", "1000000" })
+  private int tours;
+
+  private ConfigurableApplicationContext context;
+  private TourService service;
+
+  @Setup(Level.Trial)
+  public void start() {
+    context = BenchmarkContexts.start();
+    service = context.getBean(TourService.class);
+    BenchmarkData.seedTours(context, tours);
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  @Benchmark
+  public Page<Tour> narrowRange() {
+    return service.lookupByPrice(1000, 1025, FIRST_PAGE);
+  }
+
+  @Benchmark
+  public Page<Tour> wideRange() {
+    return service.lookupByPrice(500, 2000, FIRST_PAGE);
+  }
+}
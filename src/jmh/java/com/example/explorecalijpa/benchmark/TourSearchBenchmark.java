@@ -0,0 +1,95 @@
+package com.example.explorecalijpa.benchmark;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.explorecalijpa.model.Difficulty;
+import com.example.explorecalijpa.model.Region;
+import com.example.explorecalijpa.search.TourDocument;
+import com.example.explorecalijpa.search.TourSearchFilter;
+import com.example.explorecalijpa.search.TourSearchHit;
+import com.example.explorecalijpa.search.TourSearchIndex;
+
+/**
+ * Latency of TourSearchIndex queries, without a database, over synthetic
+ * tours whose words follow a skewed distribution: a rare term, a common
+ * term, a two-term query, and a common term with filters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class TourSearchBenchmark {
+
+  private static final int VOCABULARY = 20_000;
+  private static final int WORDS_PER_TOUR = 60;
+  private static final String[] PACKAGES = { "BC", "CC", "CH", "CY", "DS", "KC", "NW", "RC", "TC" };
+
+  @Param({ "10000", "100000" })
+  private int tours;
+
+  private TourSearchIndex index;
+  private final TourSearchFilter filter = new TourSearchFilter(Difficulty.Medium, null, null, 500, 1500);
+
+  @Setup(Level.Trial)
+  public void build() {
+    SplittableRandom random = new SplittableRandom(42);
+    TourSearchIndex.Builder builder = TourSearchIndex.builder();
+    for (int id = 1; id <= tours; id++) {
+      builder.add(new TourDocument(id, words(random, 4), words(random, 3), words(random, WORDS_PER_TOUR),
+          PACKAGES[random.nextInt(PACKAGES.length)], Difficulty.values()[random.nextInt(Difficulty.values().length)],
+          Region.values()[random.nextInt(Region.values().length)], random.nextInt(50, 3000)));
+    }
+    index = builder.build();
+  }
+
+  @Benchmark
+  public List<TourSearchHit> rareTerm() {
+    return index.search(word(5000), TourSearchFilter.NONE, 20);
+  }
+
+  @Benchmark
+  public List<TourSearchHit> commonTerm() {
+    return index.search(word(3), TourSearchFilter.NONE, 20);
+  }
+
+  @Benchmark
+  public List<TourSearchHit> twoTerms() {
+    return index.search(word(40) + " " + word(700), TourSearchFilter.NONE, 20);
+  }
+
+  @Benchmark
+  public List<TourSearchHit> commonTermFiltered() {
+    return index.search(word(3), filter, 20);
+  }
+
+  private static String words(SplittableRandom random, int count) {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      // cubing a uniform draw favours low ranks, so word(0) is the most common
+      double u = random.nextDouble();
+      text.append(word((int) (u * u * u * VOCABULARY))).append(' ');
+    }
+    return text.toString();
+  }
+
+  private static String word(int rank) {
+    return "w" + rank;
+  }
+}
@@ -6,6 +6,7 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import com.example.explorecalijpa.business.TourPackageService;
 import com.example.explorecalijpa.business.TourService;
@@ -18,6 +19,7 @@ import io.swagger.v3.oas.models.info.Info;
         "com.example.explorecalijpa",
         "edu.ensign.cs460"
 })
+@EnableScheduling
 public class ExplorecaliJpaApplication implements CommandLineRunner {
 
     @Bean
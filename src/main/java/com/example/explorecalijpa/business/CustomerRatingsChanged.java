@@ -0,0 +1,14 @@
+package com.example.explorecalijpa.business;
+
+import java.util.List;
+
+/**
+ * Published by RatingEventDispatcher for every committed RatingCreated or
+ * RatingDeleted event, on the delivery lane of the tour.
+ *
+ * @param tourId      tour identifier
+ * @param customerIds customers whose rating was created or deleted
+ * @param rated       true if the customers now have a rating of the tour
+ */
+public record CustomerRatingsChanged(int tourId, List<Integer> customerIds, boolean rated) {
+}
@@ -0,0 +1,14 @@
+package com.example.explorecalijpa.business;
+
+/**
+ * A rating accepted by the write-behind queue but not yet written to
+ * tour_rating.
+ *
+ * @param sequence   position in the journal, increasing from 1
+ * @param tourId     tour identifier
+ * @param customerId customer identifier
+ * @param score      score between TourRatingStats.MIN_SCORE and MAX_SCORE
+ * @param comment    comment, may be null
+ */
+public record PendingRating(long sequence, int tourId, int customerId, int score, String comment) {
+}
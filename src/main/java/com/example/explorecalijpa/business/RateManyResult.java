@@ -0,0 +1,13 @@
+package com.example.explorecalijpa.business;
+
+import java.util.List;
+
+/**
+ * Outcome of rating a tour for many customers at once.
+ *
+ * @param created    customers whose rating was created
+ * @param duplicates customers skipped because they already rated the tour,
+ *                   or were listed more than once
+ */
+public record RateManyResult(List<Integer> created, List<Integer> duplicates) {
+}
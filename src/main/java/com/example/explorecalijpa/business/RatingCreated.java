@@ -0,0 +1,24 @@
+package com.example.explorecalijpa.business;
+
+import java.util.List;
+
+import com.example.explorecalijpa.model.TourRatingStats;
+
+/**
+ * Customers rated a tour for the first time.
+ *
+ * @param tourId      tour identifier
+ * @param version     stats version after the change
+ * @param ratingCount number of ratings after the change
+ * @param scoreSum    sum of the scores after the change
+ * @param customerIds customers whose rating was created
+ */
+public record RatingCreated(int tourId, long version, long ratingCount, long scoreSum, List<Integer> customerIds)
+    implements RatingEvent {
+  static final String TYPE = "created";
+
+  public static RatingCreated of(TourRatingStats stats, List<Integer> customerIds) {
+    return new RatingCreated(stats.getTourId(), stats.getVersion(), stats.getRatingCount(), stats.getScoreSum(),
+        customerIds);
+  }
+}
@@ -0,0 +1,23 @@
+package com.example.explorecalijpa.business;
+
+import com.example.explorecalijpa.model.TourRatingStats;
+
+/**
+ * A customer's rating of a tour was deleted.
+ *
+ * @param tourId      tour identifier
+ * @param version     stats version after the change
+ * @param ratingCount number of ratings after the change
+ * @param scoreSum    sum of the scores after the change
+ * @param customerId  customer identifier
+ * @param score       score of the deleted rating
+ */
+public record RatingDeleted(int tourId, long version, long ratingCount, long scoreSum, int customerId, int score)
+    implements RatingEvent {
+  static final String TYPE = "deleted";
+
+  public static RatingDeleted of(TourRatingStats stats, int customerId, int score) {
+    return new RatingDeleted(stats.getTourId(), stats.getVersion(), stats.getRatingCount(), stats.getScoreSum(),
+        customerId, score);
+  }
+}
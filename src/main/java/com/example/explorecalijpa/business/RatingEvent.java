@@ -0,0 +1,29 @@
+package com.example.explorecalijpa.business;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+/**
+ * Domain event of a committed change to the ratings of a tour, published by
+ * TourRatingService inside the writing transaction and stored in the
+ * rating_event outbox by RatingOutbox. RatingEventDispatcher later delivers
+ * it to the read models.
+ *
+ * Every event carries the stats of the tour after the change, and the stats
+ * version, which increases with every change so consumers can apply a tour's
+ * events in order and ignore repeats.
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
+@JsonSubTypes({
+    @JsonSubTypes.Type(value = RatingCreated.class, name = RatingCreated.TYPE),
+    @JsonSubTypes.Type(value = RatingUpdated.class, name = RatingUpdated.TYPE),
+    @JsonSubTypes.Type(value = RatingDeleted.class, name = RatingDeleted.TYPE) })
+public sealed interface RatingEvent permits RatingCreated, RatingUpdated, RatingDeleted {
+  int tourId();
+
+  long version();
+
+  long ratingCount();
+
+  long scoreSum();
+}
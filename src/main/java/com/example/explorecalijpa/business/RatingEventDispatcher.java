@@ -0,0 +1,337 @@
+package com.example.explorecalijpa.business;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.explorecalijpa.model.RatingEventRecord;
+import com.example.explorecalijpa.repo.RatingEventRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Delivers the rating events in the rating_event outbox to the read models of
+ * this instance, as TourRatingStatsChanged and CustomerRatingsChanged events,
+ * off the request threads.
+ *
+ * Every instance keeps its own read models, so every instance delivers every
+ * event. Events are numbered by the seq column as they are inserted, and each
+ * instance keeps its own cursor: the seq up to which it is done with them. A
+ * poller thread reads the events after the cursor, woken by every committed
+ * rating write or else every poll interval. Each tour's events go to one of a
+ * fixed number of single threaded lanes, picked by tour id, so a tour's
+ * events are delivered in version order while different tours are delivered
+ * in parallel. A version already delivered for a tour is skipped, so reading
+ * an event twice is harmless.
+ *
+ * A missing seq may belong to a transaction that has not committed yet, so
+ * the cursor stops in front of it until the gap timeout has passed; the events
+ * after it are delivered meanwhile. A failed delivery holds back only the rest
+ * of its tour's events. It is retried with the next batch, and after max
+ * attempts the event is parked, recorded in the outbox with its last error,
+ * and the tour's later events go on.
+ *
+ * Events are never deleted on delivery; they are purged once older than the
+ * retention, which must cover the longest time an instance may fall behind.
+ */
+@Component
+@Slf4j
+public class RatingEventDispatcher {
+  /**
+   * Order of the ApplicationReadyEvent listeners that build read models kept
+   * current by rating events: after the cursor is taken and before delivery
+   * starts.
+   */
+  public static final int READ_MODELS_ORDER = 0;
+
+  // length of rating_event.last_error
+  private static final int MAX_ERROR_LENGTH = 1000;
+
+  private final RatingEventRecordRepository repository;
+  private final RatingOutbox outbox;
+  private final ApplicationEventPublisher eventPublisher;
+  private final int batchSize;
+  private final Duration pollInterval;
+  private final int maxAttempts;
+  private final Duration gapTimeout;
+  private final Duration retention;
+  private final ExecutorService[] lanes;
+  private final Map<Integer, Long> deliveredVersions = new ConcurrentHashMap<>();
+  private final Map<RatingEventRecord.Key, Integer> attempts = new ConcurrentHashMap<>();
+  private final Semaphore wakeups = new Semaphore(0);
+
+  private final Counter delivered;
+  private final Counter duplicates;
+  private final Counter unreadable;
+  private final Counter failed;
+  private final Counter parked;
+  private final Timer lag;
+
+  private volatile boolean running = true;
+  private Thread poller;
+  // poller thread only, once started
+  private long cursor;
+
+  public RatingEventDispatcher(RatingEventRecordRepository repository, RatingOutbox outbox,
+      ApplicationEventPublisher eventPublisher, MeterRegistry registry,
+      @Value("${explorecali.ratings.events.lanes:4}") int lanes,
+      @Value("${explorecali.ratings.events.batch-size:500}") int batchSize,
+      @Value("${explorecali.ratings.events.poll-interval:PT1S}") Duration pollInterval,
+      @Value("${explorecali.ratings.events.max-attempts:5}") int maxAttempts,
+      @Value("${explorecali.ratings.events.gap-timeout:PT10S}") Duration gapTimeout,
+      @Value("${explorecali.ratings.events.retention:PT24H}") Duration retention) {
+    this.repository = repository;
+    this.outbox = outbox;
+    this.eventPublisher = eventPublisher;
+    this.batchSize = batchSize;
+    this.pollInterval = pollInterval;
+    this.maxAttempts = maxAttempts;
+    this.gapTimeout = gapTimeout;
+    this.retention = retention;
+    this.lanes = new ExecutorService[lanes];
+    for (int i = 0; i < lanes; i++) {
+      this.lanes[i] = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("rating-events-" + i).daemon()
+          .factory());
+    }
+    this.delivered = registry.counter("ratings.events.delivered");
+    this.duplicates = registry.counter("ratings.events.duplicates");
+    this.unreadable = registry.counter("ratings.events.unreadable");
+    this.failed = registry.counter("ratings.events.failed");
+    this.parked = registry.counter("ratings.events.parked");
+    this.lag = registry.timer("ratings.events.lag");
+  }
+
+  /**
+   * Take the cursor before the read models are built from the database, so
+   * no event committed after they read it is missed. Events inserted within
+   * the gap timeout are read again, as they may not have committed yet.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Order(Ordered.HIGHEST_PRECEDENCE)
+  public void takeCursor() {
+    cursor = repository.findLastSeqBefore(Instant.now().minus(gapTimeout));
+  }
+
+  /**
+   * Start polling once the read models have been built.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Order(Ordered.LOWEST_PRECEDENCE)
+  public void start() {
+    poller = Thread.ofPlatform().name("rating-event-poller").daemon().start(this::poll);
+  }
+
+  /**
+   * Delete the events older than the retention.
+   */
+  @Scheduled(fixedDelayString = "${explorecali.ratings.events.purge-interval:PT10M}",
+      initialDelayString = "${explorecali.ratings.events.purge-interval:PT10M}")
+  public void purge() {
+    int purged = repository.deleteCreatedBefore(Instant.now().minus(retention));
+    if (purged > 0) {
+      log.info("Purged {} rating events older than {}", purged, retention);
+    }
+  }
+
+  @TransactionalEventListener
+  public void onRatingEventCommitted(RatingEvent event) {
+    wakeups.release();
+  }
+
+  @PreDestroy
+  void stop() throws InterruptedException {
+    running = false;
+    if (poller != null) {
+      poller.interrupt();
+      poller.join(TimeUnit.SECONDS.toMillis(30));
+    }
+    for (ExecutorService lane : lanes) {
+      lane.shutdown();
+    }
+  }
+
+  private void poll() {
+    while (running) {
+      try {
+        if (dispatchBatch() < batchSize) {
+          wakeups.tryAcquire(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+          wakeups.drainPermits();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (RuntimeException e) {
+        log.warn("Dispatching rating events failed, retrying", e);
+        try {
+          Thread.sleep(pollInterval.toMillis());
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Deliver the events after the cursor and move the cursor past those that
+   * are done with, up to the first that failed or the first gap younger than
+   * the gap timeout. A tour whose delivery fails keeps that event and its
+   * later ones for the next batch, with the failure counted against the event.
+   *
+   * @return number of events the cursor moved past
+   */
+  int dispatchBatch() throws InterruptedException {
+    List<RatingEventRecord> records = repository.findAfter(cursor, Limit.of(batchSize));
+    if (records.isEmpty()) {
+      return 0;
+    }
+    Map<Integer, List<RatingEventRecord>> byTour = new LinkedHashMap<>();
+    for (RatingEventRecord record : records) {
+      byTour.computeIfAbsent(record.getId().tourId(), t -> new ArrayList<>()).add(record);
+    }
+    List<Future<Delivery>> deliveries = new ArrayList<>(byTour.size());
+    for (Map.Entry<Integer, List<RatingEventRecord>> entry : byTour.entrySet()) {
+      deliveries.add(lanes[Math.floorMod(entry.getKey(), lanes.length)].submit(() -> deliver(entry.getValue())));
+    }
+    Set<RatingEventRecord.Key> done = new HashSet<>();
+    for (Future<Delivery> future : deliveries) {
+      Delivery delivery;
+      try {
+        delivery = future.get();
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Rating event delivery failed", e.getCause());
+      }
+      delivery.done().forEach(r -> done.add(r.getId()));
+      if (delivery.failed() != null && recordFailure(delivery.failed(), delivery.error())) {
+        done.add(delivery.failed().getId());
+      }
+    }
+    Instant settled = Instant.now().minus(gapTimeout);
+    int passed = 0;
+    for (RatingEventRecord record : records) {
+      boolean openGap = record.getSeq() > cursor + 1 && record.getCreatedAt().isAfter(settled);
+      if (openGap || !done.contains(record.getId())) {
+        break;
+      }
+      cursor = record.getSeq();
+      passed++;
+    }
+    return passed;
+  }
+
+  /**
+   * Deliver the events of one tour, in version order, on the tour's lane,
+   * stopping at the first that fails.
+   */
+  private Delivery deliver(List<RatingEventRecord> records) {
+    List<RatingEventRecord> done = new ArrayList<>(records.size());
+    for (RatingEventRecord record : records) {
+      RatingEvent event;
+      try {
+        event = outbox.fromRecord(record);
+      } catch (JsonProcessingException e) {
+        unreadable.increment();
+        log.error("Skipping unreadable rating event {}: {}", record.getId(), record.getPayload(), e);
+        done.add(record);
+        continue;
+      }
+      Long last = deliveredVersions.get(event.tourId());
+      if (last != null && event.version() <= last) {
+        duplicates.increment();
+        done.add(record);
+        continue;
+      }
+      try {
+        publish(event);
+      } catch (RuntimeException e) {
+        return new Delivery(done, record, e);
+      }
+      deliveredVersions.put(event.tourId(), event.version());
+      if (!attempts.isEmpty()) {
+        attempts.remove(record.getId());
+      }
+      delivered.increment();
+      lag.record(Duration.between(record.getCreatedAt(), Instant.now()));
+      done.add(record);
+    }
+    return new Delivery(done, null, null);
+  }
+
+  /**
+   * Count a failed delivery against the event, parking it once it has used
+   * up its attempts on this instance. A parked event counts as delivered, so
+   * the tour's later events go on.
+   *
+   * @return whether the event was parked
+   */
+  private boolean recordFailure(RatingEventRecord record, RuntimeException error) {
+    int attempt = attempts.merge(record.getId(), 1, Integer::sum);
+    boolean park = attempt >= maxAttempts;
+    repository.recordFailure(record.getId().tourId(), record.getId().version(), describe(error),
+        park ? Instant.now() : null);
+    failed.increment();
+    if (!park) {
+      log.warn("Delivering rating event {} failed, attempt {} of {}", record.getId(), attempt, maxAttempts, error);
+      return false;
+    }
+    attempts.remove(record.getId());
+    deliveredVersions.merge(record.getId().tourId(), record.getId().version(), Math::max);
+    parked.increment();
+    log.error("Parking rating event {} after {} failed deliveries: {}", record.getId(), attempt,
+        record.getPayload(), error);
+    return true;
+  }
+
+  private static String describe(RuntimeException error) {
+    String description = error.toString();
+    return description.length() > MAX_ERROR_LENGTH ? description.substring(0, MAX_ERROR_LENGTH) : description;
+  }
+
+  private void publish(RatingEvent event) {
+    eventPublisher.publishEvent(
+        new TourRatingStatsChanged(event.tourId(), event.version(), event.ratingCount(), event.scoreSum()));
+    switch (event) {
+      case RatingCreated c ->
+          eventPublisher.publishEvent(new CustomerRatingsChanged(c.tourId(), c.customerIds(), true));
+      case RatingDeleted d ->
+          eventPublisher.publishEvent(new CustomerRatingsChanged(d.tourId(), List.of(d.customerId()), false));
+      case RatingUpdated u -> {
+      }
+    }
+  }
+
+  /**
+   * Outcome of delivering one tour's events: those that are done with, and
+   * the event that failed, if any, with its error.
+   */
+  private record Delivery(List<RatingEventRecord> done, RatingEventRecord failed, RuntimeException error) {
+  }
+}
@@ -0,0 +1,13 @@
+package com.example.explorecalijpa.business;
+
+/**
+ * One parsed and validated row of a ratings import.
+ *
+ * @param row        position of the row in the import, starting at 1
+ * @param tourId     tour identifier
+ * @param customerId customer identifier
+ * @param score      score between TourRatingStats.MIN_SCORE and MAX_SCORE
+ * @param comment    comment, may be null
+ */
+public record RatingImportRow(long row, int tourId, int customerId, int score, String comment) {
+}
@@ -0,0 +1,53 @@
+package com.example.explorecalijpa.business;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Running totals of a ratings import. Only the first MAX_REJECTIONS rejected
+ * rows are kept with their reason, so the summary stays small whatever the
+ * size of the import.
+ */
+public class RatingImportSummary {
+  static final int MAX_REJECTIONS = 100;
+
+  /**
+   * A row left out of the import.
+   *
+   * @param row    position of the row in the import, starting at 1
+   * @param reason why it was left out
+   */
+  public record Rejection(long row, String reason) {
+  }
+
+  private long accepted;
+  private long rejected;
+  private List<Rejection> rejections = new ArrayList<>();
+
+  public void accept(long rows) {
+    accepted += rows;
+  }
+
+  public void reject(long row, String reason) {
+    reject(new Rejection(row, reason));
+  }
+
+  public void reject(Rejection rejection) {
+    rejected++;
+    if (rejections.size() < MAX_REJECTIONS) {
+      rejections.add(rejection);
+    }
+  }
+
+  public long getAccepted() {
+    return accepted;
+  }
+
+  public long getRejected() {
+    return rejected;
+  }
+
+  public List<Rejection> getRejections() {
+    return rejections;
+  }
+}
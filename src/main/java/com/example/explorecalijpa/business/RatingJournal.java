@@ -0,0 +1,250 @@
+package com.example.explorecalijpa.business;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only log of the ratings accepted by the write-behind queue, one JSON
+ * object per line, plus a checkpoint file holding the sequence of the last
+ * rating written to the database. Ratings after the checkpoint are replayed
+ * on startup; replaying one that was written already is harmless, as ratings
+ * are upserted.
+ *
+ * The log is split into segment files, each named by the first sequence it
+ * may hold. Appends go to the newest segment, a new one is started once it
+ * reaches the segment size, and a checkpoint deletes the older segments it
+ * covers, so the log stays bounded while the queue never drains.
+ *
+ * Appends are forced to disk in groups: a caller waiting in awaitDurable
+ * forces every record appended so far, so concurrent callers share one force.
+ */
+@Slf4j
+class RatingJournal implements Closeable {
+  private static final String SEGMENT_PREFIX = "ratings-";
+  private static final String SEGMENT_SUFFIX = ".journal";
+
+  private final Path directory;
+  private final Path checkpointFile;
+  private final ObjectMapper objectMapper;
+  private final long segmentBytes;
+  // first sequence of each segment to its file, the last is the one appended to
+  private final NavigableMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+  // not synchronized: forcing the file would pin a virtual thread to its carrier
+  private final ReentrantLock syncLock = new ReentrantLock();
+
+  // replaced by rotate, under the callers' append serialization and syncLock
+  private FileChannel channel;
+  private volatile long lastSequence;
+  private volatile long syncedSequence;
+
+  /**
+   * @param directory    directory of the segment and checkpoint files
+   * @param objectMapper maps ratings to and from JSON
+   * @param segmentBytes size at which rotate starts a new segment
+   */
+  RatingJournal(Path directory, ObjectMapper objectMapper, long segmentBytes) throws IOException {
+    Files.createDirectories(directory);
+    this.directory = directory;
+    this.checkpointFile = directory.resolve("ratings.checkpoint");
+    this.objectMapper = objectMapper;
+    this.segmentBytes = segmentBytes;
+  }
+
+  /**
+   * Read the ratings not yet written to the database and open a segment for
+   * appends. Call once, before the first append. A torn record at the end of
+   * a segment, left by a crash during an append, was never acknowledged and is
+   * skipped.
+   *
+   * @return the pending ratings in sequence order
+   */
+  List<PendingRating> recover() throws IOException {
+    long checkpoint = readCheckpoint();
+    long last = checkpoint;
+    List<PendingRating> pending = new ArrayList<>();
+    try (Stream<Path> files = Files.list(directory)) {
+      files.filter(RatingJournal::isSegment).forEach(file -> segments.put(firstSequence(file), file));
+    }
+    for (Path segment : segments.values()) {
+      try (BufferedReader in = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+        String line;
+        while ((line = in.readLine()) != null) {
+          if (line.isBlank()) {
+            continue;
+          }
+          PendingRating rating;
+          try {
+            rating = objectMapper.readValue(line, PendingRating.class);
+          } catch (JsonProcessingException e) {
+            log.warn("Skipping unreadable rating journal record: {}", line);
+            continue;
+          }
+          last = Math.max(last, rating.sequence());
+          if (rating.sequence() > checkpoint) {
+            pending.add(rating);
+          }
+        }
+      }
+    }
+    lastSequence = last;
+    syncedSequence = last;
+    openSegment(last + 1);
+    deleteSegmentsUpTo(checkpoint);
+    return pending;
+  }
+
+  /**
+   * Append a rating. Callers serialize appends and must call awaitDurable
+   * before acknowledging it.
+   *
+   * @return the rating with its sequence
+   */
+  PendingRating append(int tourId, int customerId, int score, String comment) throws IOException {
+    PendingRating rating = new PendingRating(lastSequence + 1, tourId, customerId, score, comment);
+    byte[] json = objectMapper.writeValueAsBytes(rating);
+    ByteBuffer record = ByteBuffer.allocate(json.length + 1).put(json).put((byte) '\n').flip();
+    while (record.hasRemaining()) {
+      channel.write(record);
+    }
+    lastSequence = rating.sequence();
+    return rating;
+  }
+
+  /**
+   * Wait until a record appended earlier is on disk.
+   *
+   * @param sequence sequence of the record
+   */
+  void awaitDurable(long sequence) throws IOException {
+    if (syncedSequence >= sequence) {
+      return;
+    }
+    syncLock.lock();
+    try {
+      if (syncedSequence < sequence) {
+        long appended = lastSequence;
+        channel.force(false);
+        syncedSequence = appended;
+      }
+    } finally {
+      syncLock.unlock();
+    }
+  }
+
+  /**
+   * Record that every rating up to a sequence is in the database, and delete
+   * the segments holding nothing after it.
+   *
+   * @param sequence sequence of the last rating written
+   */
+  void checkpoint(long sequence) throws IOException {
+    Path next = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+    try (FileChannel out = FileChannel.open(next, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      out.write(ByteBuffer.wrap(Long.toString(sequence).getBytes(StandardCharsets.US_ASCII)));
+      out.force(true);
+    }
+    Files.move(next, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    deleteSegmentsUpTo(sequence);
+  }
+
+  /**
+   * Start a new segment if the current one has reached the segment size.
+   * Callers serialize this with appends.
+   */
+  void rotate() throws IOException {
+    if (channel.size() < segmentBytes) {
+      return;
+    }
+    syncLock.lock();
+    try {
+      // what was appended is durable before the segment is closed
+      channel.force(false);
+      syncedSequence = lastSequence;
+      channel.close();
+      openSegment(lastSequence + 1);
+    } finally {
+      syncLock.unlock();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+    }
+  }
+
+  private void openSegment(long firstSequence) throws IOException {
+    Path segment = directory.resolve(SEGMENT_PREFIX + firstSequence + SEGMENT_SUFFIX);
+    channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    channel.position(channel.size());
+    if (channel.size() > 0 && !endsWithNewline()) {
+      // keep the torn record on a line of its own, ahead of the next append
+      channel.write(ByteBuffer.wrap(new byte[] { '\n' }));
+    }
+    segments.put(firstSequence, segment);
+  }
+
+  /**
+   * Delete the segments that end at or before a sequence, never the one
+   * appended to. A segment ends just before the first sequence of the next.
+   */
+  private void deleteSegmentsUpTo(long sequence) throws IOException {
+    Iterator<Map.Entry<Long, Path>> it = segments.headMap(sequence, true).entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<Long, Path> segment = it.next();
+      Long following = segments.higherKey(segment.getKey());
+      if (following == null || following - 1 > sequence) {
+        break;
+      }
+      Files.deleteIfExists(segment.getValue());
+      it.remove();
+    }
+  }
+
+  private static boolean isSegment(Path file) {
+    String name = file.getFileName().toString();
+    return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+  }
+
+  private static long firstSequence(Path segment) {
+    String name = segment.getFileName().toString();
+    return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+  }
+
+  private boolean endsWithNewline() throws IOException {
+    ByteBuffer lastByte = ByteBuffer.allocate(1);
+    channel.read(lastByte, channel.size() - 1);
+    return lastByte.get(0) == '\n';
+  }
+
+  private long readCheckpoint() throws IOException {
+    if (!Files.exists(checkpointFile)) {
+      return 0;
+    }
+    return Long.parseLong(Files.readString(checkpointFile, StandardCharsets.US_ASCII).strip());
+  }
+}
@@ -0,0 +1,51 @@
+package com.example.explorecalijpa.business;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.example.explorecalijpa.model.RatingEventRecord;
+import com.example.explorecalijpa.repo.RatingEventRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Stores every RatingEvent in the rating_event outbox table, inside the
+ * transaction of the rating write that published it, so the event is
+ * committed or rolled back together with the write.
+ */
+@Component
+public class RatingOutbox {
+  private RatingEventRecordRepository repository;
+  private ObjectMapper objectMapper;
+
+  public RatingOutbox(RatingEventRecordRepository repository, ObjectMapper objectMapper) {
+    this.repository = repository;
+    this.objectMapper = objectMapper;
+  }
+
+  @EventListener
+  public void onRatingEvent(RatingEvent event) {
+    repository.save(toRecord(event));
+  }
+
+  RatingEventRecord toRecord(RatingEvent event) {
+    try {
+      return new RatingEventRecord(event.tourId(), event.version(), typeOf(event),
+          objectMapper.writerFor(RatingEvent.class).writeValueAsString(event));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Cannot serialize " + event, e);
+    }
+  }
+
+  RatingEvent fromRecord(RatingEventRecord record) throws JsonProcessingException {
+    return objectMapper.readValue(record.getPayload(), RatingEvent.class);
+  }
+
+  private static String typeOf(RatingEvent event) {
+    return switch (event) {
+      case RatingCreated c -> RatingCreated.TYPE;
+      case RatingUpdated u -> RatingUpdated.TYPE;
+      case RatingDeleted d -> RatingDeleted.TYPE;
+    };
+  }
+}
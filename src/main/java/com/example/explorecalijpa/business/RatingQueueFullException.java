@@ -0,0 +1,12 @@
+package com.example.explorecalijpa.business;
+
+/**
+ * Thrown when the write-behind queue has no room for another rating; the
+ * client should retry later.
+ */
+public class RatingQueueFullException extends RuntimeException {
+
+  public RatingQueueFullException(int capacity) {
+    super("Rating queue is full (" + capacity + " pending), retry later");
+  }
+}
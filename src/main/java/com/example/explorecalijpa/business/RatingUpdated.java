@@ -0,0 +1,24 @@
+package com.example.explorecalijpa.business;
+
+import com.example.explorecalijpa.model.TourRatingStats;
+
+/**
+ * A customer changed the score of their rating of a tour.
+ *
+ * @param tourId      tour identifier
+ * @param version     stats version after the change
+ * @param ratingCount number of ratings after the change
+ * @param scoreSum    sum of the scores after the change
+ * @param customerId  customer identifier
+ * @param oldScore    score before the change
+ * @param newScore    score after the change
+ */
+public record RatingUpdated(int tourId, long version, long ratingCount, long scoreSum, int customerId,
+    int oldScore, int newScore) implements RatingEvent {
+  static final String TYPE = "updated";
+
+  public static RatingUpdated of(TourRatingStats stats, int customerId, int oldScore, int newScore) {
+    return new RatingUpdated(stats.getTourId(), stats.getVersion(), stats.getRatingCount(), stats.getScoreSum(),
+        customerId, oldScore, newScore);
+  }
+}
@@ -0,0 +1,334 @@
+package com.example.explorecalijpa.business;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolationException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Write-behind mode for rating submissions. A rating is journaled to disk and
+ * put on a bounded queue, then acknowledged; a single writer thread drains the
+ * queue and upserts the ratings in batched transactions, so a burst of
+ * submissions holds one database connection instead of one per request.
+ *
+ * Submissions never open a transaction. A tour found to exist is remembered
+ * for tour-check-interval before it is checked again, and the score is checked
+ * in memory; the writer checks the tour once more when it writes the rating.
+ *
+ * Only creating ratings goes through the queue. Until a queued rating is
+ * written, the other writes of the same customer's rating of the tour are
+ * refused with RatingWritePendingException, as the queued rating would land
+ * after them and undo them.
+ *
+ * The ratings left in the journal by the previous run are replayed by the
+ * writer before it takes new ones, so startup does not wait for the database.
+ * The writer retries what fails until the database takes it; if the writer
+ * thread dies anyway, submissions are refused with
+ * RatingWriterUnavailableException rather than journaled for nobody.
+ */
+@Component
+@ConditionalOnProperty(name = "explorecali.ratings.write-behind.enabled", havingValue = "true")
+@Slf4j
+public class RatingWriteBehind {
+  private static final long RETRY_DELAY_MS = 1000;
+  private static final long MAX_RETRY_DELAY_MS = 30_000;
+
+  private final TourRatingService tourRatingService;
+  private final RatingJournal journal;
+  private final BlockingQueue<PendingRating> queue;
+  private final int capacity;
+  private final int batchSize;
+  private final long tourCheckIntervalNanos;
+  // tour id to the System.nanoTime() it was last found to exist
+  private final Map<Integer, Long> knownTours = new ConcurrentHashMap<>();
+  // tour and customer of each unwritten rating to the sequence of the latest one
+  private final Map<RatingKey, Long> pending = new ConcurrentHashMap<>();
+  // not synchronized: appending to the journal would pin a virtual thread to its carrier
+  private final ReentrantLock appendLock = new ReentrantLock();
+
+  private final DistributionSummary batchSizes;
+  private final Timer flushes;
+  private final Counter rejected;
+  private final Counter dropped;
+
+  private volatile boolean running = true;
+  private volatile boolean failed;
+  private Thread writer;
+
+  public RatingWriteBehind(TourRatingService tourRatingService, ObjectMapper objectMapper, MeterRegistry registry,
+      @Value("${explorecali.ratings.write-behind.capacity:10000}") int capacity,
+      @Value("${explorecali.ratings.write-behind.batch-size:500}") int batchSize,
+      @Value("${explorecali.ratings.write-behind.journal-dir:data/rating-journal}") Path journalDir,
+      @Value("${explorecali.ratings.write-behind.journal-segment-size:16MB}") DataSize journalSegmentSize,
+      @Value("${explorecali.ratings.write-behind.tour-check-interval:PT1M}") Duration tourCheckInterval)
+      throws IOException {
+    this.tourRatingService = tourRatingService;
+    this.journal = new RatingJournal(journalDir, objectMapper, journalSegmentSize.toBytes());
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.capacity = capacity;
+    this.batchSize = batchSize;
+    this.tourCheckIntervalNanos = tourCheckInterval.toNanos();
+    this.batchSizes = registry.summary("ratings.write.behind.batch.size");
+    this.flushes = registry.timer("ratings.write.behind.flush");
+    this.rejected = registry.counter("ratings.write.behind.rejected");
+    this.dropped = registry.counter("ratings.write.behind.dropped");
+    Gauge.builder("ratings.write.behind.queue.depth", queue, BlockingQueue::size).register(registry);
+  }
+
+  /**
+   * Read the ratings left in the journal by the previous run and start the
+   * writer, which replays them before draining the queue.
+   */
+  @PostConstruct
+  void start() throws IOException {
+    List<PendingRating> recovered = journal.recover();
+    if (!recovered.isEmpty()) {
+      log.info("Replaying {} journaled ratings", recovered.size());
+    }
+    recovered.forEach(rating -> pending.put(RatingKey.of(rating), rating.sequence()));
+    writer = Thread.ofPlatform().name("rating-writer").daemon().start(() -> run(recovered));
+  }
+
+  /**
+   * Accept a rating for writing later. When this returns the rating is on
+   * disk and will reach the database even if the application crashes first.
+   *
+   * @param tourId     tour identifier
+   * @param customerId customer identifier
+   * @param score      score of the tour rating
+   * @param comment    additional comment
+   * @return the queued rating
+   * @throws NoSuchElementException       if no Tour found.
+   * @throws ConstraintViolationException if the score is out of range.
+   * @throws RatingQueueFullException     if the queue is full.
+   * @throws RatingWriterUnavailableException if the writer has died.
+   */
+  public PendingRating submit(int tourId, int customerId, Integer score, String comment)
+      throws NoSuchElementException, ConstraintViolationException, RatingQueueFullException,
+      RatingWriterUnavailableException {
+    if (failed) {
+      throw new RatingWriterUnavailableException();
+    }
+    int verifiedScore = TourRatingService.verifyScore(score);
+    long now = System.nanoTime();
+    Long checked = knownTours.get(tourId);
+    if (checked == null || now - checked > tourCheckIntervalNanos) {
+      tourRatingService.verifyTour(tourId);
+      knownTours.put(tourId, now);
+    }
+    PendingRating rating;
+    appendLock.lock();
+    try {
+      // only this lock adds to the queue, so a free slot cannot be taken before the offer
+      if (queue.remainingCapacity() == 0) {
+        rejected.increment();
+        throw new RatingQueueFullException(capacity);
+      }
+      rating = journal.append(tourId, customerId, verifiedScore, comment);
+      pending.put(RatingKey.of(rating), rating.sequence());
+      queue.add(rating);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      appendLock.unlock();
+    }
+    try {
+      journal.awaitDurable(rating.sequence());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return rating;
+  }
+
+  /**
+   * Refuse a write of a rating that a queued rating would overwrite.
+   *
+   * @param tourId     tour identifier
+   * @param customerId customer identifier
+   * @throws RatingWritePendingException if a rating of the tour by the
+   *                                     customer is not written yet.
+   */
+  public void checkNotPending(int tourId, int customerId) throws RatingWritePendingException {
+    if (pending.containsKey(new RatingKey(tourId, customerId))) {
+      throw new RatingWritePendingException(tourId, customerId);
+    }
+  }
+
+  /**
+   * Stop taking ratings off the queue once it is empty, or give up on the
+   * database after the current retry; anything unwritten stays in the journal.
+   */
+  @PreDestroy
+  void stop() throws InterruptedException, IOException {
+    running = false;
+    if (writer != null) {
+      writer.join(TimeUnit.SECONDS.toMillis(30));
+    }
+    journal.close();
+  }
+
+  private void run(List<PendingRating> recovered) {
+    try {
+      if (replay(recovered)) {
+        drain();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      if (running) {
+        failed = true;
+        log.error("Rating writer stopped, refusing ratings; unwritten ratings stay in the journal");
+      }
+    }
+  }
+
+  /**
+   * Write the ratings recovered from the journal in batches.
+   *
+   * @return false if the writer is stopping with ratings left unwritten
+   */
+  private boolean replay(List<PendingRating> recovered) throws InterruptedException {
+    int failures = 0;
+    for (int from = 0; from < recovered.size();) {
+      List<PendingRating> batch = recovered.subList(from, Math.min(from + batchSize, recovered.size()));
+      if (!write(batch)) {
+        return false;
+      }
+      from += batch.size();
+      written(batch);
+      try {
+        journal.checkpoint(batch.get(batch.size() - 1).sequence());
+        failures = 0;
+      } catch (IOException e) {
+        log.error("Rating writer could not checkpoint the journal", e);
+        backOff(++failures);
+      }
+    }
+    return true;
+  }
+
+  private void drain() throws InterruptedException {
+    List<PendingRating> batch = new ArrayList<>(batchSize);
+    int failures = 0;
+    while (running || !queue.isEmpty()) {
+      try {
+        PendingRating first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+        batchSizes.record(batch.size());
+        if (!write(batch)) {
+          return;
+        }
+        written(batch);
+        // a failed checkpoint is covered by the next one, the batch is not written twice
+        long last = batch.get(batch.size() - 1).sequence();
+        batch.clear();
+        try {
+          journal.checkpoint(last);
+          rotateJournal();
+          failures = 0;
+        } catch (IOException e) {
+          log.error("Rating writer could not checkpoint the journal", e);
+          backOff(++failures);
+        }
+      } catch (RuntimeException e) {
+        log.error("Rating writer failed to take ratings off the queue, retrying", e);
+        backOff(++failures);
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private void backOff(int failures) throws InterruptedException {
+    Thread.sleep(Math.min(RETRY_DELAY_MS << Math.min(failures - 1, 5), MAX_RETRY_DELAY_MS));
+  }
+
+  /**
+   * Write a batch in one transaction. If that fails the ratings are written
+   * one by one, dropping those that can never be written and retrying the
+   * rest until the database takes them.
+   *
+   * @return false if the writer is stopping with ratings left unwritten
+   */
+  private boolean write(List<PendingRating> batch) throws InterruptedException {
+    try {
+      flushes.record(() -> tourRatingService.upsertAll(batch));
+      return true;
+    } catch (RuntimeException e) {
+      log.warn("Batch of {} ratings failed, writing them one at a time", batch.size(), e);
+    }
+    for (PendingRating rating : batch) {
+      while (true) {
+        try {
+          flushes.record(() -> tourRatingService.upsertAll(List.of(rating)));
+          break;
+        } catch (NoSuchElementException | ConstraintViolationException | DataIntegrityViolationException e) {
+          knownTours.remove(rating.tourId());
+          dropped.increment();
+          log.warn("Dropped queued rating {}", rating, e);
+          break;
+        } catch (RuntimeException e) {
+          if (!running) {
+            return false;
+          }
+          log.warn("Writing queued rating {} failed, retrying", rating.sequence(), e);
+          Thread.sleep(RETRY_DELAY_MS);
+        }
+      }
+    }
+    return true;
+  }
+
+  private void written(List<PendingRating> batch) {
+    for (PendingRating rating : batch) {
+      // a later rating of the same customer and tour stays pending
+      pending.remove(RatingKey.of(rating), rating.sequence());
+    }
+  }
+
+  private void rotateJournal() throws IOException {
+    appendLock.lock();
+    try {
+      journal.rotate();
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  private record RatingKey(int tourId, int customerId) {
+    static RatingKey of(PendingRating rating) {
+      return new RatingKey(rating.tourId(), rating.customerId());
+    }
+  }
+}
@@ -0,0 +1,13 @@
+package com.example.explorecalijpa.business;
+
+/**
+ * Thrown when a rating is changed or deleted while a queued write-behind rating
+ * of the same tour by the same customer is not written yet, and would undo the
+ * change when it lands; the client should retry later.
+ */
+public class RatingWritePendingException extends RuntimeException {
+
+  public RatingWritePendingException(int tourId, int customerId) {
+    super("Rating of tour " + tourId + " by customer " + customerId + " is still being written, retry later");
+  }
+}
@@ -0,0 +1,12 @@
+package com.example.explorecalijpa.business;
+
+/**
+ * Thrown when the write-behind writer has died, so a queued rating would never
+ * reach the database; the client should retry later.
+ */
+public class RatingWriterUnavailableException extends RuntimeException {
+
+  public RatingWriterUnavailableException() {
+    super("Rating writer is not running, retry later");
+  }
+}
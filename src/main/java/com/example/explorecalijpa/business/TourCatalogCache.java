@@ -0,0 +1,36 @@
+package com.example.explorecalijpa.business;
+
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.explorecalijpa.model.TourPackage;
+import com.example.explorecalijpa.repo.TourRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Evicts the second-level cache entries of the tour catalog after a change
+ * commits. Hibernate already keeps the cache consistent with writes made
+ * through JPA; evicting explicitly also drops results cached while a
+ * concurrent transaction was changing the same rows.
+ */
+@Component
+@Slf4j
+public class TourCatalogCache {
+  private SessionFactory sessionFactory;
+
+  public TourCatalogCache(EntityManagerFactory entityManagerFactory) {
+    this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onTourCatalogChanged(TourCatalogChanged event) {
+    if (event.tourPackageCode() != null) {
+      log.debug("Evict tour package {} from the second-level cache", event.tourPackageCode());
+      sessionFactory.getCache().evictEntityData(TourPackage.class, event.tourPackageCode());
+    }
+    sessionFactory.getCache().evictQueryRegion(TourRepository.QUERY_CACHE_REGION);
+  }
+}
@@ -0,0 +1,24 @@
+package com.example.explorecalijpa.business;
+
+/**
+ * Published when tours or tour packages are created, changed or deleted, so
+ * the cached catalog can be evicted after commit.
+ *
+ * @param tourPackageCode the changed package, null when only tours changed
+ * @param tourId          the changed tour, null when a package changed or
+ *                        the tours that changed are not known
+ */
+public record TourCatalogChanged(String tourPackageCode, Integer tourId) {
+
+  public static TourCatalogChanged tours() {
+    return new TourCatalogChanged(null, null);
+  }
+
+  public static TourCatalogChanged tour(int tourId) {
+    return new TourCatalogChanged(null, tourId);
+  }
+
+  public static TourCatalogChanged tourPackage(String code) {
+    return new TourCatalogChanged(code, null);
+  }
+}
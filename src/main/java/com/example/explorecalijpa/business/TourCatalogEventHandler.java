@@ -0,0 +1,39 @@
+package com.example.explorecalijpa.business;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.rest.core.annotation.HandleAfterCreate;
+import org.springframework.data.rest.core.annotation.HandleAfterDelete;
+import org.springframework.data.rest.core.annotation.HandleAfterSave;
+import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
+import org.springframework.stereotype.Component;
+
+import com.example.explorecalijpa.model.Tour;
+import com.example.explorecalijpa.model.TourPackage;
+
+/**
+ * Publishes TourCatalogChanged for tours and packages written through the
+ * Spring Data REST /tours and /packages endpoints.
+ */
+@Component
+@RepositoryEventHandler
+public class TourCatalogEventHandler {
+  private ApplicationEventPublisher eventPublisher;
+
+  public TourCatalogEventHandler(ApplicationEventPublisher eventPublisher) {
+    this.eventPublisher = eventPublisher;
+  }
+
+  @HandleAfterCreate
+  @HandleAfterSave
+  @HandleAfterDelete
+  public void tourChanged(Tour tour) {
+    eventPublisher.publishEvent(TourCatalogChanged.tour(tour.getId()));
+  }
+
+  @HandleAfterCreate
+  @HandleAfterSave
+  @HandleAfterDelete
+  public void tourPackageChanged(TourPackage tourPackage) {
+    eventPublisher.publishEvent(TourCatalogChanged.tourPackage(tourPackage.getCode()));
+  }
+}
@@ -2,6 +2,7 @@ package com.example.explorecalijpa.business;
 
 import java.util.List;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import com.example.explorecalijpa.model.TourPackage;
@@ -15,15 +16,19 @@ import lombok.extern.slf4j.Slf4j;
 @Transactional
 public class TourPackageService {
   private TourPackageRepository tourPackageRepository;
+  private ApplicationEventPublisher eventPublisher;
 
-  public TourPackageService(TourPackageRepository tourPackageRepository) {
+  public TourPackageService(TourPackageRepository tourPackageRepository, ApplicationEventPublisher eventPublisher) {
     this.tourPackageRepository = tourPackageRepository;
+    this.eventPublisher = eventPublisher;
   }
 
   public TourPackage createTourPackage(String code, String name) {
     log.info("Create tour package {}:{}",code, name);
-    return tourPackageRepository.findById(code)
+    TourPackage tourPackage = tourPackageRepository.findById(code)
         .orElse(tourPackageRepository.save(new TourPackage(code, name)));
+    eventPublisher.publishEvent(TourCatalogChanged.tourPackage(code));
+    return tourPackage;
   }
 
   public List<TourPackage> lookupAll() {
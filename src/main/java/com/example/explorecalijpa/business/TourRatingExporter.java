@@ -0,0 +1,63 @@
+package com.example.explorecalijpa.business;
+
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.explorecalijpa.model.TourRating;
+import com.example.explorecalijpa.repo.TourRatingRepository;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Walks every tour rating in one read-only transaction, off a JDBC cursor,
+ * clearing the persistence context as it goes so memory use does not grow
+ * with the size of tour_rating.
+ */
+@Component
+@Slf4j
+public class TourRatingExporter {
+  static final int CLEAR_INTERVAL = 1000;
+
+  private TourRatingRepository tourRatingRepository;
+  private EntityManager entityManager;
+  private TransactionTemplate readOnlyTx;
+
+  public TourRatingExporter(TourRatingRepository tourRatingRepository, EntityManager entityManager,
+      PlatformTransactionManager txManager) {
+    this.tourRatingRepository = tourRatingRepository;
+    this.entityManager = entityManager;
+    this.readOnlyTx = new TransactionTemplate(txManager);
+    this.readOnlyTx.setReadOnly(true);
+  }
+
+  /**
+   * Pass every tour rating, in id order, to an action. A rating is detached
+   * soon after the action returns, so the action must not keep it or follow
+   * its tour beyond the tour id.
+   *
+   * @param action called once per rating
+   * @return the number of ratings exported
+   */
+  public long exportAll(Consumer<TourRating> action) {
+    log.info("Export all tour ratings");
+    Long exported = readOnlyTx.execute(status -> {
+      long count = 0;
+      try (Stream<TourRating> ratings = tourRatingRepository.streamAll()) {
+        for (TourRating rating : (Iterable<TourRating>) ratings::iterator) {
+          action.accept(rating);
+          if (++count % CLEAR_INTERVAL == 0) {
+            entityManager.clear();
+          }
+        }
+      }
+      return count;
+    });
+    log.info("Exported {} tour ratings", exported);
+    return exported;
+  }
+}
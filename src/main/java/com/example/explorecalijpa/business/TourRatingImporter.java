@@ -0,0 +1,66 @@
+package com.example.explorecalijpa.business;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Feeds the rows of a ratings import to TourRatingService in fixed size
+ * chunks, each committed in its own transaction, so a large import never
+ * holds more than one chunk in memory or in one transaction.
+ */
+@Component
+@Slf4j
+public class TourRatingImporter {
+  private TourRatingService tourRatingService;
+  private int chunkSize;
+
+  public TourRatingImporter(TourRatingService tourRatingService,
+      @Value("${explorecali.ratings.import.chunk-size:1000}") int chunkSize) {
+    this.tourRatingService = tourRatingService;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Import rows as they come from an iterator. A chunk that fails to commit
+   * is rejected as a whole and the import carries on with the next one.
+   *
+   * @param rows    validated rows, read lazily
+   * @param summary totals to add the outcome of every row to
+   * @return the summary
+   */
+  public RatingImportSummary importRatings(Iterator<RatingImportRow> rows, RatingImportSummary summary) {
+    long start = System.nanoTime();
+    List<RatingImportRow> chunk = new ArrayList<>(chunkSize);
+    while (rows.hasNext()) {
+      chunk.add(rows.next());
+      if (chunk.size() == chunkSize) {
+        importChunk(chunk, summary);
+        chunk.clear();
+      }
+    }
+    if (!chunk.isEmpty()) {
+      importChunk(chunk, summary);
+    }
+    log.info("Imported {} ratings, rejected {}, in {} ms", summary.getAccepted(), summary.getRejected(),
+        (System.nanoTime() - start) / 1_000_000);
+    return summary;
+  }
+
+  private void importChunk(List<RatingImportRow> chunk, RatingImportSummary summary) {
+    try {
+      List<RatingImportSummary.Rejection> rejections = tourRatingService.importChunk(chunk);
+      summary.accept(chunk.size() - rejections.size());
+      rejections.forEach(summary::reject);
+    } catch (RuntimeException e) {
+      log.warn("Rejected a chunk of {} ratings starting at row {}", chunk.size(), chunk.get(0).row(), e);
+      String reason = "Chunk failed: " + e.getMessage();
+      chunk.forEach(r -> summary.reject(r.row(), reason));
+    }
+  }
+}
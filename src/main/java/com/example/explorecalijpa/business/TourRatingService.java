@@ -1,17 +1,32 @@
 package com.example.explorecalijpa.business;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
-import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import com.example.explorecalijpa.model.Tour;
 import com.example.explorecalijpa.model.TourRating;
+import com.example.explorecalijpa.model.TourRatingStats;
+import com.example.explorecalijpa.repo.LockedTourRatingStats;
 import com.example.explorecalijpa.repo.TourRatingRepository;
+import com.example.explorecalijpa.repo.TourRatingStatsRepository;
+import com.example.explorecalijpa.repo.TourRatingView;
 import com.example.explorecalijpa.repo.TourRepository;
 
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
@@ -25,18 +40,36 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 @Transactional
 public class TourRatingService {
+  private static final int LOOKUP_CHUNK_SIZE = 1000;
+
   private TourRatingRepository tourRatingRepository;
   private TourRepository tourRepository;
+  private TourRatingStatsRepository tourRatingStatsRepository;
+  private ApplicationEventPublisher eventPublisher;
+  private EntityManager entityManager;
+  private int batchSize;
 
   /**
    * Construct TourRatingService
    *
-   * @param tourRatingRepository Tour Rating Repository
-   * @param tourRepository       Tour Repository
+   * @param tourRatingRepository      Tour Rating Repository
+   * @param tourRepository            Tour Repository
+   * @param tourRatingStatsRepository Tour Rating Stats Repository
+   * @param eventPublisher            publisher of the RatingEvents stored in
+   *                                  the outbox by RatingOutbox
+   * @param entityManager             flushes bulk inserts batch by batch
+   * @param batchSize                 JDBC batch size of inserts
    */
-  public TourRatingService(TourRatingRepository tourRatingRepository, TourRepository tourRepository) {
+  public TourRatingService(TourRatingRepository tourRatingRepository, TourRepository tourRepository,
+      TourRatingStatsRepository tourRatingStatsRepository, ApplicationEventPublisher eventPublisher,
+      EntityManager entityManager,
+      @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
     this.tourRatingRepository = tourRatingRepository;
     this.tourRepository = tourRepository;
+    this.tourRatingStatsRepository = tourRatingStatsRepository;
+    this.eventPublisher = eventPublisher;
+    this.entityManager = entityManager;
+    this.batchSize = batchSize;
   }
 
   /**
@@ -51,8 +84,13 @@ public class TourRatingService {
    */
   public TourRating createNew(int tourId, Integer customerId, Integer score, String comment) throws NoSuchElementException {
     log.info("Create a tour rating for tour {} and customer {}", tourId, String.valueOf(customerId));
-    return tourRatingRepository.save(new TourRating(verifyTour(tourId), customerId,
-        score, comment));
+    verifyScore(score);
+    Tour tour = verifyTour(tourId);
+    TourRatingStats stats = lockStats(tourId);
+    TourRating rating = tourRatingRepository.save(new TourRating(tour, customerId, score, comment));
+    stats.add(score);
+    eventPublisher.publishEvent(RatingCreated.of(stats, List.of(customerId)));
+    return rating;
   }
 
   /**
@@ -67,7 +105,8 @@ public class TourRatingService {
   }
 
   /**
-   * Get All Ratings.
+   * Get All Ratings. Every rating is loaded at once; use TourRatingExporter to
+   * walk the whole table.
    *
    * @return List of TourRatings
    */
@@ -77,16 +116,92 @@ public class TourRatingService {
   }
 
   /**
-   * Get a page of tour ratings for a tour.
+   * Get a page of the tour ratings for a tour, in id order.
    *
-   * @param tourId   tour identifier
-   * @param pageable page parameters to determine which elements to fetch
-   * @return Page of TourRatings
+   * Ratings reference their tour through a foreign key, so the tour only needs
+   * to be checked when its first page is empty.
+   *
+   * @param tourId  tour identifier
+   * @param afterId id of the last rating of the previous page, null for the
+   *                first page
+   * @param limit   maximum number of ratings
+   * @return List of rating views
    * @throws NoSuchElementException if no Tour found.
    */
-  public List<TourRating> lookupRatings(int tourId) throws NoSuchElementException {
-    log.info("Lookup ratings for tour {}", tourId);
-    return tourRatingRepository.findByTourId(verifyTour(tourId).getId());
+  public List<TourRatingView> lookupRatings(int tourId, Integer afterId, int limit) throws NoSuchElementException {
+    log.info("Lookup ratings for tour {} after {}", tourId, afterId);
+    List<TourRatingView> ratings = tourRatingRepository.findViewsByTourId(tourId,
+        afterId == null ? Integer.MIN_VALUE : afterId, Limit.of(limit));
+    if (ratings.isEmpty() && afterId == null && !tourRepository.existsById(tourId)) {
+      throw new NoSuchElementException("Tour does not exist " + tourId);
+    }
+    return ratings;
+  }
+
+  /**
+   * Pass every tour rating of a tour, in id order, to an action as it is read
+   * off a JDBC cursor, so memory use does not grow with the number of ratings.
+   * Callers check the tour exists first with verifyTour.
+   *
+   * @param tourId tour identifier
+   * @param action called once per rating
+   */
+  public void forEachRating(int tourId, Consumer<TourRatingView> action) {
+    log.info("Stream ratings for tour {}", tourId);
+    try (Stream<TourRatingView> ratings = tourRatingRepository.streamViewsByTourId(tourId)) {
+      ratings.forEach(action);
+    }
+  }
+
+  /**
+   * Create or replace the rating of a tour by a customer.
+   *
+   * The stats are locked and the customer's current score read in one
+   * statement, then the rating is written with one native upsert, so no
+   * TourRating entity is loaded or merged. The tour is only checked when it
+   * has no stats yet; they are then created as in lockStats.
+   *
+   * @param tourId     tour identifier
+   * @param customerId customer identifier
+   * @param score      score of the tour rating
+   * @param comment    additional comment
+   * @return true if the rating was created, false if it replaced one
+   * @throws NoSuchElementException if no Tour found.
+   */
+  public boolean upsert(int tourId, Integer customerId, Integer score, String comment) throws NoSuchElementException {
+    log.info("Upsert rating for tour {} customer {}", tourId, customerId);
+    verifyScore(score);
+    Optional<LockedTourRatingStats> locked = tourRatingStatsRepository.findForUpdateWithScore(tourId, customerId);
+    if (locked.isEmpty()) {
+      verifyTour(tourId);
+      tourRatingStatsRepository.insertIfAbsent(tourId);
+      locked = tourRatingStatsRepository.findForUpdateWithScore(tourId, customerId);
+    }
+    TourRatingStats stats = locked.orElseThrow().getStats();
+    Integer oldScore = locked.get().getScore();
+    tourRatingRepository.upsert(tourId, customerId, score, comment);
+    if (oldScore == null) {
+      stats.add(score);
+      eventPublisher.publishEvent(RatingCreated.of(stats, List.of(customerId)));
+    } else {
+      stats.replace(oldScore, score);
+      eventPublisher.publishEvent(RatingUpdated.of(stats, customerId, oldScore, score));
+    }
+    return oldScore == null;
+  }
+
+  /**
+   * Create or replace many ratings in one transaction, in order, each as
+   * upsert would.
+   *
+   * @param ratings ratings taken from the write-behind queue
+   * @throws NoSuchElementException if a Tour is not found.
+   */
+  public void upsertAll(List<PendingRating> ratings) throws NoSuchElementException {
+    log.info("Upsert {} queued ratings", ratings.size());
+    for (PendingRating r : ratings) {
+      upsert(r.tourId(), r.customerId(), r.score(), r.comment());
+    }
   }
 
   /**
@@ -101,9 +216,14 @@ public class TourRatingService {
   public TourRating update(int tourId, Integer customerId, Integer score, String comment)
       throws NoSuchElementException {
     log.info("Update tour {} customer {}", tourId, customerId);
+    verifyScore(score);
+    TourRatingStats stats = lockStats(tourId);
     TourRating rating = verifyTourRating(tourId, customerId);
+    int oldScore = rating.getScore();
+    stats.replace(oldScore, score);
     rating.setScore(score);
     rating.setComment(comment);
+    eventPublisher.publishEvent(RatingUpdated.of(stats, customerId, oldScore, score));
     return tourRatingRepository.save(rating);
   }
 
@@ -120,8 +240,15 @@ public class TourRatingService {
   public TourRating updateSome(int tourId, Integer customerId, Optional<Integer> score, Optional<String> comment)
       throws NoSuchElementException {
     log.info("Update some of tour {} customer {}", tourId, customerId);
+    score.ifPresent(TourRatingService::verifyScore);
+    TourRatingStats stats = lockStats(tourId);
     TourRating rating = verifyTourRating(tourId, customerId);
-    score.ifPresent(s ->rating.setScore(s));
+    score.ifPresent(s -> {
+      int oldScore = rating.getScore();
+      stats.replace(oldScore, s);
+      rating.setScore(s);
+      eventPublisher.publishEvent(RatingUpdated.of(stats, customerId, oldScore, s));
+    });
     comment.ifPresent(c -> rating.setComment(c));
     return tourRatingRepository.save(rating);
   }
@@ -135,39 +262,126 @@ public class TourRatingService {
    */
   public void delete(int tourId, Integer customerId) throws NoSuchElementException {
     log.info("Delete rating for tour {} customer {}", tourId, customerId);
+    TourRatingStats stats = lockStats(tourId);
     TourRating rating = verifyTourRating(tourId, customerId);
     tourRatingRepository.delete(rating);
+    stats.remove(rating.getScore());
+    eventPublisher.publishEvent(RatingDeleted.of(stats, customerId, rating.getScore()));
   }
 
   /**
-   * Get the average score of a tour.
+   * Get the average score of a tour from its running stats.
    *
    * @param tourId tour identifier
    * @return average score as a Double.
    * @throws NoSuchElementException
    */
   public Double getAverageScore(int tourId) throws NoSuchElementException {
-    List<TourRating> ratings = tourRatingRepository.findByTourId(verifyTour(tourId).getId());
-    OptionalDouble average = ratings.stream().mapToInt((rating) -> rating.getScore()).average();
-    return average.isPresent() ? average.getAsDouble() : null;
+    return tourRatingStatsRepository.findById(verifyTour(tourId).getId())
+        .map(TourRatingStats::getAverageScore)
+        .orElse(null);
   }
 
   /**
-   * Service for many customers to give the same score for a service
+   * Service for many customers to give the same score for a service.
+   *
+   * Customers that already rated the tour are found with one IN query per
+   * chunk and skipped, the rest are inserted in JDBC batches. Each batch is
+   * flushed and detached once sent, so the persistence context does not grow
+   * with the number of customers.
    *
    * @param tourId
    * @param score
    * @param customers
+   * @return which customers were rated and which were duplicates
    */
-  public void rateMany(int tourId,  int score, List<Integer> customers) {
+  public RateManyResult rateMany(int tourId, int score, List<Integer> customers) {
+    log.info("Rate tour {} with {} for {} customers", tourId, score, customers.size());
+    verifyScore(score);
     Tour tour = verifyTour(tourId);
+    TourRatingStats stats = lockStats(tourId);
+
+    Set<Integer> seen = new HashSet<>();
+    for (int from = 0; from < customers.size(); from += LOOKUP_CHUNK_SIZE) {
+      List<Integer> chunk = customers.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, customers.size()));
+      seen.addAll(tourRatingRepository.findRatedCustomerIds(tourId, chunk));
+    }
+    List<Integer> created = new ArrayList<>();
+    List<Integer> duplicates = new ArrayList<>();
+    List<TourRating> ratings = new ArrayList<>();
     for (Integer c : customers) {
-      if (tourRatingRepository.findByTourIdAndCustomerId(tourId, c).isPresent()) {
-        throw new ConstraintViolationException("Unable to create duplicate ratings", null);
+      if (seen.add(c)) {
+        created.add(c);
+        ratings.add(new TourRating(tour, c, score));
+      } else {
+        duplicates.add(c);
       }
-      tourRatingRepository.save(new TourRating(tour, c, score));
     }
+    for (int from = 0; from < ratings.size(); from += batchSize) {
+      List<TourRating> batch = ratings.subList(from, Math.min(from + batchSize, ratings.size()));
+      tourRatingRepository.saveAll(batch);
+      entityManager.flush();
+      // only the ratings: the tour and the locked stats stay managed
+      batch.forEach(entityManager::detach);
+    }
+    stats.add(score, created.size());
+    eventPublisher.publishEvent(RatingCreated.of(stats, created));
+    return new RateManyResult(created, duplicates);
   }
+
+  /**
+   * Create the ratings of one chunk of an import, for any number of tours, in
+   * one transaction.
+   *
+   * Rows for an unknown tour, for a customer who already rated the tour, or
+   * repeating an earlier row of the chunk are rejected; the rest are inserted
+   * as one JDBC batch. Stats are locked in tour id order so concurrent imports
+   * cannot deadlock on them.
+   *
+   * @param rows validated rows
+   * @return the rejected rows
+   */
+  public List<RatingImportSummary.Rejection> importChunk(List<RatingImportRow> rows) {
+    log.info("Import a chunk of {} ratings", rows.size());
+    Map<Integer, List<RatingImportRow>> byTour = new TreeMap<>();
+    for (RatingImportRow row : rows) {
+      byTour.computeIfAbsent(row.tourId(), t -> new ArrayList<>()).add(row);
+    }
+    Map<Integer, Tour> tours = new HashMap<>();
+    tourRepository.findAllById(byTour.keySet()).forEach(t -> tours.put(t.getId(), t));
+
+    List<RatingImportSummary.Rejection> rejections = new ArrayList<>();
+    List<TourRating> ratings = new ArrayList<>();
+    for (Map.Entry<Integer, List<RatingImportRow>> entry : byTour.entrySet()) {
+      int tourId = entry.getKey();
+      List<RatingImportRow> tourRows = entry.getValue();
+      Tour tour = tours.get(tourId);
+      if (tour == null) {
+        tourRows.forEach(r -> rejections.add(new RatingImportSummary.Rejection(r.row(), "Tour does not exist " + tourId)));
+        continue;
+      }
+      TourRatingStats stats = lockStats(tourId);
+      Set<Integer> seen = new HashSet<>(tourRatingRepository.findRatedCustomerIds(tourId,
+          tourRows.stream().map(RatingImportRow::customerId).toList()));
+      List<Integer> created = new ArrayList<>();
+      for (RatingImportRow row : tourRows) {
+        if (seen.add(row.customerId())) {
+          created.add(row.customerId());
+          ratings.add(new TourRating(tour, row.customerId(), verifyScore(row.score()), row.comment()));
+          stats.add(row.score());
+        } else {
+          rejections.add(new RatingImportSummary.Rejection(row.row(),
+              "Customer " + row.customerId() + " already rated tour " + tourId));
+        }
+      }
+      if (!created.isEmpty()) {
+        eventPublisher.publishEvent(RatingCreated.of(stats, created));
+      }
+    }
+    tourRatingRepository.saveAll(ratings);
+    return rejections;
+  }
+
   /**
    * Verify and return the Tour given a tourId.
    *
@@ -175,11 +389,44 @@ public class TourRatingService {
    * @return the found Tour
    * @throws NoSuchElementException if no Tour found.
    */
-  private Tour verifyTour(int tourId) throws NoSuchElementException {
+  public Tour verifyTour(int tourId) throws NoSuchElementException {
     return tourRepository.findById(tourId)
         .orElseThrow(() -> new NoSuchElementException("Tour does not exist " + tourId));
   }
 
+  /**
+   * Lock the stats of a tour for the rest of the transaction, creating them
+   * for the tour's first rating. They are created with an insert-if-absent and
+   * then locked, so concurrent first ratings of a tour wait on one row instead
+   * of colliding on its primary key.
+   *
+   * @param tourId
+   * @return the locked TourRatingStats
+   */
+  private TourRatingStats lockStats(int tourId) {
+    Optional<TourRatingStats> stats = tourRatingStatsRepository.findForUpdate(tourId);
+    if (stats.isPresent()) {
+      return stats.get();
+    }
+    tourRatingStatsRepository.insertIfAbsent(tourId);
+    return tourRatingStatsRepository.findForUpdate(tourId).orElseThrow();
+  }
+
+  /**
+   * Verify a score fits the range kept in the stats histogram.
+   *
+   * @param score
+   * @return the score
+   * @throws ConstraintViolationException if the score is out of range.
+   */
+  static int verifyScore(Integer score) throws ConstraintViolationException {
+    if (score == null || score < TourRatingStats.MIN_SCORE || score > TourRatingStats.MAX_SCORE) {
+      throw new ConstraintViolationException("Score must be between " + TourRatingStats.MIN_SCORE
+          + " and " + TourRatingStats.MAX_SCORE, null);
+    }
+    return score;
+  }
+
   /**
    * Verify and return the TourRating for a particular tourId and Customer
    * 
@@ -0,0 +1,20 @@
+package com.example.explorecalijpa.business;
+
+import com.example.explorecalijpa.model.TourRatingStats;
+
+/**
+ * Published by RatingEventDispatcher for every committed RatingEvent, on the
+ * delivery lane of the tour, so listeners see a tour's changes in order.
+ *
+ * @param tourId      tour identifier
+ * @param version     stats version of the tour after the change
+ * @param ratingCount number of ratings after the change
+ * @param scoreSum    sum of the scores after the change
+ */
+public record TourRatingStatsChanged(int tourId, long version, long ratingCount, long scoreSum) {
+
+  public static TourRatingStatsChanged of(TourRatingStats stats) {
+    return new TourRatingStatsChanged(stats.getTourId(), stats.getVersion(), stats.getRatingCount(),
+        stats.getScoreSum());
+  }
+}
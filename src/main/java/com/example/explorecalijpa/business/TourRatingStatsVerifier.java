@@ -0,0 +1,86 @@
+package com.example.explorecalijpa.business;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.explorecalijpa.model.TourRatingStats;
+import com.example.explorecalijpa.repo.ScoreCount;
+import com.example.explorecalijpa.repo.TourRatingRepository;
+import com.example.explorecalijpa.repo.TourRatingStatsRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Periodically recompute the rating stats from tour_rating and report any
+ * tour whose incrementally maintained stats have drifted.
+ */
+@Component
+@Slf4j
+public class TourRatingStatsVerifier {
+  private TourRatingRepository tourRatingRepository;
+  private TourRatingStatsRepository tourRatingStatsRepository;
+
+  public TourRatingStatsVerifier(TourRatingRepository tourRatingRepository,
+      TourRatingStatsRepository tourRatingStatsRepository) {
+    this.tourRatingRepository = tourRatingRepository;
+    this.tourRatingStatsRepository = tourRatingStatsRepository;
+  }
+
+  /**
+   * Compare the stored stats with a full aggregate of tour_rating.
+   *
+   * @return number of tours whose stats drifted
+   */
+  @Scheduled(fixedDelayString = "${explorecali.stats.verify-interval:PT15M}",
+      initialDelayString = "${explorecali.stats.verify-interval:PT15M}")
+  @Transactional(readOnly = true)
+  public int verify() {
+    Map<Integer, TourRatingStats> expected = new HashMap<>();
+    int drifted = 0;
+    for (ScoreCount sc : tourRatingRepository.countScoresByTour()) {
+      if (sc.getScore() == null || sc.getScore() < TourRatingStats.MIN_SCORE
+          || sc.getScore() > TourRatingStats.MAX_SCORE) {
+        log.warn("Tour {} has {} ratings with unsupported score {}", sc.getTourId(), sc.getRatingCount(),
+            sc.getScore());
+        drifted++;
+        continue;
+      }
+      expected.computeIfAbsent(sc.getTourId(), TourRatingStats::new)
+          .add(sc.getScore(), sc.getRatingCount());
+    }
+
+    for (TourRatingStats actual : tourRatingStatsRepository.findAll()) {
+      TourRatingStats want = expected.remove(actual.getTourId());
+      if (want == null) {
+        want = new TourRatingStats(actual.getTourId());
+      }
+      if (!sameHistogram(want, actual)) {
+        log.warn("Rating stats drift for tour {}: stored {} but tour_rating has {}",
+            actual.getTourId(), actual, want);
+        drifted++;
+      }
+    }
+    for (TourRatingStats missing : expected.values()) {
+      log.warn("Rating stats missing for tour {}: tour_rating has {}", missing.getTourId(), missing);
+      drifted++;
+    }
+    log.info("Verified rating stats, {} tours drifted", drifted);
+    return drifted;
+  }
+
+  private boolean sameHistogram(TourRatingStats a, TourRatingStats b) {
+    if (a.getRatingCount() != b.getRatingCount() || a.getScoreSum() != b.getScoreSum()) {
+      return false;
+    }
+    for (int s = TourRatingStats.MIN_SCORE; s <= TourRatingStats.MAX_SCORE; s++) {
+      if (a.getBucket(s) != b.getBucket(s)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -3,6 +3,9 @@ package com.example.explorecalijpa.business;
 import java.util.Collections;
 import java.util.List;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import com.example.explorecalijpa.model.Difficulty;
@@ -21,10 +24,13 @@ import lombok.extern.slf4j.Slf4j;
 public class TourService {
   private TourPackageRepository tourPackageRepository;
   private TourRepository tourRepository;
+  private ApplicationEventPublisher eventPublisher;
 
-  public TourService(TourPackageRepository tourPackageRepository, TourRepository tourRepository) {
+  public TourService(TourPackageRepository tourPackageRepository, TourRepository tourRepository,
+      ApplicationEventPublisher eventPublisher) {
     this.tourPackageRepository = tourPackageRepository;
     this.tourRepository = tourRepository;
+    this.eventPublisher = eventPublisher;
   }
 
   public Tour createTour(String tourPackageName, String title,
@@ -33,8 +39,10 @@ public class TourService {
     log.info("Create tour {} for package {}", title, tourPackageName);
     TourPackage tourPackage = tourPackageRepository.findByName(tourPackageName)
         .orElseThrow(() -> new RuntimeException("Tour Package not found for id:" + tourPackageName));
-    return tourRepository.save(new Tour(title, description, blurb,
+    Tour tour = tourRepository.save(new Tour(title, description, blurb,
         price, duration, bullets, keywords, tourPackage, difficulty, region));
+    eventPublisher.publishEvent(TourCatalogChanged.tour(tour.getId()));
+    return tour;
   }
 
   public List<Tour> lookupByDifficulty(Difficulty difficulty) {
@@ -47,6 +55,19 @@ public class TourService {
     return tourRepository.findByTourPackageCode(tourPackageCode);
   }
 
+  /**
+   * Lookup the tours in a price range, cheapest first.
+   *
+   * @param minPrice lowest price, inclusive
+   * @param maxPrice highest price, inclusive
+   * @param pageable page of the tours
+   * @return the page of tours
+   */
+  public Page<Tour> lookupByPrice(int minPrice, int maxPrice, Pageable pageable) {
+    log.info("Lookup tours priced {} to {}", minPrice, maxPrice);
+    return tourRepository.findByPriceBetweenOrderByPriceAscIdAsc(minPrice, maxPrice, pageable);
+  }
+
   public long total() {
     log.info("Get total tours");
     return tourRepository.count();
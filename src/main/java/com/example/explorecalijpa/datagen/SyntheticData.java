@@ -0,0 +1,310 @@
+package com.example.explorecalijpa.datagen;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.explorecalijpa.model.Difficulty;
+import com.example.explorecalijpa.model.Region;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fills the database with synthetic tour packages, tours and ratings for
+ * benchmarks and capacity tests, on H2 or MySQL.
+ *
+ * Tour popularity follows a Zipf distribution, so a few tours collect most of
+ * the ratings, and so does the number of tours each customer rates. Scores
+ * scatter around a quality drawn for each tour. Every existing tour takes
+ * part along with the generated ones.
+ *
+ * Rows are written with plain JDBC batches, one transaction per batch,
+ * bypassing JPA. On MySQL, rewriteBatchedStatements=true in the JDBC URL turns
+ * each batch into multi-row inserts, which is what makes ten million ratings
+ * load in minutes. The rating stats are rebuilt from tour_rating at the end
+ * and the id tables moved past the generated ids.
+ */
+@Slf4j
+public class SyntheticData {
+  private static final int BATCH_SIZE = 10_000;
+  private static final String[] COMMENTS = { "Great", "Loved it", "Would go again", "Too long",
+      "Guide was excellent", "Not worth the price", "Crowded", "Hidden gem" };
+
+  private final JdbcTemplate jdbc;
+  private final TransactionTemplate tx;
+
+  /**
+   * How much to generate.
+   *
+   * @param packages              new tour packages
+   * @param tours                 new tours, spread over all packages
+   * @param ratings               new ratings
+   * @param maxRatingsPerCustomer most tours one customer rates
+   * @param tourSkew              Zipf exponent of tour popularity
+   * @param customerSkew          Zipf exponent of the ratings per customer
+   * @param firstCustomer         lowest id of a generated customer; they start
+   *                              above any customer already in tour_rating
+   * @param seed                  random seed, the same seed generates the
+   *                              same data
+   */
+  public record Settings(int packages, int tours, long ratings, int maxRatingsPerCustomer, double tourSkew,
+      double customerSkew, int firstCustomer, long seed) {
+  }
+
+  /**
+   * What was generated.
+   *
+   * @param packages      new tour packages
+   * @param tourIds       every tour that was rated, most popular first
+   * @param firstCustomer id of the first generated customer
+   * @param customers     customers who rated, numbered on from firstCustomer
+   * @param ratings       new ratings
+   */
+  public record Result(int packages, List<Integer> tourIds, int firstCustomer, int customers, long ratings) {
+  }
+
+  public SyntheticData(JdbcTemplate jdbc, TransactionTemplate tx) {
+    this.jdbc = jdbc;
+    this.tx = tx;
+  }
+
+  /**
+   * Generate and insert the data.
+   *
+   * @param settings how much to generate
+   * @return what was generated
+   */
+  public Result load(Settings settings) {
+    SplittableRandom random = new SplittableRandom(settings.seed());
+    List<String> packageCodes = insertPackages(settings.packages());
+    insertTours(settings.tours(), packageCodes, random);
+    List<Integer> tourIds = new ArrayList<>(jdbc.queryForList("select id from tour order by id", Integer.class));
+    // popularity rank is unrelated to tour id
+    for (int i = tourIds.size() - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      tourIds.set(i, tourIds.set(j, tourIds.get(i)));
+    }
+    int firstCustomer = Math.max(settings.firstCustomer(),
+        jdbc.queryForObject("select coalesce(max(customer_id), 0) + 1 from tour_rating", Integer.class));
+    int customers = insertRatings(settings, tourIds, firstCustomer, random);
+    rebuildStats();
+    return new Result(settings.packages(), tourIds, firstCustomer, customers, settings.ratings());
+  }
+
+  private List<String> insertPackages(int count) {
+    Set<String> taken = new HashSet<>(jdbc.queryForList("select code from tour_package", String.class));
+    List<String> codes = new ArrayList<>(count);
+    for (char a = 'A'; a <= 'Z' && codes.size() < count; a++) {
+      for (char b = 'A'; b <= 'Z' && codes.size() < count; b++) {
+        String code = "" + a + b;
+        if (!taken.contains(code)) {
+          codes.add(code);
+        }
+      }
+    }
+    if (codes.size() < count) {
+      throw new IllegalArgumentException("Only " + codes.size() + " two letter package codes are free");
+    }
+    tx.executeWithoutResult(status -> jdbc.batchUpdate("insert into tour_package (code, name) values (?, ?)",
+        codes, BATCH_SIZE, (ps, code) -> {
+          ps.setString(1, code);
+          ps.setString(2, "Synthetic Package " + code);
+        }));
+    codes.addAll(taken);
+    return codes;
+  }
+
+  private void insertTours(int count, List<String> packageCodes, SplittableRandom random) {
+    if (count == 0) {
+      return;
+    }
+    long firstId = jdbc.queryForObject("select coalesce(max(id), 0) + 1 from tour", Long.class);
+    Difficulty[] difficulties = Difficulty.values();
+    Region[] regions = Region.values();
+    String insert = """
+        insert into tour (id, tour_package_code, title, description, blurb, bullets, difficulty, duration,
+            price, region, keywords) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+    for (int from = 0; from < count; from += BATCH_SIZE) {
+      int size = Math.min(BATCH_SIZE, count - from);
+      long batchFirstId = firstId + from;
+      tx.executeWithoutResult(status -> jdbc.batchUpdate(insert, new BatchPreparedStatementSetter() {
+        @Override
+        public void setValues(PreparedStatement ps, int i) throws SQLException {
+          long id = batchFirstId + i;
+          ps.setLong(1, id);
+          ps.setString(2, packageCodes.get(random.nextInt(packageCodes.size())));
+          ps.setString(3, "Synthetic Tour " + id);
+          ps.setString(4, "Description of synthetic tour " + id);
+          ps.setString(5, "Blurb of synthetic tour " + id);
+          ps.setString(6, "Bullet one, Bullet two, Bullet three");
+          ps.setString(7, difficulties[random.nextInt(difficulties.length)].name());
+          ps.setString(8, (1 + random.nextInt(7)) + " days");
+          ps.setInt(9, 50 + 25 * random.nextInt(100));
+          ps.setString(10, regions[random.nextInt(regions.length)].getLabel());
+          ps.setString(11, "Synthetic");
+        }
+
+        @Override
+        public int getBatchSize() {
+          return size;
+        }
+      }));
+    }
+    jdbc.update("update tour_seq set next_val = ?", firstId + count + 50);
+  }
+
+  /**
+   * @return number of customers who rated
+   */
+  private int insertRatings(Settings settings, List<Integer> tourIds, int firstCustomer, SplittableRandom random) {
+    ZipfDistribution popularity = new ZipfDistribution(tourIds.size(), settings.tourSkew());
+    ZipfDistribution perCustomer = new ZipfDistribution(Math.min(settings.maxRatingsPerCustomer(), tourIds.size()),
+        settings.customerSkew());
+    double[] quality = new double[tourIds.size()];
+    for (int t = 0; t < quality.length; t++) {
+      quality[t] = random.nextDouble(1.5, 4.8);
+    }
+    long nextId = jdbc.queryForObject("select coalesce(max(id), 0) + 1 from tour_rating", Long.class);
+    String insert = "insert into tour_rating (id, tour_id, customer_id, score, comment) values (?, ?, ?, ?, ?)";
+
+    long[] ids = new long[BATCH_SIZE];
+    int[] tours = new int[BATCH_SIZE];
+    int[] customers = new int[BATCH_SIZE];
+    int[] scores = new int[BATCH_SIZE];
+    String[] comments = new String[BATCH_SIZE];
+    BitSet rated = new BitSet(tourIds.size());
+    int[] ranks = new int[perCustomer.size()];
+    int customer = firstCustomer - 1;
+    int pending = 0;
+    long written = 0;
+    long started = System.nanoTime();
+    while (written + pending < settings.ratings()) {
+      customer++;
+      int count = (int) Math.min(perCustomer.sample(random) + 1, settings.ratings() - written - pending);
+      pickTours(count, popularity, random, rated, ranks);
+      for (int r = 0; r < count; r++) {
+        int rank = ranks[r];
+        ids[pending] = nextId++;
+        tours[pending] = tourIds.get(rank);
+        customers[pending] = customer;
+        scores[pending] = (int) Math.max(0, Math.min(5, Math.round(quality[rank] + random.nextGaussian())));
+        comments[pending] = random.nextInt(4) == 0 ? COMMENTS[random.nextInt(COMMENTS.length)] : null;
+        if (++pending == BATCH_SIZE) {
+          writeRatings(insert, ids, tours, customers, scores, comments, pending);
+          written += pending;
+          pending = 0;
+          if (written % 1_000_000 == 0) {
+            log.info("Inserted {} ratings, {} per second", written,
+                written * 1_000_000_000L / Math.max(1, System.nanoTime() - started));
+          }
+        }
+      }
+    }
+    if (pending > 0) {
+      writeRatings(insert, ids, tours, customers, scores, comments, pending);
+    }
+    jdbc.update("update tour_rating_seq set next_val = ?", nextId + 50);
+    return customer - firstCustomer + 1;
+  }
+
+  /**
+   * Pick distinct tour ranks by popularity. Once draws keep hitting tours
+   * already picked, the rest are taken in rank order.
+   */
+  private void pickTours(int count, ZipfDistribution popularity, SplittableRandom random, BitSet picked,
+      int[] ranks) {
+    picked.clear();
+    int found = 0;
+    for (int draws = 0; found < count && draws < 4 * count; draws++) {
+      int rank = popularity.sample(random);
+      if (!picked.get(rank)) {
+        picked.set(rank);
+        ranks[found++] = rank;
+      }
+    }
+    for (int rank = picked.nextClearBit(0); found < count; rank = picked.nextClearBit(rank + 1)) {
+      picked.set(rank);
+      ranks[found++] = rank;
+    }
+  }
+
+  private void writeRatings(String insert, long[] ids, int[] tours, int[] customers, int[] scores,
+      String[] comments, int size) {
+    tx.executeWithoutResult(status -> jdbc.batchUpdate(insert, new BatchPreparedStatementSetter() {
+      @Override
+      public void setValues(PreparedStatement ps, int i) throws SQLException {
+        ps.setLong(1, ids[i]);
+        ps.setInt(2, tours[i]);
+        ps.setInt(3, customers[i]);
+        ps.setInt(4, scores[i]);
+        ps.setString(5, comments[i]);
+      }
+
+      @Override
+      public int getBatchSize() {
+        return size;
+      }
+    }));
+  }
+
+  /**
+   * Set the rating stats of every rated tour to an aggregate of tour_rating,
+   * as the V1.5 migration first built them. Stats are updated in place with
+   * their version raised, never deleted and recreated, as rating_event and
+   * the event dispatcher tell a tour's events apart by that version.
+   */
+  private void rebuildStats() {
+    List<long[]> totals = jdbc.query("""
+        select tour_id, count(*), sum(score), min(score), max(score),
+          sum(case when score = 0 then 1 else 0 end),
+          sum(case when score = 1 then 1 else 0 end),
+          sum(case when score = 2 then 1 else 0 end),
+          sum(case when score = 3 then 1 else 0 end),
+          sum(case when score = 4 then 1 else 0 end),
+          sum(case when score = 5 then 1 else 0 end)
+        from tour_rating
+        group by tour_id
+        """, (rs, row) -> {
+      long[] t = new long[11];
+      for (int c = 0; c < t.length; c++) {
+        t[c] = rs.getLong(c + 1);
+      }
+      return t;
+    });
+    Set<Long> existing = new HashSet<>(jdbc.queryForList("select tour_id from tour_rating_stats", Long.class));
+    List<long[]> updates = totals.stream().filter(t -> existing.contains(t[0])).toList();
+    List<long[]> inserts = totals.stream().filter(t -> !existing.contains(t[0])).toList();
+    tx.executeWithoutResult(status -> {
+      jdbc.batchUpdate("""
+          update tour_rating_stats set rating_count = ?, score_sum = ?, min_score = ?, max_score = ?,
+              score_0 = ?, score_1 = ?, score_2 = ?, score_3 = ?, score_4 = ?, score_5 = ?,
+              version = version + 1
+          where tour_id = ?
+          """, updates, BATCH_SIZE, (ps, t) -> {
+            for (int c = 1; c < t.length; c++) {
+              ps.setLong(c, t[c]);
+            }
+            ps.setLong(t.length, t[0]);
+          });
+      jdbc.batchUpdate("""
+          insert into tour_rating_stats (tour_id, rating_count, score_sum, min_score, max_score,
+              score_0, score_1, score_2, score_3, score_4, score_5, version)
+          values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 1)
+          """, inserts, BATCH_SIZE, (ps, t) -> {
+            for (int c = 0; c < t.length; c++) {
+              ps.setLong(c + 1, t[c]);
+            }
+          });
+    });
+  }
+}
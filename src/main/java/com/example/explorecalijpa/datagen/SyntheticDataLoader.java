@@ -0,0 +1,60 @@
+package com.example.explorecalijpa.datagen;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Loads synthetic data at startup with the datagen profile. Application
+ * runners finish before ApplicationReadyEvent, which is when the leaderboard,
+ * the item similarity model and the tour search index are first built, so
+ * they start from the loaded data. Does nothing if tour_rating already holds
+ * the requested number of ratings, so restarting against a filled MySQL
+ * database does not load it twice.
+ */
+@Component
+@Profile("datagen")
+@Slf4j
+public class SyntheticDataLoader implements ApplicationRunner {
+  private final JdbcTemplate jdbc;
+  private final SyntheticData syntheticData;
+  private final SyntheticData.Settings settings;
+
+  public SyntheticDataLoader(JdbcTemplate jdbc, TransactionTemplate tx,
+      @Value("${explorecali.datagen.packages:20}") int packages,
+      @Value("${explorecali.datagen.tours:1000}") int tours,
+      @Value("${explorecali.datagen.ratings:10000000}") long ratings,
+      @Value("${explorecali.datagen.max-ratings-per-customer:50}") int maxRatingsPerCustomer,
+      @Value("${explorecali.datagen.tour-skew:1.0}") double tourSkew,
+      @Value("${explorecali.datagen.customer-skew:1.2}") double customerSkew,
+      @Value("${explorecali.datagen.first-customer:100000000}") int firstCustomer,
+      @Value("${explorecali.datagen.seed:42}") long seed) {
+    this.jdbc = jdbc;
+    this.syntheticData = new SyntheticData(jdbc, tx);
+    this.settings = new SyntheticData.Settings(packages, tours, ratings, maxRatingsPerCustomer, tourSkew,
+        customerSkew, firstCustomer, seed);
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    long existing = jdbc.queryForObject("select count(*) from tour_rating", Long.class);
+    if (existing >= settings.ratings()) {
+      log.info("Skipping synthetic data, tour_rating already has {} ratings", existing);
+      return;
+    }
+    log.info("Loading synthetic data {}", settings);
+    long started = System.nanoTime();
+    SyntheticData.Result result = syntheticData.load(settings);
+    log.info("Loaded {} packages, {} rated tours and {} ratings by {} customers in {} s", result.packages(),
+        result.tourIds().size(), result.ratings(), result.customers(),
+        TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started));
+  }
+}
@@ -0,0 +1,41 @@
+package com.example.explorecalijpa.datagen;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Zipf distribution over the ranks 0 .. n - 1: rank k is drawn with a
+ * probability proportional to 1 / (k + 1)^exponent. An exponent of 0 gives a
+ * uniform distribution, larger exponents concentrate the draws on the first
+ * ranks.
+ */
+class ZipfDistribution {
+  private final double[] cumulative;
+
+  ZipfDistribution(int n, double exponent) {
+    if (n < 1) {
+      throw new IllegalArgumentException("Zipf distribution needs at least one rank");
+    }
+    cumulative = new double[n];
+    double sum = 0;
+    for (int k = 0; k < n; k++) {
+      sum += 1 / Math.pow(k + 1, exponent);
+      cumulative[k] = sum;
+    }
+    for (int k = 0; k < n; k++) {
+      cumulative[k] /= sum;
+    }
+  }
+
+  int size() {
+    return cumulative.length;
+  }
+
+  /**
+   * @return a rank between 0 and size() - 1
+   */
+  int sample(RandomGenerator random) {
+    int i = Arrays.binarySearch(cumulative, random.nextDouble());
+    return Math.min(i >= 0 ? i : -i - 1, cumulative.length - 1);
+  }
+}
@@ -0,0 +1,23 @@
+package com.example.explorecalijpa.metrics;
+
+import org.springframework.boot.actuate.metrics.data.DefaultRepositoryTagsProvider;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener.RepositoryMethodInvocation;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Adds the endpoint being served to the spring.data.repository.invocations
+ * timers Spring Boot records for every repository method, next to the
+ * repository, method, state (the outcome) and exception tags.
+ */
+@Component
+public class EndpointRepositoryTagsProvider extends DefaultRepositoryTagsProvider {
+
+  @Override
+  public Iterable<Tag> repositoryTags(RepositoryMethodInvocation invocation) {
+    return Tags.of(super.repositoryTags(invocation))
+        .and("endpoint", Endpoints.current());
+  }
+}
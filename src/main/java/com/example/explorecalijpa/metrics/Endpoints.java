@@ -0,0 +1,32 @@
+package com.example.explorecalijpa.metrics;
+
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * The endpoint being served on the current thread, as the HTTP method and the
+ * matched path pattern, for tagging metrics. Patterns rather than paths keep
+ * the number of tag values small.
+ */
+final class Endpoints {
+  /** Work outside a request, such as scheduled jobs and background writers. */
+  static final String NONE = "none";
+
+  private Endpoints() {
+  }
+
+  static String current() {
+    if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+      return of(attributes.getRequest());
+    }
+    return NONE;
+  }
+
+  static String of(HttpServletRequest request) {
+    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    return pattern == null ? NONE : request.getMethod() + " " + pattern;
+  }
+}
@@ -0,0 +1,70 @@
+package com.example.explorecalijpa.metrics;
+
+import java.util.NoSuchElementException;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.validation.ConstraintViolationException;
+
+/**
+ * Times every public method of the service classes as explorecali.service,
+ * tagged with the class, the method, the endpoint being served and the
+ * outcome. Runs outside the transaction advice, so the time includes the
+ * commit.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ServiceTimingAspect {
+  static final String METRIC = "explorecali.service";
+
+  private final MeterRegistry registry;
+
+  public ServiceTimingAspect(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Around("execution(public * com.example.explorecalijpa.business.*Service.*(..))"
+      + " || execution(public * com.example.explorecalijpa.search.*Service.*(..))"
+      + " || execution(public * edu.ensign.cs460.recommendation.RecommendationService.*(..))")
+  public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+    Timer.Sample sample = Timer.start(registry);
+    String outcome = "success";
+    try {
+      return joinPoint.proceed();
+    } catch (Throwable e) {
+      outcome = outcome(e);
+      throw e;
+    } finally {
+      sample.stop(Timer.builder(METRIC)
+          .description("Time spent in service methods")
+          .tag("class", joinPoint.getSignature().getDeclaringType().getSimpleName())
+          .tag("method", joinPoint.getSignature().getName())
+          .tag("endpoint", Endpoints.current())
+          .tag("outcome", outcome)
+          .register(registry));
+    }
+  }
+
+  /**
+   * The outcome of a failed call, matching the status GlobalExceptionHandler
+   * answers with.
+   */
+  static String outcome(Throwable e) {
+    if (e instanceof NoSuchElementException) {
+      return "not_found";
+    }
+    if (e instanceof ConstraintViolationException || e instanceof DataIntegrityViolationException) {
+      return "invalid";
+    }
+    return "error";
+  }
+}
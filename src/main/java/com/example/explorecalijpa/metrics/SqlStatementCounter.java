@@ -0,0 +1,87 @@
+package com.example.explorecalijpa.metrics;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+/**
+ * Counts the SQL statements run through the proxied DataSource by a thread
+ * between start and stop. Statements run while no recording is started on
+ * the thread, such as those of background jobs, are not counted.
+ */
+public class SqlStatementCounter implements QueryExecutionListener {
+  private final ThreadLocal<Recording> current = new ThreadLocal<>();
+  private final List<Consumer<SqlStatements>> listeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * Have every finished recording passed to a listener, e.g. to assert on the
+   * statements of a request from a test.
+   *
+   * @param listener called on the thread that stops the recording
+   */
+  public void addListener(Consumer<SqlStatements> listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(Consumer<SqlStatements> listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Start counting the statements of the current thread.
+   *
+   * @return the recording
+   */
+  Recording start() {
+    Recording recording = new Recording();
+    current.set(recording);
+    return recording;
+  }
+
+  /**
+   * Stop counting and pass the result to the listeners.
+   *
+   * @param recording recording of the current thread
+   * @param endpoint  endpoint the statements were run for
+   * @return the statements
+   */
+  SqlStatements stop(Recording recording, String endpoint) {
+    current.remove();
+    SqlStatements statements = new SqlStatements(endpoint, recording.statements,
+        Duration.ofMillis(recording.millis), Map.copyOf(recording.executions));
+    listeners.forEach(l -> l.accept(statements));
+    return statements;
+  }
+
+  @Override
+  public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+  }
+
+  @Override
+  public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    Recording recording = current.get();
+    if (recording == null) {
+      return;
+    }
+    recording.statements++;
+    recording.millis += execInfo.getElapsedTime();
+    if (!execInfo.isBatch()) {
+      for (QueryInfo query : queryInfoList) {
+        recording.executions.merge(query.getQuery(), 1, Integer::sum);
+      }
+    }
+  }
+
+  static final class Recording {
+    private int statements;
+    private long millis;
+    private final Map<String, Integer> executions = new HashMap<>();
+  }
+}
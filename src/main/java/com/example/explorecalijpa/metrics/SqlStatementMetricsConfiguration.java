@@ -0,0 +1,52 @@
+package com.example.explorecalijpa.metrics;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+/**
+ * Wraps the DataSource in a statement counting proxy and counts the SQL
+ * statements of sampled requests, when explorecali.sql.metrics.enabled is
+ * set.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "explorecali.sql.metrics.enabled", havingValue = "true")
+public class SqlStatementMetricsConfiguration {
+
+  @Bean
+  static SqlStatementCounter sqlStatementCounter() {
+    return new SqlStatementCounter();
+  }
+
+  @Bean
+  static BeanPostProcessor sqlStatementCountingDataSource(ObjectProvider<SqlStatementCounter> counter) {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+          return ProxyDataSourceBuilder.create(dataSource)
+              .name(beanName)
+              .listener(counter.getObject())
+              .build();
+        }
+        return bean;
+      }
+    };
+  }
+
+  @Bean
+  SqlStatementMetricsFilter sqlStatementMetricsFilter(SqlStatementCounter counter, MeterRegistry registry,
+      @Value("${explorecali.sql.metrics.sample-rate:0.01}") double sampleRate,
+      @Value("${explorecali.sql.metrics.repeat-warning:10}") int repeatWarning) {
+    return new SqlStatementMetricsFilter(counter, registry, sampleRate, repeatWarning);
+  }
+}
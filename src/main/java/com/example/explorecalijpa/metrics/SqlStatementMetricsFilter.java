@@ -0,0 +1,72 @@
+package com.example.explorecalijpa.metrics;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Counts the SQL statements of a sample of requests and records them, tagged
+ * by endpoint, as explorecali.request.sql.statements and
+ * explorecali.request.sql.time. A request that runs the same SQL more than
+ * repeatWarning times is logged as a likely N+1 query.
+ */
+@Slf4j
+public class SqlStatementMetricsFilter extends OncePerRequestFilter {
+  private final SqlStatementCounter counter;
+  private final MeterRegistry registry;
+  private final double sampleRate;
+  private final int repeatWarning;
+
+  public SqlStatementMetricsFilter(SqlStatementCounter counter, MeterRegistry registry, double sampleRate,
+      int repeatWarning) {
+    this.counter = counter;
+    this.registry = registry;
+    this.sampleRate = sampleRate;
+    this.repeatWarning = repeatWarning;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+      chain.doFilter(request, response);
+      return;
+    }
+    SqlStatementCounter.Recording recording = counter.start();
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      record(counter.stop(recording, Endpoints.of(request)));
+    }
+  }
+
+  private void record(SqlStatements statements) {
+    DistributionSummary.builder("explorecali.request.sql.statements")
+        .description("SQL statements run by a request")
+        .tag("endpoint", statements.endpoint())
+        .register(registry)
+        .record(statements.statements());
+    Timer.builder("explorecali.request.sql.time")
+        .description("Time a request spent executing SQL")
+        .tag("endpoint", statements.endpoint())
+        .register(registry)
+        .record(statements.time());
+    for (Map.Entry<String, Integer> e : statements.executions().entrySet()) {
+      if (e.getValue() > repeatWarning) {
+        log.warn("{} ran the same SQL {} times, likely an N+1 query: {}", statements.endpoint(), e.getValue(),
+            e.getKey());
+      }
+    }
+  }
+}
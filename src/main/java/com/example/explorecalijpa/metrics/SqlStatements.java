@@ -0,0 +1,27 @@
+package com.example.explorecalijpa.metrics;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The SQL statements one request ran.
+ *
+ * @param endpoint   endpoint served, as tagged on the metrics
+ * @param statements statements executed; a JDBC batch counts once
+ * @param time       time spent executing them
+ * @param executions executions of each distinct SQL string outside batches
+ */
+public record SqlStatements(String endpoint, int statements, Duration time, Map<String, Integer> executions) {
+
+  /**
+   * The SQL strings executed more than once, the mark of an N+1 query.
+   *
+   * @return executions of each repeated SQL string
+   */
+  public Map<String, Integer> repeated() {
+    return executions.entrySet().stream()
+        .filter(e -> e.getValue() > 1)
+        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+  }
+}
@@ -0,0 +1,125 @@
+package com.example.explorecalijpa.model;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+import org.springframework.data.domain.Persistable;
+
+import jakarta.persistence.*;
+
+/**
+ * A rating event in the rating_event outbox table. It is inserted in the
+ * transaction of the rating write that raised it and kept for the retention,
+ * so an event is never lost if an instance stops between the commit and the
+ * delivery. An event whose delivery keeps failing is parked: it is recorded
+ * with its last error and no longer delivered.
+ */
+@Entity
+@Table(name = "rating_event")
+public class RatingEventRecord implements Persistable<RatingEventRecord.Key> {
+
+  @EmbeddedId
+  private Key id;
+
+  // numbered by the database as the event is inserted
+  @Column(insertable = false, updatable = false)
+  private Long seq;
+
+  @Column(name = "event_type", nullable = false)
+  private String eventType;
+
+  @Column(nullable = false)
+  private String payload;
+
+  @Column(name = "created_at", nullable = false)
+  private Instant createdAt;
+
+  @Column(nullable = false)
+  private int attempts;
+
+  @Column(name = "last_error")
+  private String lastError;
+
+  @Column(name = "parked_at")
+  private Instant parkedAt;
+
+  protected RatingEventRecord() {
+  }
+
+  /**
+   * Create an outbox record.
+   *
+   * @param tourId    tour identifier
+   * @param version   stats version of the tour after the change
+   * @param eventType name of the event type
+   * @param payload   the event as JSON
+   */
+  public RatingEventRecord(int tourId, long version, String eventType, String payload) {
+    this.id = new Key(tourId, version);
+    this.eventType = eventType;
+    this.payload = payload;
+    this.createdAt = Instant.now();
+  }
+
+  @Override
+  public Key getId() {
+    return id;
+  }
+
+  /**
+   * @return number of the event in insert order, null until read back
+   */
+  public Long getSeq() {
+    return seq;
+  }
+
+  public String getEventType() {
+    return eventType;
+  }
+
+  public String getPayload() {
+    return payload;
+  }
+
+  public Instant getCreatedAt() {
+    return createdAt;
+  }
+
+  /**
+   * @return number of failed deliveries
+   */
+  public int getAttempts() {
+    return attempts;
+  }
+
+  public String getLastError() {
+    return lastError;
+  }
+
+  /**
+   * @return when delivery was given up, null while the event is delivered
+   */
+  public Instant getParkedAt() {
+    return parkedAt;
+  }
+
+  /**
+   * Records are only ever inserted, then updated or deleted in bulk, so saving
+   * one never needs the select of a merge.
+   */
+  @Override
+  public boolean isNew() {
+    return true;
+  }
+
+  /**
+   * Tour and stats version, unique as the stats version of a tour only goes up.
+   *
+   * @param tourId  tour identifier
+   * @param version stats version of the tour
+   */
+  @Embeddable
+  public record Key(@Column(name = "tour_id") int tourId, @Column(name = "version") long version)
+      implements Serializable {
+  }
+}
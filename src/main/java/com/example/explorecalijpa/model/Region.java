@@ -1,5 +1,9 @@
 package com.example.explorecalijpa.model;
 
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
 /**
  * Enumeration of the region of California.
  *
@@ -8,17 +12,35 @@ package com.example.explorecalijpa.model;
 public enum Region {
     Central_Coast("Central Coast"), Southern_California("Southern California"),
     Northern_California("Northern California"), Varies("Varies");
+
+    private static final Map<String, Region> BY_LABEL = new HashMap<>();
+    private static final Map<String, Region> BY_LOWER_CASE_LABEL = new HashMap<>();
+
+    static {
+        for (Region r : values()) {
+            BY_LABEL.put(r.label, r);
+            BY_LOWER_CASE_LABEL.put(r.label.toLowerCase(Locale.ROOT), r);
+        }
+    }
+
     private String label;
     private Region(String label) {
         this.label = label;
     }
 
+    /**
+     * Lookup a Region by its label, ignoring case. Labels as stored in the
+     * database are found without lower-casing them.
+     *
+     * @param byLabel the label
+     * @return the Region, null if no Region has the label
+     */
     public static Region findByLabel(String byLabel) {
-        for(Region r:Region.values()) {
-            if (r.label.equalsIgnoreCase(byLabel))
-                return r;
+        if (byLabel == null) {
+            return null;
         }
-        return null;
+        Region region = BY_LABEL.get(byLabel);
+        return region != null ? region : BY_LOWER_CASE_LABEL.get(byLabel.toLowerCase(Locale.ROOT));
     }
 
     public String getLabel() {
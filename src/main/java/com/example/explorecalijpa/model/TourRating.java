@@ -2,6 +2,11 @@ package com.example.explorecalijpa.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 
 /**
@@ -13,12 +18,27 @@ import lombok.Data;
 @Table(name = "tour_rating")
 @Data
 public class TourRating {
+  /**
+   * Ids come in blocks of 50 from the tour_rating_seq table rather than from
+   * AUTO_INCREMENT, so Hibernate can batch inserts.
+   */
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tour_rating_seq")
+  @GenericGenerator(name = "tour_rating_seq", type = SequenceStyleGenerator.class, parameters = {
+      @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "tour_rating_seq"),
+      @Parameter(name = SequenceStyleGenerator.FORCE_TBL_PARAM, value = "true"),
+      @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "50"),
+      @Parameter(name = SequenceStyleGenerator.OPT_PARAM, value = "pooled")})
   private Integer id;
 
-  @ManyToOne
+  /**
+   * Lazy, and left out of toString/equals/hashCode, so loading ratings never
+   * reads the wide tour row unless a caller asks for it.
+   */
+  @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "tour_id")
+  @ToString.Exclude
+  @EqualsAndHashCode.Exclude
   private Tour tour;
 
   @Column(name = "customer_id")
@@ -0,0 +1,229 @@
+package com.example.explorecalijpa.model;
+
+import org.springframework.data.domain.Persistable;
+
+import jakarta.persistence.*;
+
+/**
+ * Running aggregate of all the TourRatings of a Tour.
+ *
+ * The score histogram is kept so the minimum and maximum can be maintained
+ * when ratings are removed or changed, without rescanning tour_rating.
+ *
+ * The version goes up with every change, so the rating events published for
+ * a tour can be put in order and told apart.
+ */
+@Entity
+@Table(name = "tour_rating_stats")
+public class TourRatingStats implements Persistable<Integer> {
+  public static final int MIN_SCORE = 0;
+  public static final int MAX_SCORE = 5;
+
+  @Id
+  @Column(name = "tour_id")
+  private Integer tourId;
+
+  @Column(name = "rating_count", nullable = false)
+  private long ratingCount;
+
+  @Column(name = "score_sum", nullable = false)
+  private long scoreSum;
+
+  @Column(name = "min_score")
+  private Integer minScore;
+
+  @Column(name = "max_score")
+  private Integer maxScore;
+
+  @Column(name = "score_0", nullable = false)
+  private long score0;
+
+  @Column(name = "score_1", nullable = false)
+  private long score1;
+
+  @Column(name = "score_2", nullable = false)
+  private long score2;
+
+  @Column(name = "score_3", nullable = false)
+  private long score3;
+
+  @Column(name = "score_4", nullable = false)
+  private long score4;
+
+  @Column(name = "score_5", nullable = false)
+  private long score5;
+
+  @Column(nullable = false)
+  private long version;
+
+  @Transient
+  private boolean persisted;
+
+  protected TourRatingStats() {
+  }
+
+  /**
+   * Create empty stats for a tour.
+   *
+   * @param tourId tour identifier
+   */
+  public TourRatingStats(Integer tourId) {
+    this.tourId = tourId;
+  }
+
+  /**
+   * Account for a new score.
+   *
+   * @param score score between MIN_SCORE and MAX_SCORE
+   */
+  public void add(int score) {
+    add(score, 1);
+  }
+
+  /**
+   * Account for several new ratings with the same score.
+   *
+   * @param score score between MIN_SCORE and MAX_SCORE
+   * @param times number of ratings
+   */
+  public void add(int score, long times) {
+    setBucket(score, getBucket(score) + times);
+    ratingCount += times;
+    scoreSum += score * times;
+    version++;
+    updateBounds();
+  }
+
+  /**
+   * Remove a score that was previously added.
+   *
+   * @param score score between MIN_SCORE and MAX_SCORE
+   */
+  public void remove(int score) {
+    if (getBucket(score) == 0) {
+      throw new IllegalStateException("No rating with score " + score + " recorded for tour " + tourId);
+    }
+    setBucket(score, getBucket(score) - 1);
+    ratingCount--;
+    scoreSum -= score;
+    version++;
+    updateBounds();
+  }
+
+  /**
+   * Replace a previously added score with another.
+   *
+   * @param oldScore the score to remove
+   * @param newScore the score to add
+   */
+  public void replace(int oldScore, int newScore) {
+    if (oldScore != newScore) {
+      remove(oldScore);
+      add(newScore);
+    } else {
+      version++;
+    }
+  }
+
+  /**
+   * @return the average score, or null if the tour has no ratings.
+   */
+  public Double getAverageScore() {
+    return ratingCount == 0 ? null : (double) scoreSum / ratingCount;
+  }
+
+  /**
+   * Number of ratings with a given score.
+   *
+   * @param score score between MIN_SCORE and MAX_SCORE
+   * @return count of ratings
+   */
+  public long getBucket(int score) {
+    switch (score) {
+      case 0: return score0;
+      case 1: return score1;
+      case 2: return score2;
+      case 3: return score3;
+      case 4: return score4;
+      case 5: return score5;
+      default: throw new IllegalArgumentException("Score out of range " + score);
+    }
+  }
+
+  private void setBucket(int score, long count) {
+    switch (score) {
+      case 0: score0 = count; break;
+      case 1: score1 = count; break;
+      case 2: score2 = count; break;
+      case 3: score3 = count; break;
+      case 4: score4 = count; break;
+      case 5: score5 = count; break;
+      default: throw new IllegalArgumentException("Score out of range " + score);
+    }
+  }
+
+  private void updateBounds() {
+    minScore = null;
+    maxScore = null;
+    for (int s = MIN_SCORE; s <= MAX_SCORE; s++) {
+      if (getBucket(s) > 0) {
+        if (minScore == null) {
+          minScore = s;
+        }
+        maxScore = s;
+      }
+    }
+  }
+
+  public Integer getTourId() {
+    return tourId;
+  }
+
+  public long getRatingCount() {
+    return ratingCount;
+  }
+
+  public long getScoreSum() {
+    return scoreSum;
+  }
+
+  public Integer getMinScore() {
+    return minScore;
+  }
+
+  public Integer getMaxScore() {
+    return maxScore;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  @Override
+  public Integer getId() {
+    return tourId;
+  }
+
+  @Override
+  public boolean isNew() {
+    return !persisted;
+  }
+
+  @PostLoad
+  @PostPersist
+  void markPersisted() {
+    persisted = true;
+  }
+
+  @Override
+  public String toString() {
+    return "TourRatingStats{" +
+        "tourId=" + tourId +
+        ", ratingCount=" + ratingCount +
+        ", scoreSum=" + scoreSum +
+        ", minScore=" + minScore +
+        ", maxScore=" + maxScore +
+        ", version=" + version +
+        '}';
+  }
+}
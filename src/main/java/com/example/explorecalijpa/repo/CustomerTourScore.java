@@ -0,0 +1,12 @@
+package com.example.explorecalijpa.repo;
+
+/**
+ * The score one customer gave one tour.
+ */
+public interface CustomerTourScore {
+  Integer getCustomerId();
+
+  Integer getTourId();
+
+  Integer getScore();
+}
@@ -0,0 +1,17 @@
+package com.example.explorecalijpa.repo;
+
+import com.example.explorecalijpa.model.TourRatingStats;
+
+/**
+ * The locked stats of a tour together with the score one customer currently
+ * gives it, read in the same statement.
+ */
+public interface LockedTourRatingStats {
+  TourRatingStats getStats();
+
+  /**
+   * @return the customer's score, or null if the customer has not rated the
+   *         tour
+   */
+  Integer getScore();
+}
@@ -0,0 +1,68 @@
+package com.example.explorecalijpa.repo;
+
+import com.example.explorecalijpa.model.RatingEventRecord;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Rating Event Outbox Repository Interface
+ */
+@RepositoryRestResource(exported = false)
+public interface RatingEventRecordRepository extends JpaRepository<RatingEventRecord, RatingEventRecord.Key> {
+
+  /**
+   * Lookup the events after a seq, in seq order.
+   *
+   * @param seq   seq to read after
+   * @param limit maximum number of events
+   * @return the events
+   */
+  @Query("select e from RatingEventRecord e where e.seq > :seq order by e.seq")
+  List<RatingEventRecord> findAfter(long seq, Limit limit);
+
+  /**
+   * Lookup the last seq of the events inserted before a time.
+   *
+   * @param before time to look before
+   * @return the seq, 0 if there is none
+   */
+  @Query("select coalesce(max(e.seq), 0) from RatingEventRecord e where e.createdAt < :before")
+  long findLastSeqBefore(Instant before);
+
+  /**
+   * Delete the events inserted before a time.
+   *
+   * @param before time to delete before
+   * @return number of events deleted
+   */
+  @Modifying
+  @Transactional
+  @Query("delete from RatingEventRecord e where e.createdAt < :before")
+  int deleteCreatedBefore(Instant before);
+
+  /**
+   * Count a failed delivery of an event, and park the event if parkedAt is
+   * given.
+   *
+   * @param tourId   tour identifier of the event
+   * @param version  stats version of the event
+   * @param error    why the delivery failed
+   * @param parkedAt when delivery was given up, null to retry the event
+   * @return number of events updated
+   */
+  @Modifying
+  @Transactional
+  @Query("""
+         update RatingEventRecord e
+         set e.attempts = e.attempts + 1, e.lastError = :error, e.parkedAt = :parkedAt
+         where e.id.tourId = :tourId and e.id.version = :version
+      """)
+  int recordFailure(int tourId, long version, String error, Instant parkedAt);
+}
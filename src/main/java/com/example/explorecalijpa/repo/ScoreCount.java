@@ -0,0 +1,12 @@
+package com.example.explorecalijpa.repo;
+
+/**
+ * Number of ratings a tour received with one particular score.
+ */
+public interface ScoreCount {
+  Integer getTourId();
+
+  Integer getScore();
+
+  Long getRatingCount();
+}
@@ -2,14 +2,20 @@ package com.example.explorecalijpa.repo;
 
 import com.example.explorecalijpa.model.TourRating;
 import edu.ensign.cs460.recommendation.TourSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Tour Rating Repository Interface
@@ -17,7 +23,8 @@ import java.util.Optional;
  * Created by Mary Ellen Bowman
  */
 @RepositoryRestResource(exported = false)
-public interface TourRatingRepository extends JpaRepository<TourRating, Integer>, CrudRepository<TourRating, Integer> {
+public interface TourRatingRepository extends JpaRepository<TourRating, Integer>, CrudRepository<TourRating, Integer>,
+    TourRatingUpsert {
 
   /**
    * Lookup all the TourRatings for a tour.
@@ -27,6 +34,48 @@ public interface TourRatingRepository extends JpaRepository<TourRating, Integer>
    */
   List<TourRating> findByTourId(Integer tourId);
 
+  /**
+   * Lookup a page of the ratings of a tour as views, touching only
+   * tour_rating. Pages are keyed on the rating id, so each page is an index
+   * range scan of IX_TOUR_RATING_TOUR_ID however deep it is.
+   *
+   * @param tourId  is the tour Identifier
+   * @param afterId only ratings with a greater id
+   * @param limit   maximum number of ratings
+   * @return the ratings ordered by id
+   */
+  @Query("""
+         select tr.id as id, tr.customerId as customerId, tr.score as score, tr.comment as comment
+         from TourRating tr
+         where tr.tour.id = :tourId and tr.id > :afterId
+         order by tr.id
+      """)
+  List<TourRatingView> findViewsByTourId(Integer tourId, Integer afterId, Limit limit);
+
+  /**
+   * Stream all ratings of a tour as views off a JDBC cursor. Must be consumed
+   * and closed inside a transaction.
+   *
+   * @param tourId is the tour Identifier
+   * @return the ratings ordered by id
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+  @Query("select tr.id as id, tr.customerId as customerId, tr.score as score, tr.comment as comment from TourRating tr where tr.tour.id = :tourId order by tr.id")
+  Stream<TourRatingView> streamViewsByTourId(Integer tourId);
+
+  /**
+   * Stream every TourRating off a JDBC cursor. The entities are read-only, so
+   * Hibernate keeps no snapshot of them for dirty checking. Must be consumed
+   * and closed inside a transaction.
+   *
+   * @return all ratings ordered by id
+   */
+  @QueryHints({
+      @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+      @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+  @Query("select tr from TourRating tr order by tr.id")
+  Stream<TourRating> streamAll();
+
   /**
    * Lookup a TourRating by the TourId and Customer Id
    *
@@ -36,6 +85,44 @@ public interface TourRatingRepository extends JpaRepository<TourRating, Integer>
    */
   Optional<TourRating> findByTourIdAndCustomerId(Integer tourId, Integer customerId);
 
+  /**
+   * Lookup which of the given customers already rated a tour.
+   *
+   * @param tourId      is the tour Identifier
+   * @param customerIds customers to check
+   * @return the customer ids that have a TourRating for the tour
+   */
+  @Query("select tr.customerId from TourRating tr where tr.tour.id = :tourId and tr.customerId in :customerIds")
+  List<Integer> findRatedCustomerIds(Integer tourId, Collection<Integer> customerIds);
+
+  /**
+   * Lookup the tours a customer has rated.
+   *
+   * @param customerId customer identifier
+   * @return the tour ids
+   */
+  @Query("select tr.tour.id from TourRating tr where tr.customerId = :customerId")
+  List<Integer> findTourIdsByCustomerId(Integer customerId);
+
+  /**
+   * Lookup the scores a customer gave.
+   *
+   * @param customerId customer identifier
+   * @return one row per rated tour
+   */
+  @Query("select tr.customerId as customerId, tr.tour.id as tourId, tr.score as score from TourRating tr where tr.customerId = :customerId")
+  List<CustomerTourScore> findScoresByCustomerId(Integer customerId);
+
+  /**
+   * Stream every score, grouped by customer, without loading TourRating
+   * entities. Must be consumed and closed inside a transaction.
+   *
+   * @return all ratings ordered by customer
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+  @Query("select tr.customerId as customerId, tr.tour.id as tourId, tr.score as score from TourRating tr order by tr.customerId")
+  Stream<CustomerTourScore> streamAllScoresByCustomer();
+
   // 🔹 New Query 1: Get top-rated tours (for endpoint
   // /recommendations/top/{limit})
   @Query("""
@@ -64,4 +151,19 @@ public interface TourRatingRepository extends JpaRepository<TourRating, Integer>
          order by avg(tr.score) desc, count(tr.id) desc, tr.tour.title asc
       """)
   List<TourSummary> findRecommendedForCustomer(int customerId, Pageable pageable);
+
+  /**
+   * Count the ratings of every tour by score, the source of truth the
+   * tour_rating_stats table is checked against.
+   *
+   * @return one row per tour and score
+   */
+  @Query("""
+         select tr.tour.id  as tourId,
+                tr.score    as score,
+                count(tr.id) as ratingCount
+         from TourRating tr
+         group by tr.tour.id, tr.score
+      """)
+  List<ScoreCount> countScoresByTour();
 }
@@ -0,0 +1,18 @@
+package com.example.explorecalijpa.repo;
+
+/**
+ * Native insert-if-absent of the empty TourRatingStats of a tour, mixed into
+ * TourRatingStatsRepository.
+ */
+public interface TourRatingStatsInsert {
+
+  /**
+   * Create empty stats for a tour unless it has some, in a single statement,
+   * so concurrent first ratings of a tour do not collide on its primary key.
+   * Must run inside a transaction; lock the stats afterwards with
+   * findForUpdate.
+   *
+   * @param tourId tour identifier
+   */
+  void insertIfAbsent(int tourId);
+}
@@ -0,0 +1,69 @@
+package com.example.explorecalijpa.repo;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.NativeQuery;
+
+import com.example.explorecalijpa.model.TourRatingStats;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Insert-if-absent through INSERT ... ON DUPLICATE KEY UPDATE on MySQL and
+ * MariaDB and MERGE on H2, both matching on the tour_id primary key. Other
+ * databases fall back to a lookup and a persist, which can still collide with
+ * a concurrent first rating.
+ */
+class TourRatingStatsInsertImpl implements TourRatingStatsInsert {
+
+  private static final String MYSQL_INSERT = """
+      insert into tour_rating_stats (tour_id, rating_count, score_sum,
+          score_0, score_1, score_2, score_3, score_4, score_5, version)
+      values (:tourId, 0, 0, 0, 0, 0, 0, 0, 0, 0)
+      on duplicate key update tour_id = tour_id
+      """;
+
+  private static final String H2_INSERT = """
+      merge into tour_rating_stats s
+      using (select cast(:tourId as bigint) tour_id) v
+      on s.tour_id = v.tour_id
+      when not matched then insert (tour_id, rating_count, score_sum,
+          score_0, score_1, score_2, score_3, score_4, score_5, version)
+          values (v.tour_id, 0, 0, 0, 0, 0, 0, 0, 0, 0)
+      """;
+
+  private final EntityManager entityManager;
+  private final String insertSql;
+
+  TourRatingStatsInsertImpl(EntityManager entityManager) {
+    this.entityManager = entityManager;
+    Dialect dialect = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+        .getJdbcServices().getDialect();
+    if (dialect instanceof MySQLDialect) {
+      insertSql = MYSQL_INSERT;
+    } else if (dialect instanceof H2Dialect) {
+      insertSql = H2_INSERT;
+    } else {
+      insertSql = null;
+    }
+  }
+
+  @Override
+  public void insertIfAbsent(int tourId) {
+    if (insertSql == null) {
+      if (entityManager.find(TourRatingStats.class, tourId) == null) {
+        entityManager.persist(new TourRatingStats(tourId));
+        entityManager.flush();
+      }
+      return;
+    }
+    entityManager.createNativeQuery(insertSql)
+        .setParameter("tourId", tourId)
+        // only tour_rating_stats changes, so leave the second-level cache of the tour catalog alone
+        .unwrap(NativeQuery.class)
+        .addSynchronizedEntityClass(TourRatingStats.class)
+        .executeUpdate();
+  }
+}
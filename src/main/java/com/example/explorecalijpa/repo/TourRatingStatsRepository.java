@@ -0,0 +1,65 @@
+package com.example.explorecalijpa.repo;
+
+import com.example.explorecalijpa.model.TourRatingStats;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Tour Rating Stats Repository Interface
+ */
+@RepositoryRestResource(exported = false)
+public interface TourRatingStatsRepository extends JpaRepository<TourRatingStats, Integer>, TourRatingStatsInsert {
+
+  /**
+   * Lookup the stats of a tour and lock them until the end of the transaction,
+   * so concurrent rating writes for the same tour apply their deltas in turn.
+   *
+   * @param tourId is the tour Identifier
+   * @return the TourRatingStats if found
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select s from TourRatingStats s where s.tourId = :tourId")
+  Optional<TourRatingStats> findForUpdate(Integer tourId);
+
+  /**
+   * Lookup and lock the stats of a tour like findForUpdate, reading the score
+   * a customer currently gives the tour in the same statement. The customer's
+   * rating needs no lock of its own, as every rating write for the tour first
+   * locks these stats.
+   *
+   * @param tourId     is the tour Identifier
+   * @param customerId customer identifier
+   * @return the TourRatingStats and the customer's score if the stats are found
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("""
+         select s as stats,
+                (select r.score from TourRating r where r.tour.id = s.tourId and r.customerId = :customerId) as score
+         from TourRatingStats s
+         where s.tourId = :tourId
+      """)
+  Optional<LockedTourRatingStats> findForUpdateWithScore(Integer tourId, Integer customerId);
+
+  /**
+   * Lookup the totals of every tour with rating stats along with its title,
+   * including tours whose ratings were all deleted.
+   *
+   * @return the totals of all tours with rating stats
+   */
+  @Query("""
+         select s.tourId      as tourId,
+                t.title       as title,
+                s.version     as version,
+                s.ratingCount as ratingCount,
+                s.scoreSum    as scoreSum
+         from TourRatingStats s, Tour t
+         where t.id = s.tourId
+      """)
+  List<TourRatingTotals> findAllTotals();
+}
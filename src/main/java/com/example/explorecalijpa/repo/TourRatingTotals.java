@@ -0,0 +1,16 @@
+package com.example.explorecalijpa.repo;
+
+/**
+ * Rating totals of a tour read from tour_rating_stats.
+ */
+public interface TourRatingTotals {
+  Integer getTourId();
+
+  String getTitle();
+
+  Long getVersion();
+
+  Long getRatingCount();
+
+  Long getScoreSum();
+}
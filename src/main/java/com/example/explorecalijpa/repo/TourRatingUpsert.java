@@ -0,0 +1,20 @@
+package com.example.explorecalijpa.repo;
+
+/**
+ * Native insert-or-update of a TourRating keyed on (tour_id, customer_id),
+ * mixed into TourRatingRepository.
+ */
+public interface TourRatingUpsert {
+
+  /**
+   * Create the rating of a tour by a customer, or replace its score and
+   * comment if there is one, in a single statement on MySQL, MariaDB and H2.
+   * Must run inside a transaction.
+   *
+   * @param tourId     tour identifier
+   * @param customerId customer identifier
+   * @param score      score
+   * @param comment    comment, may be null
+   */
+  void upsert(int tourId, int customerId, int score, String comment);
+}
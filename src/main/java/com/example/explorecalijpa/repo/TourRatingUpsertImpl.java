@@ -0,0 +1,123 @@
+package com.example.explorecalijpa.repo;
+
+import java.util.List;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.MariaDBDialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.Generator;
+import org.hibernate.query.NativeQuery;
+
+import com.example.explorecalijpa.model.Tour;
+import com.example.explorecalijpa.model.TourRating;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Upsert through INSERT ... ON DUPLICATE KEY UPDATE on MySQL and MariaDB and
+ * MERGE on H2, all matching on UX_TOUR_RATING_TOUR_CUSTOMER. New rows take
+ * their id from the same pooled generator as TourRating entities; an update
+ * leaves the id it was handed unused. Other databases fall back to loading
+ * the rating and updating or persisting the entity.
+ */
+class TourRatingUpsertImpl implements TourRatingUpsert {
+
+  private static final String MYSQL_UPSERT = """
+      insert into tour_rating (id, tour_id, customer_id, score, comment)
+      values (:id, :tourId, :customerId, :score, :comment) as new
+      on duplicate key update score = new.score, comment = new.comment
+      """;
+
+  // MariaDB has no row alias, and MySQL deprecates VALUES() in its favour
+  private static final String MARIADB_UPSERT = """
+      insert into tour_rating (id, tour_id, customer_id, score, comment)
+      values (:id, :tourId, :customerId, :score, :comment)
+      on duplicate key update score = values(score), comment = values(comment)
+      """;
+
+  private static final String H2_UPSERT = """
+      merge into tour_rating t
+      using (select cast(:id as bigint) id, cast(:tourId as bigint) tour_id,
+                    cast(:customerId as bigint) customer_id, cast(:score as int) score,
+                    cast(:comment as varchar(100)) comment) v
+      on t.tour_id = v.tour_id and t.customer_id = v.customer_id
+      when matched then update set score = v.score, comment = v.comment
+      when not matched then insert (id, tour_id, customer_id, score, comment)
+          values (v.id, v.tour_id, v.customer_id, v.score, v.comment)
+      """;
+
+  private final EntityManager entityManager;
+  private final String upsertSql;
+
+  TourRatingUpsertImpl(EntityManager entityManager) {
+    this.entityManager = entityManager;
+    Dialect dialect = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+        .getJdbcServices().getDialect();
+    // MariaDBDialect extends MySQLDialect, so it is matched first
+    if (dialect instanceof MariaDBDialect) {
+      upsertSql = MARIADB_UPSERT;
+    } else if (dialect instanceof MySQLDialect) {
+      upsertSql = MYSQL_UPSERT;
+    } else if (dialect instanceof H2Dialect) {
+      upsertSql = H2_UPSERT;
+    } else {
+      upsertSql = null;
+    }
+  }
+
+  @Override
+  public void upsert(int tourId, int customerId, int score, String comment) {
+    if (upsertSql == null) {
+      merge(tourId, customerId, score, comment);
+      return;
+    }
+    entityManager.createNativeQuery(upsertSql)
+        .setParameter("id", nextId())
+        .setParameter("tourId", tourId)
+        .setParameter("customerId", customerId)
+        .setParameter("score", score)
+        .setParameter("comment", comment)
+        // only tour_rating changes, so leave the second-level cache of the tour catalog alone
+        .unwrap(NativeQuery.class)
+        .addSynchronizedEntityClass(TourRating.class)
+        .executeUpdate();
+  }
+
+  /**
+   * Take an id from the generator of TourRating entities.
+   */
+  private Object nextId() {
+    SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+    Generator generator = session.getFactory().getMappingMetamodel().getEntityDescriptor(TourRating.class)
+        .getGenerator();
+    if (!(generator instanceof BeforeExecutionGenerator beforeExecution)) {
+      throw new IllegalStateException("TourRating ids are not generated before insert");
+    }
+    return beforeExecution.generate(session, null, null, EventType.INSERT);
+  }
+
+  /**
+   * Read-modify-write through the entity, for databases without a native
+   * upsert. Callers lock the tour's stats first, so concurrent writes of the
+   * same rating run in turn.
+   */
+  private void merge(int tourId, int customerId, int score, String comment) {
+    List<TourRating> existing = entityManager.createQuery(
+        "select r from TourRating r where r.tour.id = :tourId and r.customerId = :customerId", TourRating.class)
+        .setParameter("tourId", tourId)
+        .setParameter("customerId", customerId)
+        .getResultList();
+    if (existing.isEmpty()) {
+      entityManager.persist(new TourRating(entityManager.getReference(Tour.class, tourId), customerId, score,
+          comment));
+    } else {
+      existing.get(0).setScore(score);
+      existing.get(0).setComment(comment);
+    }
+  }
+}
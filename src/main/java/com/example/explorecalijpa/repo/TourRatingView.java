@@ -0,0 +1,15 @@
+package com.example.explorecalijpa.repo;
+
+/**
+ * The columns of a TourRating a rating list shows, read without loading the
+ * entity or its Tour.
+ */
+public interface TourRatingView {
+  Integer getId();
+
+  Integer getCustomerId();
+
+  Integer getScore();
+
+  String getComment();
+}
@@ -1,16 +1,63 @@
 package com.example.explorecalijpa.repo;
 
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RestResource;
 
 import com.example.explorecalijpa.model.Difficulty;
 import com.example.explorecalijpa.model.Tour;
 
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.persistence.QueryHint;
 
 @Tag(name = "Tours", description = "The Tour API")
 public interface TourRepository extends JpaRepository<Tour, Integer> {
+  /**
+   * Second-level cache region holding the results of the cacheable tour
+   * queries.
+   */
+  String QUERY_CACHE_REGION = "tour-queries";
+
+  @QueryHints({ @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+      @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION) })
   List<Tour> findByDifficulty(Difficulty diff);
+
+  @QueryHints({ @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+      @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION) })
   List<Tour> findByTourPackageCode(String code);
-}
\ No newline at end of file
+
+  /**
+   * Lookup the tours in a price range, cheapest first and then by id, as a
+   * range scan of IX_TOUR_PRICE. Exported as /tours/search/byPrice.
+   *
+   * @param minPrice lowest price, inclusive
+   * @param maxPrice highest price, inclusive
+   * @param pageable page of the tours
+   * @return the page of tours
+   */
+  @RestResource(path = "byPrice", rel = "byPrice")
+  Page<Tour> findByPriceBetweenOrderByPriceAscIdAsc(@Param("minPrice") Integer minPrice,
+      @Param("maxPrice") Integer maxPrice, Pageable pageable);
+
+  /**
+   * Stream every Tour with its package off a JDBC cursor. The entities are
+   * read-only, so Hibernate keeps no snapshot of them for dirty checking. Must
+   * be consumed and closed inside a transaction.
+   *
+   * @return all tours ordered by id
+   */
+  @RestResource(exported = false)
+  @QueryHints({
+      @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+      @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+  @Query("select t from Tour t left join fetch t.tourPackage order by t.id")
+  Stream<Tour> streamAll();
+}
@@ -0,0 +1,35 @@
+package com.example.explorecalijpa.search;
+
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.example.explorecalijpa.model.Difficulty;
+import com.example.explorecalijpa.model.Region;
+import com.example.explorecalijpa.model.Tour;
+
+/**
+ * What the search index keeps of a tour: the text it is searched by and the
+ * attributes it is filtered by.
+ *
+ * @param tourId          tour identifier
+ * @param title           title, weighted double
+ * @param keywords        comma-separated keywords, weighted double
+ * @param text            description, blurb and bullets
+ * @param tourPackageCode code of the tour package
+ * @param difficulty      difficulty
+ * @param region          region
+ * @param price           price, may be null
+ */
+public record TourDocument(int tourId, String title, String keywords, String text, String tourPackageCode,
+    Difficulty difficulty, Region region, Integer price) {
+
+  public static TourDocument of(Tour tour) {
+    String text = Stream.of(tour.getDescription(), tour.getBlurb(), tour.getBullets())
+        .filter(Objects::nonNull)
+        .collect(Collectors.joining(" "));
+    return new TourDocument(tour.getId(), tour.getTitle(), tour.getKeywords(), text,
+        tour.getTourPackage() == null ? null : tour.getTourPackage().getCode(),
+        tour.getDifficulty(), tour.getRegion(), tour.getPrice());
+  }
+}
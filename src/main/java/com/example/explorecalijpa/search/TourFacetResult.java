@@ -0,0 +1,30 @@
+package com.example.explorecalijpa.search;
+
+import java.util.List;
+import java.util.Map;
+
+import com.example.explorecalijpa.model.Difficulty;
+import com.example.explorecalijpa.model.Region;
+
+/**
+ * The outcome of browsing the tours by facets.
+ *
+ * @param total  number of tours matching every selection
+ * @param facets count of tours per value of each facet, most tours first,
+ *               keyed by facet and value
+ * @param tours  a page of the matching tours in id order
+ */
+public record TourFacetResult(int total, Map<String, Map<String, Integer>> facets, List<Match> tours) {
+
+  /**
+   * A tour matching every selection.
+   */
+  public record Match(int tourId, String title, String tourPackageCode, Difficulty difficulty, Region region,
+      Integer price) {
+
+    static Match of(TourDocument doc) {
+      return new Match(doc.tourId(), doc.title(), doc.tourPackageCode(), doc.difficulty(), doc.region(),
+          doc.price());
+    }
+  }
+}
@@ -0,0 +1,245 @@
+package com.example.explorecalijpa.search;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tour counts by region, difficulty, tour package and price bucket, kept as
+ * one bitmap of tour ids per facet value so any combination of selections is
+ * answered by intersecting bitmaps instead of a COUNT query per combination.
+ *
+ * The counts of a facet ignore the selection made in that facet itself, so
+ * they show how many tours each alternative value would give. Browsing never
+ * locks: a put or remove clones the bitmaps it changes and swaps them in.
+ */
+public final class TourFacets {
+  static final int[] PRICE_BOUNDS = { 500, 1000, 2000 };
+
+  private static final BitSet NONE = new BitSet();
+
+  /**
+   * A facet and the name of its request parameter and result key.
+   */
+  public enum Facet {
+    REGION("region"), DIFFICULTY("difficulty"), TOUR_PACKAGE("tourPackage"), PRICE("price");
+
+    private final String key;
+
+    Facet(String key) {
+      this.key = key;
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    String valueOf(TourDocument doc) {
+      return switch (this) {
+        case REGION -> doc.region() == null ? null : doc.region().name();
+        case DIFFICULTY -> doc.difficulty() == null ? null : doc.difficulty().name();
+        case TOUR_PACKAGE -> doc.tourPackageCode();
+        case PRICE -> priceBucket(doc.price());
+      };
+    }
+  }
+
+  private final Map<Facet, Map<String, BitSet>> bitmaps = new EnumMap<>(Facet.class);
+  private final Map<Integer, TourDocument> docs;
+  // not synchronized: callers reindex tours loaded from the database while holding it
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private volatile BitSet all;
+
+  private TourFacets(Map<Facet, Map<String, BitSet>> bitmaps, Map<Integer, TourDocument> docs, BitSet all) {
+    this.bitmaps.putAll(bitmaps);
+    this.docs = docs;
+    this.all = all;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * The price bucket of a price: "0-499", "500-999", "1000-1999" or "2000+".
+   *
+   * @param price the price, may be null
+   * @return the bucket, null for a tour without a price
+   */
+  public static String priceBucket(Integer price) {
+    if (price == null) {
+      return null;
+    }
+    int low = 0;
+    for (int bound : PRICE_BOUNDS) {
+      if (price < bound) {
+        return low + "-" + (bound - 1);
+      }
+      low = bound;
+    }
+    return low + "+";
+  }
+
+  public int size() {
+    return docs.size();
+  }
+
+  /**
+   * The tours matching every selected facet value and the counts of each
+   * facet's values.
+   *
+   * @param selected value selected per facet, as returned in the counts
+   * @param after    only list tours with a greater id
+   * @param limit    maximum number of tours listed
+   * @return the number of matching tours, the counts and up to limit tours in
+   *         id order
+   */
+  public TourFacetResult browse(Map<Facet, String> selected, int after, int limit) {
+    BitSet everything = all;
+    Map<Facet, BitSet> selections = new EnumMap<>(Facet.class);
+    for (Map.Entry<Facet, String> s : selected.entrySet()) {
+      selections.put(s.getKey(), bitmaps.get(s.getKey()).getOrDefault(s.getValue(), NONE));
+    }
+    Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+    for (Facet facet : Facet.values()) {
+      BitSet others = intersect(everything, selections, facet);
+      List<Map.Entry<String, Integer>> values = new ArrayList<>();
+      for (Map.Entry<String, BitSet> v : bitmaps.get(facet).entrySet()) {
+        BitSet matching = (BitSet) others.clone();
+        matching.and(v.getValue());
+        int count = matching.cardinality();
+        if (count > 0) {
+          values.add(Map.entry(v.getKey(), count));
+        }
+      }
+      values.sort(Map.Entry.<String, Integer>comparingByValue().reversed()
+          .thenComparing(Map.Entry.comparingByKey()));
+      Map<String, Integer> facetCounts = new LinkedHashMap<>();
+      values.forEach(v -> facetCounts.put(v.getKey(), v.getValue()));
+      counts.put(facet.getKey(), facetCounts);
+    }
+    BitSet matching = intersect(everything, selections, null);
+    List<TourFacetResult.Match> tours = new ArrayList<>(Math.min(limit, matching.cardinality()));
+    for (int id = matching.nextSetBit(Math.max(after + 1, 0)); id >= 0 && tours.size() < limit;
+        id = matching.nextSetBit(id + 1)) {
+      TourDocument doc = docs.get(id);
+      if (doc != null) {
+        tours.add(TourFacetResult.Match.of(doc));
+      }
+    }
+    return new TourFacetResult(matching.cardinality(), counts, tours);
+  }
+
+  /**
+   * Add a tour, replacing the tour with the same id.
+   *
+   * @param doc the tour
+   */
+  public void put(TourDocument doc) {
+    writeLock.lock();
+    try {
+      removeDoc(doc.tourId());
+      for (Facet facet : Facet.values()) {
+        String value = facet.valueOf(doc);
+        if (value != null) {
+          BitSet bitmap = (BitSet) bitmaps.get(facet).getOrDefault(value, NONE).clone();
+          bitmap.set(doc.tourId());
+          bitmaps.get(facet).put(value, bitmap);
+        }
+      }
+      docs.put(doc.tourId(), doc);
+      BitSet updated = (BitSet) all.clone();
+      updated.set(doc.tourId());
+      all = updated;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Remove a tour if it is counted.
+   *
+   * @param tourId tour identifier
+   */
+  public void remove(int tourId) {
+    writeLock.lock();
+    try {
+      removeDoc(tourId);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private void removeDoc(int tourId) {
+    TourDocument old = docs.get(tourId);
+    if (old == null) {
+      return;
+    }
+    BitSet updated = (BitSet) all.clone();
+    updated.clear(tourId);
+    all = updated;
+    for (Facet facet : Facet.values()) {
+      String value = facet.valueOf(old);
+      if (value != null) {
+        BitSet bitmap = (BitSet) bitmaps.get(facet).get(value).clone();
+        bitmap.clear(tourId);
+        if (bitmap.isEmpty()) {
+          bitmaps.get(facet).remove(value);
+        } else {
+          bitmaps.get(facet).put(value, bitmap);
+        }
+      }
+    }
+    docs.remove(tourId);
+  }
+
+  private static BitSet intersect(BitSet everything, Map<Facet, BitSet> selections, Facet except) {
+    BitSet result = (BitSet) everything.clone();
+    for (Map.Entry<Facet, BitSet> s : selections.entrySet()) {
+      if (s.getKey() != except) {
+        result.and(s.getValue());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Collects tours and builds their facets in one pass. A tour added twice
+   * keeps its last version.
+   */
+  public static final class Builder {
+    private final Map<Integer, TourDocument> docs = new HashMap<>();
+
+    private Builder() {
+    }
+
+    public Builder add(TourDocument doc) {
+      docs.put(doc.tourId(), doc);
+      return this;
+    }
+
+    public TourFacets build() {
+      Map<Facet, Map<String, BitSet>> bitmaps = new EnumMap<>(Facet.class);
+      for (Facet facet : Facet.values()) {
+        bitmaps.put(facet, new ConcurrentHashMap<>());
+      }
+      BitSet all = new BitSet();
+      for (TourDocument doc : docs.values()) {
+        for (Facet facet : Facet.values()) {
+          String value = facet.valueOf(doc);
+          if (value != null) {
+            bitmaps.get(facet).computeIfAbsent(value, v -> new BitSet()).set(doc.tourId());
+          }
+        }
+        all.set(doc.tourId());
+      }
+      return new TourFacets(bitmaps, new ConcurrentHashMap<>(docs), all);
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package com.example.explorecalijpa.search;
+
+import com.example.explorecalijpa.model.Difficulty;
+import com.example.explorecalijpa.model.Region;
+
+/**
+ * Restricts a tour search; every criterion left null matches all tours. A
+ * price range leaves out tours without a price.
+ *
+ * @param difficulty      required difficulty
+ * @param region          required region
+ * @param tourPackageCode required tour package code
+ * @param minPrice        lowest price, inclusive
+ * @param maxPrice        highest price, inclusive
+ */
+public record TourSearchFilter(Difficulty difficulty, Region region, String tourPackageCode, Integer minPrice,
+    Integer maxPrice) {
+
+  public static final TourSearchFilter NONE = new TourSearchFilter(null, null, null, null, null);
+
+  boolean matches(TourDocument doc) {
+    if (difficulty != null && difficulty != doc.difficulty()) {
+      return false;
+    }
+    if (region != null && region != doc.region()) {
+      return false;
+    }
+    if (tourPackageCode != null && !tourPackageCode.equals(doc.tourPackageCode())) {
+      return false;
+    }
+    if (minPrice == null && maxPrice == null) {
+      return true;
+    }
+    Integer price = doc.price();
+    return price != null && (minPrice == null || price >= minPrice) && (maxPrice == null || price <= maxPrice);
+  }
+}
@@ -0,0 +1,16 @@
+package com.example.explorecalijpa.search;
+
+import com.example.explorecalijpa.model.Difficulty;
+import com.example.explorecalijpa.model.Region;
+
+/**
+ * A tour matching a search, with its BM25 relevance score.
+ */
+public record TourSearchHit(int tourId, String title, String tourPackageCode, Difficulty difficulty,
+    Region region, Integer price, double score) {
+
+  static TourSearchHit of(TourDocument doc, double score) {
+    return new TourSearchHit(doc.tourId(), doc.title(), doc.tourPackageCode(), doc.difficulty(), doc.region(),
+        doc.price(), score);
+  }
+}
@@ -0,0 +1,323 @@
+package com.example.explorecalijpa.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory inverted index of tours, ranked by BM25. Each term maps to the
+ * tours containing it, sorted by tour id, so a query walks the postings of
+ * its terms side by side and scores one tour at a time without a map of
+ * partial scores. Title and keywords count double.
+ *
+ * Searches never lock. A put or remove copies the postings of the terms it
+ * touches and swaps them in, so a search sees each term either before or
+ * after the change. Build large indexes with the builder instead, which
+ * writes every postings array once.
+ */
+public final class TourSearchIndex {
+  static final double K1 = 1.2;
+  static final double B = 0.75;
+
+  private static final Comparator<TourSearchHit> RANKING = Comparator
+      .comparingDouble(TourSearchHit::score).reversed()
+      .thenComparingInt(TourSearchHit::tourId);
+
+  private final Map<String, Postings> postings;
+  private final Map<Integer, Entry> entries;
+  // not synchronized: callers reindex tours loaded from the database while holding it
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private volatile long totalLength;
+
+  private TourSearchIndex(Map<String, Postings> postings, Map<Integer, Entry> entries, long totalLength) {
+    this.postings = postings;
+    this.entries = entries;
+    this.totalLength = totalLength;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public int termCount() {
+    return postings.size();
+  }
+
+  /**
+   * The tours best matching any of the terms of a query.
+   *
+   * @param query  free text
+   * @param filter restrictions on the tours returned
+   * @param limit  maximum number of tours
+   * @return up to limit tours, most relevant first
+   */
+  public List<TourSearchHit> search(String query, TourSearchFilter filter, int limit) {
+    int tours = entries.size();
+    if (tours == 0 || limit < 1) {
+      return List.of();
+    }
+    double averageLength = (double) totalLength / tours;
+    Set<String> queryTerms = new LinkedHashSet<>(TourTokenizer.tokenize(query));
+    Postings[] lists = new Postings[queryTerms.size()];
+    double[] idfs = new double[lists.length];
+    int terms = 0;
+    for (String term : queryTerms) {
+      Postings p = postings.get(term);
+      if (p != null) {
+        lists[terms] = p;
+        idfs[terms++] = Math.log(1 + (tours - p.size() + 0.5) / (p.size() + 0.5));
+      }
+    }
+    int[] cursors = new int[terms];
+    PriorityQueue<TourSearchHit> top = new PriorityQueue<>(limit + 1, RANKING.reversed());
+    while (true) {
+      boolean found = false;
+      int next = 0;
+      for (int t = 0; t < terms; t++) {
+        Postings p = lists[t];
+        if (cursors[t] < p.size()) {
+          int tourId = p.entries[cursors[t]].tourId();
+          if (!found || tourId < next) {
+            next = tourId;
+            found = true;
+          }
+        }
+      }
+      if (!found) {
+        break;
+      }
+      Entry entry = null;
+      double score = 0;
+      for (int t = 0; t < terms; t++) {
+        Postings p = lists[t];
+        int c = cursors[t];
+        if (c < p.size() && p.entries[c].tourId() == next) {
+          entry = p.entries[c];
+          int tf = p.freqs[c];
+          double norm = K1 * (1 - B + B * entry.length / averageLength);
+          score += idfs[t] * tf * (K1 + 1) / (tf + norm);
+          cursors[t]++;
+        }
+      }
+      if (filter.matches(entry.doc)) {
+        offer(top, TourSearchHit.of(entry.doc, score), limit);
+      }
+    }
+    List<TourSearchHit> hits = new ArrayList<>(top);
+    hits.sort(RANKING);
+    return hits;
+  }
+
+  /**
+   * Add a tour, replacing the tour with the same id.
+   *
+   * @param doc the tour
+   */
+  public void put(TourDocument doc) {
+    writeLock.lock();
+    try {
+      removeEntry(doc.tourId());
+      Map<String, Integer> freqs = termFrequencies(doc);
+      Entry entry = new Entry(doc, length(freqs), freqs.keySet().toArray(String[]::new));
+      for (Map.Entry<String, Integer> f : freqs.entrySet()) {
+        Postings p = postings.get(f.getKey());
+        postings.put(f.getKey(), p == null ? new Postings(entry, f.getValue()) : p.with(entry, f.getValue()));
+      }
+      entries.put(doc.tourId(), entry);
+      totalLength += entry.length;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Remove a tour if it is indexed.
+   *
+   * @param tourId tour identifier
+   */
+  public void remove(int tourId) {
+    writeLock.lock();
+    try {
+      removeEntry(tourId);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private void removeEntry(int tourId) {
+    Entry old = entries.remove(tourId);
+    if (old == null) {
+      return;
+    }
+    for (String term : old.terms) {
+      Postings p = postings.get(term).without(tourId);
+      if (p.size() == 0) {
+        postings.remove(term);
+      } else {
+        postings.put(term, p);
+      }
+    }
+    totalLength -= old.length;
+  }
+
+  private static void offer(PriorityQueue<TourSearchHit> top, TourSearchHit hit, int limit) {
+    if (top.size() < limit) {
+      top.add(hit);
+    } else if (RANKING.compare(hit, top.peek()) < 0) {
+      top.poll();
+      top.add(hit);
+    }
+  }
+
+  private static Map<String, Integer> termFrequencies(TourDocument doc) {
+    Map<String, Integer> freqs = new HashMap<>();
+    for (String t : TourTokenizer.tokenize(doc.title())) {
+      freqs.merge(t, 2, Integer::sum);
+    }
+    for (String t : TourTokenizer.tokenize(doc.keywords())) {
+      freqs.merge(t, 2, Integer::sum);
+    }
+    for (String t : TourTokenizer.tokenize(doc.text())) {
+      freqs.merge(t, 1, Integer::sum);
+    }
+    return freqs;
+  }
+
+  private static int length(Map<String, Integer> freqs) {
+    int length = 0;
+    for (int f : freqs.values()) {
+      length += f;
+    }
+    return length;
+  }
+
+  /**
+   * An indexed tour, its weighted length in terms and its distinct terms.
+   */
+  private record Entry(TourDocument doc, int length, String[] terms) {
+
+    int tourId() {
+      return doc.tourId();
+    }
+  }
+
+  /**
+   * The tours containing a term, sorted by tour id, and how often each
+   * contains it. Never changed once published.
+   */
+  private static final class Postings {
+    private final Entry[] entries;
+    private final int[] freqs;
+
+    Postings(Entry entry, int freq) {
+      this(new Entry[] { entry }, new int[] { freq });
+    }
+
+    Postings(Entry[] entries, int[] freqs) {
+      this.entries = entries;
+      this.freqs = freqs;
+    }
+
+    int size() {
+      return entries.length;
+    }
+
+    Postings with(Entry entry, int freq) {
+      int at = -(indexOf(entry.tourId()) + 1);
+      Entry[] e = new Entry[entries.length + 1];
+      int[] f = new int[freqs.length + 1];
+      System.arraycopy(entries, 0, e, 0, at);
+      System.arraycopy(freqs, 0, f, 0, at);
+      e[at] = entry;
+      f[at] = freq;
+      System.arraycopy(entries, at, e, at + 1, entries.length - at);
+      System.arraycopy(freqs, at, f, at + 1, freqs.length - at);
+      return new Postings(e, f);
+    }
+
+    Postings without(int tourId) {
+      int at = indexOf(tourId);
+      Entry[] e = new Entry[entries.length - 1];
+      int[] f = new int[freqs.length - 1];
+      System.arraycopy(entries, 0, e, 0, at);
+      System.arraycopy(freqs, 0, f, 0, at);
+      System.arraycopy(entries, at + 1, e, at, entries.length - at - 1);
+      System.arraycopy(freqs, at + 1, f, at, freqs.length - at - 1);
+      return new Postings(e, f);
+    }
+
+    private int indexOf(int tourId) {
+      int low = 0;
+      int high = entries.length - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        int id = entries[mid].tourId();
+        if (id < tourId) {
+          low = mid + 1;
+        } else if (id > tourId) {
+          high = mid - 1;
+        } else {
+          return mid;
+        }
+      }
+      return -(low + 1);
+    }
+  }
+
+  /**
+   * Collects tours and builds an index of them in one pass. A tour added
+   * twice keeps its last version.
+   */
+  public static final class Builder {
+    private final Map<Integer, TourDocument> docs = new HashMap<>();
+
+    private Builder() {
+    }
+
+    public Builder add(TourDocument doc) {
+      docs.put(doc.tourId(), doc);
+      return this;
+    }
+
+    public TourSearchIndex build() {
+      TourDocument[] sorted = docs.values().toArray(TourDocument[]::new);
+      Arrays.sort(sorted, Comparator.comparingInt(TourDocument::tourId));
+      Map<String, List<Entry>> entriesByTerm = new HashMap<>();
+      Map<String, List<Integer>> freqsByTerm = new HashMap<>();
+      Map<Integer, Entry> entries = new ConcurrentHashMap<>(sorted.length * 2);
+      long totalLength = 0;
+      for (TourDocument doc : sorted) {
+        Map<String, Integer> freqs = termFrequencies(doc);
+        Entry entry = new Entry(doc, length(freqs), freqs.keySet().toArray(String[]::new));
+        for (Map.Entry<String, Integer> f : freqs.entrySet()) {
+          entriesByTerm.computeIfAbsent(f.getKey(), k -> new ArrayList<>()).add(entry);
+          freqsByTerm.computeIfAbsent(f.getKey(), k -> new ArrayList<>()).add(f.getValue());
+        }
+        entries.put(doc.tourId(), entry);
+        totalLength += entry.length;
+      }
+      Map<String, Postings> postings = new ConcurrentHashMap<>(entriesByTerm.size() * 2);
+      for (Map.Entry<String, List<Entry>> e : entriesByTerm.entrySet()) {
+        List<Integer> freqs = freqsByTerm.get(e.getKey());
+        int[] f = new int[freqs.size()];
+        for (int i = 0; i < f.length; i++) {
+          f[i] = freqs.get(i);
+        }
+        postings.put(e.getKey(), new Postings(e.getValue().toArray(Entry[]::new), f));
+      }
+      return new TourSearchIndex(postings, entries, totalLength);
+    }
+  }
+}
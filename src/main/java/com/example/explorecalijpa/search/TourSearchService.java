@@ -0,0 +1,131 @@
+package com.example.explorecalijpa.search;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.explorecalijpa.business.TourCatalogChanged;
+import com.example.explorecalijpa.model.Tour;
+import com.example.explorecalijpa.repo.TourRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Full-text search and faceted browsing over the tour catalog. The
+ * TourSearchIndex and TourFacets are built from the tour table at startup and
+ * kept current from the TourCatalogChanged events of TourService and the
+ * Spring Data REST /tours endpoints; a change that does not name its tour
+ * rebuilds both.
+ */
+@Service
+@Slf4j
+public class TourSearchService {
+  private final TourRepository tourRepository;
+  private final TransactionTemplate readOnlyTx;
+  // not synchronized: rebuild and reindex query the database while holding the lock,
+  // which would pin a virtual thread to its carrier
+  private final ReentrantLock writeLock = new ReentrantLock();
+
+  private volatile TourSearchIndex index = TourSearchIndex.builder().build();
+  private volatile TourFacets facets = TourFacets.builder().build();
+
+  public TourSearchService(TourRepository tourRepository, PlatformTransactionManager txManager) {
+    this.tourRepository = tourRepository;
+    this.readOnlyTx = new TransactionTemplate(txManager);
+    this.readOnlyTx.setReadOnly(true);
+  }
+
+  /**
+   * Search the tours.
+   *
+   * @param query  free text matched against title, keywords, description,
+   *               blurb and bullets
+   * @param filter restrictions on the tours returned
+   * @param limit  maximum number of tours
+   * @return up to limit tours, most relevant first
+   */
+  public List<TourSearchHit> search(String query, TourSearchFilter filter, int limit) {
+    log.info("Search tours for '{}' with {}", query, filter);
+    return index.search(query, filter, limit);
+  }
+
+  /**
+   * Browse the tours by region, difficulty, tour package and price bucket.
+   *
+   * @param selected value selected per facet
+   * @param after    only list tours with a greater id
+   * @param limit    maximum number of tours listed
+   * @return the matching tours and the counts of every facet value
+   */
+  public TourFacetResult browse(Map<TourFacets.Facet, String> selected, int after, int limit) {
+    log.info("Browse tours by {}", selected);
+    return facets.browse(selected, after, limit);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUp() {
+    rebuild();
+  }
+
+  /**
+   * Replace the index and the facets with ones built from the tour table.
+   */
+  public void rebuild() {
+    long start = System.nanoTime();
+    TourSearchIndex.Builder builder = TourSearchIndex.builder();
+    TourFacets.Builder facetsBuilder = TourFacets.builder();
+    TourSearchIndex built;
+    writeLock.lock();
+    try {
+      readOnlyTx.executeWithoutResult(status -> {
+        try (Stream<Tour> tours = tourRepository.streamAll()) {
+          tours.map(TourDocument::of).forEach(doc -> {
+            builder.add(doc);
+            facetsBuilder.add(doc);
+          });
+        }
+      });
+      built = builder.build();
+      index = built;
+      facets = facetsBuilder.build();
+    } finally {
+      writeLock.unlock();
+    }
+    log.info("Tour search index built in {} ms: {} tours, {} terms", (System.nanoTime() - start) / 1_000_000,
+        built.size(), built.termCount());
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onTourCatalogChanged(TourCatalogChanged event) {
+    if (event.tourId() != null) {
+      reindex(event.tourId());
+    } else if (event.tourPackageCode() == null) {
+      rebuild();
+    }
+  }
+
+  private void reindex(int tourId) {
+    writeLock.lock();
+    try {
+      tourRepository.findById(tourId).map(TourDocument::of).ifPresentOrElse(
+          doc -> {
+            index.put(doc);
+            facets.put(doc);
+          },
+          () -> {
+            index.remove(tourId);
+            facets.remove(tourId);
+          });
+    } finally {
+      writeLock.unlock();
+    }
+  }
+}
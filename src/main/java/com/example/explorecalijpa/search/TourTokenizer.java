@@ -0,0 +1,40 @@
+package com.example.explorecalijpa.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Splits text into lower-cased runs of letters and digits, leaving out single
+ * characters and common English words.
+ */
+final class TourTokenizer {
+  private static final Set<String> STOP_WORDS = Set.of("an", "and", "are", "as", "at", "be", "by", "for", "from",
+      "in", "is", "it", "of", "on", "or", "the", "to", "with", "you", "your");
+
+  private TourTokenizer() {
+  }
+
+  static List<String> tokenize(String text) {
+    List<String> tokens = new ArrayList<>();
+    if (text == null) {
+      return tokens;
+    }
+    StringBuilder token = new StringBuilder();
+    for (int i = 0; i <= text.length(); i++) {
+      char c = i < text.length() ? text.charAt(i) : ' ';
+      if (Character.isLetterOrDigit(c)) {
+        token.append(Character.toLowerCase(c));
+      } else if (!token.isEmpty()) {
+        if (token.length() > 1) {
+          String t = token.toString();
+          if (!STOP_WORDS.contains(t)) {
+            tokens.add(t);
+          }
+        }
+        token.setLength(0);
+      }
+    }
+    return tokens;
+  }
+}
@@ -0,0 +1,27 @@
+package com.example.explorecalijpa.web;
+
+import com.example.explorecalijpa.model.TourRating;
+
+/**
+ * One line of the ratings export.
+ *
+ * @param id         rating identifier
+ * @param tourId     tour identifier
+ * @param customerId customer identifier
+ * @param score      score
+ * @param comment    comment, may be null
+ */
+public record ExportedRating(Integer id, Integer tourId, Integer customerId, Integer score, String comment) {
+
+  /**
+   * Copy a rating, reading only the id of its lazy tour so the tour is never
+   * loaded.
+   *
+   * @param rating the rating
+   * @return the exported rating
+   */
+  public static ExportedRating of(TourRating rating) {
+    return new ExportedRating(rating.getId(), rating.getTour().getId(), rating.getCustomerId(),
+        rating.getScore(), rating.getComment());
+  }
+}
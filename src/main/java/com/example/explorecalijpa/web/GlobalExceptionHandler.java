@@ -2,6 +2,8 @@ package com.example.explorecalijpa.web;
 
 import java.util.NoSuchElementException;
 
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
@@ -10,6 +12,10 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import com.example.explorecalijpa.business.RatingQueueFullException;
+import com.example.explorecalijpa.business.RatingWritePendingException;
+import com.example.explorecalijpa.business.RatingWriterUnavailableException;
+
 import jakarta.validation.ConstraintViolationException;
 
 @ControllerAdvice
@@ -44,6 +50,75 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
     return  createResponseEntity(pd, null, HttpStatus.BAD_REQUEST, request);
   }
   
+  /**
+   * Leverage Exception Handler framework for writes rejected by a database
+   * constraint, such as a duplicate rating of a tour by the same customer.
+   *
+   * @param ex      DataIntegrityViolationException
+   * @param request WebRequest
+   * @return http response
+   */
+  @ExceptionHandler(DataIntegrityViolationException.class)
+  public final ResponseEntity<Object> handleDataIntegrityViolationException(
+      DataIntegrityViolationException ex, WebRequest request) {
+
+    ProblemDetail pd = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST,
+        "Request conflicts with existing data");
+    return  createResponseEntity(pd, null, HttpStatus.BAD_REQUEST, request);
+  }
+
+  /**
+   * Leverage Exception Handler framework for rating submissions turned away
+   * because the write-behind queue is full.
+   *
+   * @param ex      RatingQueueFullException
+   * @param request WebRequest
+   * @return http response
+   */
+  @ExceptionHandler(RatingQueueFullException.class)
+  public final ResponseEntity<Object> handleRatingQueueFullException(
+      RatingQueueFullException ex, WebRequest request) {
+
+    ProblemDetail pd = ProblemDetail.forStatusAndDetail(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage());
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.RETRY_AFTER, "1");
+    return  createResponseEntity(pd, headers, HttpStatus.TOO_MANY_REQUESTS, request);
+  }
+
+  /**
+   * Leverage Exception Handler framework for rating submissions turned away
+   * because the write-behind writer is not running.
+   *
+   * @param ex      RatingWriterUnavailableException
+   * @param request WebRequest
+   * @return http response
+   */
+  @ExceptionHandler(RatingWriterUnavailableException.class)
+  public final ResponseEntity<Object> handleRatingWriterUnavailableException(
+      RatingWriterUnavailableException ex, WebRequest request) {
+
+    ProblemDetail pd = ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+    return  createResponseEntity(pd, null, HttpStatus.SERVICE_UNAVAILABLE, request);
+  }
+
+  /**
+   * Leverage Exception Handler framework for rating changes that a queued
+   * write-behind rating would undo.
+   *
+   * @param ex      RatingWritePendingException
+   * @param request WebRequest
+   * @return http response
+   */
+  @ExceptionHandler(RatingWritePendingException.class)
+  public final ResponseEntity<Object> handleRatingWritePendingException(
+      RatingWritePendingException ex, WebRequest request) {
+
+    ProblemDetail pd = ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, ex.getMessage());
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.RETRY_AFTER, "1");
+    return  createResponseEntity(pd, headers, HttpStatus.CONFLICT, request);
+  }
+
   /**
    * Leverage Exception Handler frameworf for unexpected Exceptions.
    * 
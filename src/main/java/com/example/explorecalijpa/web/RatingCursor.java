@@ -0,0 +1,39 @@
+package com.example.explorecalijpa.web;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import jakarta.validation.ConstraintViolationException;
+
+/**
+ * Opaque continuation token of a page of tour ratings: the tour and the id of
+ * the last rating returned, so the next page starts right after it.
+ */
+final class RatingCursor {
+
+  private RatingCursor() {
+  }
+
+  static String encode(int tourId, int lastId) {
+    String plain = tourId + ":" + lastId;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * @return the id of the last rating of the previous page
+   * @throws ConstraintViolationException if the token is malformed or belongs
+   *                                      to another tour
+   */
+  static int decode(int tourId, String token) throws ConstraintViolationException {
+    try {
+      String plain = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+      int separator = plain.indexOf(':');
+      if (separator > 0 && Integer.parseInt(plain.substring(0, separator)) == tourId) {
+        return Integer.parseInt(plain.substring(separator + 1));
+      }
+    } catch (IllegalArgumentException e) {
+      // falls through to the invalid cursor error, NumberFormatException included
+    }
+    throw new ConstraintViolationException("Invalid cursor for tour " + tourId, null);
+  }
+}
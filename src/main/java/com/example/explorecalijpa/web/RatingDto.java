@@ -1,6 +1,7 @@
 package com.example.explorecalijpa.web;
 
 import com.example.explorecalijpa.model.TourRating;
+import com.example.explorecalijpa.repo.TourRatingView;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
@@ -19,7 +20,7 @@ public class RatingDto {
   @Max(5)
   private Integer score;
 
-  @Size(max = 255)
+  @Size(max = 100)
   private String comment;
 
   @NotNull
@@ -43,4 +44,10 @@ public class RatingDto {
     this.comment = entity.getComment();
     this.customerId = entity.getCustomerId();
   }
+
+  public RatingDto(TourRatingView view) {
+    this.score = view.getScore();
+    this.comment = view.getComment();
+    this.customerId = view.getCustomerId();
+  }
 }
@@ -0,0 +1,122 @@
+package com.example.explorecalijpa.web;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.example.explorecalijpa.business.TourRatingExporter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Export every Tour Rating as CSV or newline delimited JSON, written while
+ * the ratings are read from the database.
+ */
+@RestController
+@Slf4j
+@Tag(name = "Tour Rating Export", description = "Bulk export of all Tour Ratings")
+@RequestMapping(path = "/ratings/export")
+public class RatingExportController {
+  static final String CSV_VALUE = "text/csv";
+  static final String CSV_HEADER = "id,tourId,customerId,score,comment\n";
+
+  private TourRatingExporter exporter;
+  private ObjectMapper objectMapper;
+
+  public RatingExportController(TourRatingExporter exporter, ObjectMapper objectMapper) {
+    this.exporter = exporter;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Export all Ratings as CSV with a header row.
+   *
+   * @return the ratings, one row per line
+   */
+  @GetMapping(produces = CSV_VALUE)
+  @Operation(summary = "Export All Ratings as CSV")
+  public ResponseEntity<StreamingResponseBody> exportCsv() {
+    log.info("GET /ratings/export as {}", CSV_VALUE);
+    StreamingResponseBody body = out -> {
+      Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+      writer.write(CSV_HEADER);
+      exporter.exportAll(rating -> {
+        try {
+          writeCsv(writer, ExportedRating.of(rating));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+      writer.flush();
+    };
+    return attachment("ratings.csv", CSV_VALUE, body);
+  }
+
+  /**
+   * Export all Ratings as newline delimited JSON.
+   *
+   * @return the ratings, one JSON object per line
+   */
+  @GetMapping(produces = TourRatingController.NDJSON_VALUE)
+  @Operation(summary = "Export All Ratings as NDJSON")
+  public ResponseEntity<StreamingResponseBody> exportNdjson() {
+    log.info("GET /ratings/export as {}", TourRatingController.NDJSON_VALUE);
+    ObjectWriter jsonWriter = objectMapper.writerFor(ExportedRating.class);
+    StreamingResponseBody body = out -> {
+      OutputStream buffered = new BufferedOutputStream(out);
+      exporter.exportAll(rating -> {
+        try {
+          buffered.write(jsonWriter.writeValueAsBytes(ExportedRating.of(rating)));
+          buffered.write('\n');
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+      buffered.flush();
+    };
+    return attachment("ratings.ndjson", TourRatingController.NDJSON_VALUE, body);
+  }
+
+  private static ResponseEntity<StreamingResponseBody> attachment(String filename, String mediaType,
+      StreamingResponseBody body) {
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(mediaType))
+        .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+        .body(body);
+  }
+
+  static void writeCsv(Writer writer, ExportedRating rating) throws IOException {
+    writer.write(String.valueOf(rating.id()));
+    writer.write(',');
+    writer.write(String.valueOf(rating.tourId()));
+    writer.write(',');
+    writer.write(String.valueOf(rating.customerId()));
+    writer.write(',');
+    writer.write(String.valueOf(rating.score()));
+    writer.write(',');
+    if (rating.comment() != null) {
+      writer.write('"');
+      writer.write(rating.comment().replace("\"", "\"\""));
+      writer.write('"');
+    }
+    writer.write('\n');
+  }
+}
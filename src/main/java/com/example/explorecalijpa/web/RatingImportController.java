@@ -0,0 +1,75 @@
+package com.example.explorecalijpa.web;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.explorecalijpa.business.RatingImportSummary;
+import com.example.explorecalijpa.business.TourRatingImporter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Import Tour Ratings for any tours and customers from a CSV or newline
+ * delimited JSON feed. The body is parsed while it is read, so the size of a
+ * feed is not limited by memory.
+ */
+@RestController
+@Slf4j
+@Tag(name = "Tour Rating Import", description = "Bulk import of Tour Ratings")
+@RequestMapping(path = "/ratings/import")
+public class RatingImportController {
+  private TourRatingImporter importer;
+  private ObjectMapper objectMapper;
+  private Validator validator;
+
+  public RatingImportController(TourRatingImporter importer, ObjectMapper objectMapper, Validator validator) {
+    this.importer = importer;
+    this.objectMapper = objectMapper;
+    this.validator = validator;
+  }
+
+  /**
+   * Import Ratings from CSV with the header tourId,customerId,score,comment.
+   *
+   * @param body request body
+   * @return how many rows were accepted and rejected, and why
+   */
+  @PostMapping(consumes = RatingExportController.CSV_VALUE)
+  @Operation(summary = "Import Ratings from CSV")
+  public RatingImportSummary importCsv(InputStream body) throws IOException {
+    log.info("POST /ratings/import as {}", RatingExportController.CSV_VALUE);
+    return importRatings(body, RatingImportReader.Format.CSV);
+  }
+
+  /**
+   * Import Ratings from newline delimited JSON objects with the fields tourId,
+   * customerId, score and comment.
+   *
+   * @param body request body
+   * @return how many rows were accepted and rejected, and why
+   */
+  @PostMapping(consumes = TourRatingController.NDJSON_VALUE)
+  @Operation(summary = "Import Ratings from NDJSON")
+  public RatingImportSummary importNdjson(InputStream body) throws IOException {
+    log.info("POST /ratings/import as {}", TourRatingController.NDJSON_VALUE);
+    return importRatings(body, RatingImportReader.Format.NDJSON);
+  }
+
+  private RatingImportSummary importRatings(InputStream body, RatingImportReader.Format format) throws IOException {
+    RatingImportSummary summary = new RatingImportSummary();
+    try (BufferedReader in = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8), 64 * 1024)) {
+      return importer.importRatings(new RatingImportReader(in, format, objectMapper, validator, summary), summary);
+    }
+  }
+}
@@ -0,0 +1,274 @@
+package com.example.explorecalijpa.web;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.example.explorecalijpa.business.RatingImportRow;
+import com.example.explorecalijpa.business.RatingImportSummary;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+
+/**
+ * Parses a ratings import one row at a time as the request body is read. Each
+ * row is checked against the RatingDto constraints; rows that fail to parse
+ * or validate are added to the summary as rejected and skipped.
+ *
+ * CSV input starts with the header tourId,customerId,score,comment; comments
+ * may be quoted, with "" for a quote. NDJSON input has one object per line
+ * with the same fields.
+ *
+ * A row is rejected as soon as it runs past MAX_RECORD_LENGTH characters, or
+ * a CSV field past MAX_FIELD_LENGTH, and reading resumes at the next line, so
+ * an unterminated quote or a runaway line is never buffered whole.
+ */
+class RatingImportReader implements Iterator<RatingImportRow> {
+  static final String CSV_HEADER = "tourId,customerId,score,comment";
+  // the longest field is the comment, tour_rating.comment is VARCHAR(100)
+  static final int MAX_FIELD_LENGTH = 100;
+  // room for all fields with every quote of the comment doubled, or the same as JSON
+  static final int MAX_RECORD_LENGTH = 1000;
+
+  enum Format {
+    CSV, NDJSON
+  }
+
+  private final BufferedReader in;
+  private final Format format;
+  private final ObjectMapper objectMapper;
+  private final Validator validator;
+  private final RatingImportSummary summary;
+
+  private long row;
+  private long line;
+  private RatingImportRow next;
+
+  /**
+   * @throws ConstraintViolationException if CSV input lacks the header
+   */
+  RatingImportReader(BufferedReader in, Format format, ObjectMapper objectMapper, Validator validator,
+      RatingImportSummary summary) throws IOException, ConstraintViolationException {
+    this.in = in;
+    this.format = format;
+    this.objectMapper = objectMapper;
+    this.validator = validator;
+    this.summary = summary;
+    if (format == Format.CSV) {
+      List<String> header;
+      try {
+        header = readCsvRecord();
+      } catch (IllegalArgumentException e) {
+        header = null;
+      }
+      if (header == null || !CSV_HEADER.equals(String.join(",", header).strip())) {
+        throw new ConstraintViolationException("CSV import must start with the header " + CSV_HEADER, null);
+      }
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (next == null) {
+      String error;
+      try {
+        RatingFields fields = format == Format.CSV ? readCsvFields() : readJsonFields();
+        if (fields == null) {
+          return false;
+        }
+        row++;
+        error = validate(fields);
+        if (error == null) {
+          next = new RatingImportRow(row, fields.tourId, fields.dto.getCustomerId(), fields.dto.getScore(),
+              fields.dto.getComment());
+        }
+      } catch (IllegalArgumentException | JsonProcessingException e) {
+        row++;
+        error = "Malformed row: " + e.getMessage();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      if (error != null) {
+        summary.reject(row, error);
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public RatingImportRow next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    RatingImportRow current = next;
+    next = null;
+    return current;
+  }
+
+  private record RatingFields(Integer tourId, RatingDto dto) {
+  }
+
+  private String validate(RatingFields fields) {
+    if (fields.tourId == null) {
+      return "tourId: must not be null";
+    }
+    if (fields.dto.getScore() == null) {
+      return "score: must not be null";
+    }
+    Set<ConstraintViolation<RatingDto>> violations = validator.validate(fields.dto);
+    if (violations.isEmpty()) {
+      return null;
+    }
+    return violations.stream()
+        .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+        .sorted()
+        .collect(Collectors.joining(", "));
+  }
+
+  private RatingFields readJsonFields() throws IOException {
+    String json;
+    do {
+      json = readLine();
+      if (json == null) {
+        return null;
+      }
+    } while (json.isBlank());
+    JsonNode node = objectMapper.readTree(json);
+    if (!node.isObject()) {
+      throw new IllegalArgumentException("not a JSON object");
+    }
+    JsonNode tourId = node.get("tourId");
+    if (tourId != null && !tourId.isNull() && !tourId.isInt()) {
+      throw new IllegalArgumentException("tourId is not an integer");
+    }
+    return new RatingFields(tourId == null || tourId.isNull() ? null : tourId.intValue(),
+        objectMapper.treeToValue(node, RatingDto.class));
+  }
+
+  private RatingFields readCsvFields() throws IOException {
+    List<String> record;
+    do {
+      record = readCsvRecord();
+      if (record == null) {
+        return null;
+      }
+    } while (record.size() == 1 && record.get(0).isBlank());
+    if (record.size() < 3 || record.size() > 4) {
+      throw new IllegalArgumentException("expected 3 or 4 fields but found " + record.size());
+    }
+    String comment = record.size() == 4 && !record.get(3).isEmpty() ? record.get(3) : null;
+    return new RatingFields(parseInt(record.get(0)),
+        new RatingDto(parseInt(record.get(2)), comment, parseInt(record.get(1))));
+  }
+
+  private static Integer parseInt(String field) {
+    return field.isBlank() ? null : Integer.valueOf(field.strip());
+  }
+
+  /**
+   * Read one line of at most MAX_RECORD_LENGTH characters.
+   *
+   * @return the line, or null at the end of the input
+   * @throws IllegalArgumentException if the line is longer, after skipping it
+   */
+  private String readLine() throws IOException {
+    int c = in.read();
+    if (c == -1) {
+      return null;
+    }
+    long start = ++line;
+    StringBuilder text = new StringBuilder();
+    while (c != -1 && c != '\n') {
+      if (c != '\r') {
+        if (text.length() == MAX_RECORD_LENGTH) {
+          skipLine();
+          throw new IllegalArgumentException(
+              "line " + start + " is longer than " + MAX_RECORD_LENGTH + " characters");
+        }
+        text.append((char) c);
+      }
+      c = in.read();
+    }
+    return text.toString();
+  }
+
+  /**
+   * Read one CSV record, which may span lines inside a quoted field.
+   *
+   * @return the fields, or null at the end of the input
+   * @throws IllegalArgumentException if the record is malformed or too long,
+   *                                  after skipping the rest of its line
+   */
+  private List<String> readCsvRecord() throws IOException {
+    int c = in.read();
+    if (c == -1) {
+      return null;
+    }
+    long start = ++line;
+    List<String> fields = new ArrayList<>(4);
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    int length = 0;
+    while (c != -1) {
+      if (quoted) {
+        if (c == '"') {
+          in.mark(1);
+          int following = in.read();
+          if (following == '"') {
+            field.append('"');
+          } else {
+            quoted = false;
+            in.reset();
+          }
+        } else {
+          if (c == '\n') {
+            line++;
+          }
+          field.append((char) c);
+        }
+      } else if (c == '"' && field.isEmpty()) {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else if (c == '\n') {
+        break;
+      } else if (c != '\r') {
+        field.append((char) c);
+      }
+      if (++length > MAX_RECORD_LENGTH) {
+        skipLine();
+        throw new IllegalArgumentException("record starting on line " + start + " is longer than "
+            + MAX_RECORD_LENGTH + " characters");
+      }
+      if (field.length() > MAX_FIELD_LENGTH) {
+        skipLine();
+        throw new IllegalArgumentException("field " + (fields.size() + 1) + " of the record starting on line "
+            + start + " is longer than " + MAX_FIELD_LENGTH + " characters");
+      }
+      c = in.read();
+    }
+    if (quoted) {
+      throw new IllegalArgumentException("unterminated quoted field starting on line " + start);
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+
+  private void skipLine() throws IOException {
+    int c;
+    do {
+      c = in.read();
+    } while (c != -1 && c != '\n');
+  }
+}
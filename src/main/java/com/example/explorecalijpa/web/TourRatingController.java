@@ -1,10 +1,17 @@
 package com.example.explorecalijpa.web;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
@@ -16,13 +23,21 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.example.explorecalijpa.business.RateManyResult;
+import com.example.explorecalijpa.business.RatingWriteBehind;
 import com.example.explorecalijpa.business.TourRatingService;
-import com.example.explorecalijpa.model.TourRating;
+import com.example.explorecalijpa.repo.TourRatingView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -31,56 +46,121 @@ import lombok.extern.slf4j.Slf4j;
  * Created by Mary Ellen Bowman
  */
 @RestController
+@Validated
 @Slf4j
 @Tag(name = "Tour Rating", description = "The Rating for a Tour API")
 @RequestMapping(path = "/tours/{tourId}/ratings")
 public class TourRatingController {
+  static final String NDJSON_VALUE = "application/x-ndjson";
+
   private TourRatingService tourRatingService;
+  private ObjectMapper objectMapper;
+  private Optional<RatingWriteBehind> writeBehind;
 
-  public TourRatingController(TourRatingService tourRatingService) {
+  public TourRatingController(TourRatingService tourRatingService, ObjectMapper objectMapper,
+      Optional<RatingWriteBehind> writeBehind) {
     this.tourRatingService = tourRatingService;
+    this.objectMapper = objectMapper;
+    this.writeBehind = writeBehind;
   }
 
   /**
-   * Create a Tour Rating.
+   * Create a Tour Rating, or replace the customer's existing rating of the tour.
    *
    * @param tourId
    * @param ratingDto
+   * @return the Rating DTO, with status 201 if it was created and 200 if it
+   *         replaced a rating, or 202 if it was queued in write-behind mode
    */
   @PostMapping
-  @ResponseStatus(HttpStatus.CREATED)
-  @Operation(summary = "Create a Tour Rating")
-  public RatingDto createTourRating(@PathVariable(value = "tourId") int tourId,
+  @Operation(summary = "Create or Replace a Tour Rating")
+  public ResponseEntity<RatingDto> createTourRating(@PathVariable(value = "tourId") int tourId,
       @RequestBody @Valid RatingDto ratingDto) {
     log.info("POST /tours/{}/ratings ", tourId);
-    TourRating rating = tourRatingService.createNew(tourId, ratingDto.getCustomerId(), 
+    if (writeBehind.isPresent()) {
+      writeBehind.get().submit(tourId, ratingDto.getCustomerId(), ratingDto.getScore(), ratingDto.getComment());
+      return ResponseEntity.accepted().body(ratingDto);
+    }
+    boolean created = tourRatingService.upsert(tourId, ratingDto.getCustomerId(),
         ratingDto.getScore(), ratingDto.getComment());
-    return new RatingDto(rating);
+    return ResponseEntity.status(created ? HttpStatus.CREATED : HttpStatus.OK)
+        .body(new RatingDto(ratingDto.getScore(), ratingDto.getComment(), ratingDto.getCustomerId()));
   }
 
-  @GetMapping
-  @Operation(summary = "Lookup All Ratings for a Tour")
-  public List<RatingDto> getAllRatingsForTour(@PathVariable(value = "tourId") int tourId) {
+  /**
+   * Lookup a page of the Ratings for a Tour. A Link header with rel="next"
+   * carries the cursor of the following page when there may be one. Before
+   * paging this returned every rating, so clients must follow the links.
+   *
+   * @param tourId
+   * @param cursor continuation token from the previous page
+   * @param limit  page size
+   * @return the page of ratings
+   */
+  @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+  @Operation(summary = "Lookup All Ratings for a Tour", description = """
+      Returns one page of ratings, at most limit (default 100, at most 1000), in rating id order. \
+      Breaking change: this used to return every rating of the tour in one response; a client that \
+      needs them all follows the Link header with rel="next" until it is absent, or asks for \
+      application/x-ndjson to stream them.""")
+  public ResponseEntity<List<RatingDto>> getAllRatingsForTour(@PathVariable(value = "tourId") int tourId,
+      @RequestParam(value = "cursor", required = false) String cursor,
+      @RequestParam(value = "limit", defaultValue = "100") @Min(1) @Max(1000) int limit) {
     log.info("GET /tours/{}/ratings", tourId);
-    List<TourRating> tourRatings = tourRatingService.lookupRatings(tourId);
-    return tourRatings.stream().map(RatingDto::new).toList();
+    Integer afterId = cursor == null ? null : RatingCursor.decode(tourId, cursor);
+    List<TourRatingView> ratings = tourRatingService.lookupRatings(tourId, afterId, limit);
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+    if (ratings.size() == limit) {
+      String next = ServletUriComponentsBuilder.fromCurrentRequest()
+          .replaceQueryParam("cursor", RatingCursor.encode(tourId, ratings.get(limit - 1).getId()))
+          .toUriString();
+      response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+    }
+    return response.body(ratings.stream().map(RatingDto::new).toList());
+  }
+
+  /**
+   * Stream all Ratings for a Tour as newline delimited JSON, written while
+   * they are read from the database.
+   *
+   * @param tourId
+   * @return the ratings, one JSON object per line
+   */
+  @GetMapping(produces = NDJSON_VALUE)
+  @Operation(summary = "Stream All Ratings for a Tour")
+  public ResponseEntity<StreamingResponseBody> streamAllRatingsForTour(@PathVariable(value = "tourId") int tourId) {
+    log.info("GET /tours/{}/ratings as {}", tourId, NDJSON_VALUE);
+    tourRatingService.verifyTour(tourId);
+    ObjectWriter writer = objectMapper.writerFor(RatingDto.class);
+    StreamingResponseBody body = out -> tourRatingService.forEachRating(tourId, rating -> {
+      try {
+        out.write(writer.writeValueAsBytes(new RatingDto(rating)));
+        out.write('\n');
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+    return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON_VALUE)).body(body);
   }
 
   /**
    * Calculate the average Score of a Tour.
    *
    * @param tourId
-   * @return the average value.
+   * @return the average value, null if the tour has no ratings.
    */
   @GetMapping("/average")
-  @Operation(summary = "Get the Average Score for a Tour")
+  @Operation(summary = "Get the Average Score for a Tour",
+      description = "The average is null while the tour has no ratings.")
   public Map<String, Double> getAverage(@PathVariable(value = "tourId") int tourId) {
     log.info("GET /tours/{}/ratings/average", tourId);
-    return Map.of("average", tourRatingService.getAverageScore(tourId));
+    // Map.of does not take the null average of an unrated tour
+    return Collections.singletonMap("average", tourRatingService.getAverageScore(tourId));
   }
 
   /**
-   * Update score and comment of a Tour Rating
+   * Update score and comment of a Tour Rating, creating it if the customer
+   * has not rated the tour yet.
    *
    * @param tourId
    * @param ratingDto
@@ -90,8 +170,9 @@ public class TourRatingController {
   @Operation(summary = "Modify All Tour Rating Attributes")
   public RatingDto updateWithPut(@PathVariable(value = "tourId") int tourId, @RequestBody @Valid RatingDto ratingDto) {
     log.info("PUT /tours/{}/ratings", tourId);
-    return new RatingDto(tourRatingService.update(tourId, ratingDto.getCustomerId(),
-                ratingDto.getScore(), ratingDto.getComment()));
+    checkNotQueued(tourId, ratingDto.getCustomerId());
+    tourRatingService.upsert(tourId, ratingDto.getCustomerId(), ratingDto.getScore(), ratingDto.getComment());
+    return new RatingDto(ratingDto.getScore(), ratingDto.getComment(), ratingDto.getCustomerId());
   }
 
   /**
@@ -106,6 +187,7 @@ public class TourRatingController {
   public RatingDto updateWithPatch(@PathVariable(value = "tourId") int tourId,
       @RequestBody @Valid RatingDto ratingDto) {
     log.info("PATCH /tours/{}/ratings", tourId);
+    checkNotQueued(tourId, ratingDto.getCustomerId());
     return new RatingDto(tourRatingService.updateSome(tourId,
         ratingDto.getCustomerId(),
         Optional.ofNullable(ratingDto.getScore()),
@@ -122,6 +204,7 @@ public class TourRatingController {
   @Operation(summary = "Delete a Customer's Rating of a Tour")
   public void delete(@PathVariable(value = "tourId") int tourId, @PathVariable(value = "customerId") int customerId) {
     log.info("DELETE /tours/{}/ratings/{}", tourId, customerId);
+    checkNotQueued(tourId, customerId);
     tourRatingService.delete(tourId, customerId);
   }
 
@@ -131,14 +214,26 @@ public class TourRatingController {
    * @param tourId
    * @param score
    * @param customers
+   * @return the customers rated and the customers skipped as duplicates.
    */
   @PostMapping("/batch")
   @ResponseStatus(HttpStatus.CREATED)
   @Operation(summary = "Give Many Tours Same Score")
-  public void createManyTourRatings(@PathVariable(value = "tourId") int tourId,
+  public RateManyResult createManyTourRatings(@PathVariable(value = "tourId") int tourId,
                                     @RequestParam(value = "score") int score,
                                     @RequestBody List<Integer> customers) {
     log.info("POST /tours/{}/ratings/batch", tourId);
-    tourRatingService.rateMany(tourId, score, customers);
+    customers.forEach(customerId -> checkNotQueued(tourId, customerId));
+    return tourRatingService.rateMany(tourId, score, customers);
+  }
+
+  /**
+   * In write-behind mode a queued rating is written after any write made
+   * meanwhile, so a write of the same rating is refused until it lands.
+   */
+  private void checkNotQueued(int tourId, Integer customerId) {
+    if (writeBehind.isPresent() && customerId != null) {
+      writeBehind.get().checkNotPending(tourId, customerId);
+    }
   }
 }
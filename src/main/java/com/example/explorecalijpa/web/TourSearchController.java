@@ -0,0 +1,108 @@
+package com.example.explorecalijpa.web;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.explorecalijpa.model.Difficulty;
+import com.example.explorecalijpa.model.Region;
+import com.example.explorecalijpa.search.TourFacetResult;
+import com.example.explorecalijpa.search.TourFacets;
+import com.example.explorecalijpa.search.TourSearchFilter;
+import com.example.explorecalijpa.search.TourSearchHit;
+import com.example.explorecalijpa.search.TourSearchService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tour Search Controller. Takes GET /tours/search over the Spring Data REST
+ * listing of the TourRepository query methods, which stay under
+ * /tours/search/{method}, and GET /tours/facets.
+ */
+@RestController
+@Validated
+@Slf4j
+@Tag(name = "Tour Search", description = "Full-text search and faceted browsing over the Tours")
+@RequestMapping(path = "/tours")
+public class TourSearchController {
+  private TourSearchService tourSearchService;
+
+  public TourSearchController(TourSearchService tourSearchService) {
+    this.tourSearchService = tourSearchService;
+  }
+
+  /**
+   * Search the tours by text, optionally restricted by difficulty, region,
+   * tour package and price.
+   *
+   * @param q           free text
+   * @param difficulty  required difficulty
+   * @param region      required region
+   * @param tourPackage required tour package code
+   * @param minPrice    lowest price, inclusive
+   * @param maxPrice    highest price, inclusive
+   * @param limit       maximum number of tours
+   * @return the matching tours, most relevant first
+   */
+  @GetMapping("/search")
+  @Operation(summary = "Search Tours")
+  public List<TourSearchHit> search(@RequestParam("q") @NotBlank String q,
+      @RequestParam(value = "difficulty", required = false) Difficulty difficulty,
+      @RequestParam(value = "region", required = false) Region region,
+      @RequestParam(value = "tourPackage", required = false) String tourPackage,
+      @RequestParam(value = "minPrice", required = false) Integer minPrice,
+      @RequestParam(value = "maxPrice", required = false) Integer maxPrice,
+      @RequestParam(value = "limit", defaultValue = "20") @Min(1) @Max(100) int limit) {
+    log.info("GET /tours/search?q={}", q);
+    return tourSearchService.search(q, new TourSearchFilter(difficulty, region, tourPackage, minPrice, maxPrice),
+        limit);
+  }
+
+  /**
+   * Browse the tours by facets. Every facet's counts leave out the selection
+   * made in that facet, so they show what choosing another value would give.
+   *
+   * @param region      selected region
+   * @param difficulty  selected difficulty
+   * @param tourPackage selected tour package code
+   * @param price       selected price bucket, e.g. "500-999"
+   * @param after       only list tours with a greater id, for the next page
+   * @param limit       maximum number of tours listed
+   * @return the number of matching tours, the counts and a page of the tours
+   */
+  @GetMapping("/facets")
+  @Operation(summary = "Browse Tours by Facets")
+  public TourFacetResult facets(@RequestParam(value = "region", required = false) Region region,
+      @RequestParam(value = "difficulty", required = false) Difficulty difficulty,
+      @RequestParam(value = "tourPackage", required = false) String tourPackage,
+      @RequestParam(value = "price", required = false) String price,
+      @RequestParam(value = "after", defaultValue = "0") int after,
+      @RequestParam(value = "limit", defaultValue = "20") @Min(1) @Max(100) int limit) {
+    log.info("GET /tours/facets");
+    Map<TourFacets.Facet, String> selected = new EnumMap<>(TourFacets.Facet.class);
+    if (region != null) {
+      selected.put(TourFacets.Facet.REGION, region.name());
+    }
+    if (difficulty != null) {
+      selected.put(TourFacets.Facet.DIFFICULTY, difficulty.name());
+    }
+    if (tourPackage != null) {
+      selected.put(TourFacets.Facet.TOUR_PACKAGE, tourPackage);
+    }
+    if (price != null) {
+      selected.put(TourFacets.Facet.PRICE, price);
+    }
+    return tourSearchService.browse(selected, after, limit);
+  }
+}
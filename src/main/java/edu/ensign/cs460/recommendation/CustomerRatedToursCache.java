@@ -0,0 +1,151 @@
+package edu.ensign.cs460.recommendation;
+
+import com.example.explorecalijpa.business.CustomerRatingsChanged;
+import com.example.explorecalijpa.repo.TourRatingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Least recently used cache of the set of tours each customer has rated, as a
+ * BitSet of tour ids.
+ *
+ * The cache is bounded by the estimated bytes of the cached sets. Committed
+ * rating writes update the sets of cached customers; a set loaded while a
+ * write for the same customer was in flight is used once but not cached.
+ */
+@Component
+public class CustomerRatedToursCache {
+
+  private static final int BITSET_OVERHEAD_BYTES = 64;
+  private static final int STAMP_STRIPES = 1024;
+
+  private final TourRatingRepository repo;
+  private final long maxBytes;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final LinkedHashMap<Integer, BitSet> sets = new LinkedHashMap<>(256, 0.75f, true);
+  private final AtomicLongArray writeStamps = new AtomicLongArray(STAMP_STRIPES);
+  private long bytes;
+
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter evictions;
+
+  public CustomerRatedToursCache(TourRatingRepository repo, MeterRegistry registry,
+      @Value("${explorecali.recommendations.customer-cache.max-bytes:16777216}") long maxBytes) {
+    this.repo = repo;
+    this.maxBytes = maxBytes;
+    this.hits = registry.counter("recommendation.customer.cache.requests", "result", "hit");
+    this.misses = registry.counter("recommendation.customer.cache.requests", "result", "miss");
+    this.evictions = registry.counter("recommendation.customer.cache.evictions");
+    Gauge.builder("recommendation.customer.cache.size", this, CustomerRatedToursCache::size)
+        .register(registry);
+    Gauge.builder("recommendation.customer.cache.bytes", this, CustomerRatedToursCache::bytes)
+        .baseUnit("bytes")
+        .register(registry);
+  }
+
+  /**
+   * The tours a customer has rated. The returned set must not be modified.
+   *
+   * @param customerId customer identifier
+   * @return tour ids rated by the customer
+   */
+  public BitSet ratedTours(int customerId) {
+    lock.lock();
+    try {
+      BitSet cached = sets.get(customerId);
+      if (cached != null) {
+        hits.increment();
+        return cached;
+      }
+    } finally {
+      lock.unlock();
+    }
+    misses.increment();
+
+    long stamp = writeStamps.get(stripe(customerId));
+    BitSet loaded = new BitSet();
+    for (Integer tourId : repo.findTourIdsByCustomerId(customerId)) {
+      loaded.set(tourId);
+    }
+    lock.lock();
+    try {
+      if (writeStamps.get(stripe(customerId)) == stamp && !sets.containsKey(customerId)) {
+        sets.put(customerId, loaded);
+        bytes += sizeOf(loaded);
+        evictToFit();
+      }
+    } finally {
+      lock.unlock();
+    }
+    return loaded;
+  }
+
+  @EventListener
+  public void onCustomerRatingsChanged(CustomerRatingsChanged event) {
+    lock.lock();
+    try {
+      for (Integer customerId : event.customerIds()) {
+        writeStamps.incrementAndGet(stripe(customerId));
+        BitSet cached = sets.get(customerId);
+        if (cached != null) {
+          // copy on write, readers may be iterating the cached set
+          BitSet updated = (BitSet) cached.clone();
+          updated.set(event.tourId(), event.rated());
+          sets.put(customerId, updated);
+          bytes += sizeOf(updated) - sizeOf(cached);
+        }
+      }
+      evictToFit();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int size() {
+    lock.lock();
+    try {
+      return sets.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long bytes() {
+    lock.lock();
+    try {
+      return bytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void evictToFit() {
+    Iterator<Map.Entry<Integer, BitSet>> eldest = sets.entrySet().iterator();
+    while (bytes > maxBytes && eldest.hasNext()) {
+      bytes -= sizeOf(eldest.next().getValue());
+      eldest.remove();
+      evictions.increment();
+    }
+  }
+
+  private static int stripe(int customerId) {
+    return Math.floorMod(customerId, STAMP_STRIPES);
+  }
+
+  private static long sizeOf(BitSet set) {
+    return BITSET_OVERHEAD_BYTES + set.size() / 8;
+  }
+}
@@ -0,0 +1,105 @@
+package edu.ensign.cs460.recommendation;
+
+import com.example.explorecalijpa.repo.CustomerTourScore;
+import com.example.explorecalijpa.repo.TourRatingRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Holds the current ItemSimilarityModel and rebuilds it in the background from
+ * tour_rating. Ratings are streamed straight into the model's primitive
+ * arrays, so the build never holds TourRating entities. The first build waits
+ * for ApplicationReadyEvent, so it sees data loaded by application runners.
+ */
+@Component
+public class ItemSimilarityEngine {
+
+  private static final Logger log = LoggerFactory.getLogger(ItemSimilarityEngine.class);
+
+  private final TourRatingRepository repo;
+  private final TransactionTemplate readOnlyTx;
+  private final int maxNeighbors;
+  private final int minOverlap;
+
+  private volatile ItemSimilarityModel model;
+
+  public ItemSimilarityEngine(TourRatingRepository repo, PlatformTransactionManager txManager,
+      @Value("${explorecali.recommendations.similarity.neighbors:50}") int maxNeighbors,
+      @Value("${explorecali.recommendations.similarity.min-overlap:2}") int minOverlap) {
+    this.repo = repo;
+    this.readOnlyTx = new TransactionTemplate(txManager);
+    this.readOnlyTx.setReadOnly(true);
+    this.maxNeighbors = maxNeighbors;
+    this.minOverlap = minOverlap;
+  }
+
+  public boolean isReady() {
+    return model != null;
+  }
+
+  /**
+   * The unrated tours a customer is predicted to score highest.
+   *
+   * @param customerId customer identifier
+   * @param limit      maximum number of tours
+   * @return up to limit tours, best first; empty when the model is not built
+   *         yet or has nothing similar to what the customer rated
+   */
+  public List<ItemSimilarityModel.ScoredTour> recommend(int customerId, int limit) {
+    ItemSimilarityModel current = model;
+    if (current == null) {
+      return List.of();
+    }
+    List<CustomerTourScore> rated = repo.findScoresByCustomerId(customerId);
+    int[] tourIds = new int[rated.size()];
+    int[] scores = new int[rated.size()];
+    for (int r = 0; r < tourIds.length; r++) {
+      tourIds[r] = rated.get(r).getTourId();
+      scores[r] = rated.get(r).getScore();
+    }
+    return current.score(tourIds, scores, limit);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUp() {
+    rebuild();
+  }
+
+  @Scheduled(fixedDelayString = "${explorecali.recommendations.similarity.rebuild-interval:PT1H}",
+      initialDelayString = "${explorecali.recommendations.similarity.rebuild-interval:PT1H}")
+  public void refresh() {
+    rebuild();
+  }
+
+  /**
+   * Replace the model with one built from every rating. The build holds about
+   * 8 bytes per rating for the customer-major matrix, up to half as much again
+   * of spare array capacity, and another 8 bytes per rating for its tour-major
+   * transpose: roughly 160 to 200 MB at 10 million ratings, on top of the
+   * model being replaced.
+   */
+  public void rebuild() {
+    long start = System.nanoTime();
+    ItemSimilarityModel.Builder builder = ItemSimilarityModel.builder();
+    readOnlyTx.executeWithoutResult(status -> {
+      try (Stream<CustomerTourScore> scores = repo.streamAllScoresByCustomer()) {
+        scores.forEach(s -> builder.add(s.getCustomerId(), s.getTourId(), s.getScore()));
+      }
+    });
+    ItemSimilarityModel built = builder.build(maxNeighbors, minOverlap);
+    model = built;
+    log.info("Item similarity model built from {} ratings of {} customers in {} ms: {} tours, {} neighbor pairs",
+        built.ratingCount(), built.customerCount(), (System.nanoTime() - start) / 1_000_000,
+        built.tourCount(), built.neighborCount());
+  }
+}
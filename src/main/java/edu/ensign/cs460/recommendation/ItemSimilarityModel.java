@@ -0,0 +1,383 @@
+package edu.ensign.cs460.recommendation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Item-item similarities between tours, computed with adjusted cosine: each
+ * customer's scores are centered on that customer's mean, and two tours are
+ * compared by the cosine of their centered score columns.
+ *
+ * Only the best positively similar neighbors of each tour are kept, in
+ * compressed sparse row form: the neighbors of tour index i are
+ * neighbors[neighborStart[i] .. neighborStart[i + 1]), best first. The model
+ * is immutable once built.
+ */
+public final class ItemSimilarityModel {
+
+  private final int[] tourIds;
+  private final int[] indexByTourId;
+  private final int[] neighborStart;
+  private final int[] neighbors;
+  private final float[] similarities;
+  private final int customerCount;
+  private final int ratingCount;
+
+  private ItemSimilarityModel(int[] tourIds, int[] indexByTourId, int[] neighborStart, int[] neighbors,
+      float[] similarities, int customerCount, int ratingCount) {
+    this.tourIds = tourIds;
+    this.indexByTourId = indexByTourId;
+    this.neighborStart = neighborStart;
+    this.neighbors = neighbors;
+    this.similarities = similarities;
+    this.customerCount = customerCount;
+    this.ratingCount = ratingCount;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public int tourCount() {
+    return tourIds.length;
+  }
+
+  public int customerCount() {
+    return customerCount;
+  }
+
+  public int ratingCount() {
+    return ratingCount;
+  }
+
+  public int neighborCount() {
+    return neighbors.length;
+  }
+
+  /**
+   * Similarity of two tours, 0 when either is unknown or they are not
+   * neighbors.
+   */
+  public float similarity(int tourId, int otherTourId) {
+    int i = indexOf(tourId);
+    int j = indexOf(otherTourId);
+    if (i < 0 || j < 0) {
+      return 0f;
+    }
+    for (int k = neighborStart[i]; k < neighborStart[i + 1]; k++) {
+      if (neighbors[k] == j) {
+        return similarities[k];
+      }
+    }
+    return 0f;
+  }
+
+  /**
+   * Predict a customer's score for the tours similar to the ones they rated,
+   * as their mean score plus the similarity weighted average of their
+   * centered scores.
+   *
+   * @param ratedTourIds the tours the customer rated
+   * @param scores       the customer's score of each rated tour
+   * @param limit        maximum number of tours
+   * @return up to limit unrated tours, highest predicted score first
+   */
+  public List<ScoredTour> score(int[] ratedTourIds, int[] scores, int limit) {
+    if (ratedTourIds.length == 0) {
+      return List.of();
+    }
+    double mean = 0;
+    for (int score : scores) {
+      mean += score;
+    }
+    mean /= scores.length;
+
+    int n = tourIds.length;
+    float[] weighted = new float[n];
+    float[] weights = new float[n];
+    boolean[] rated = new boolean[n];
+    for (int tourId : ratedTourIds) {
+      int i = indexOf(tourId);
+      if (i >= 0) {
+        rated[i] = true;
+      }
+    }
+    for (int r = 0; r < ratedTourIds.length; r++) {
+      int i = indexOf(ratedTourIds[r]);
+      if (i < 0) {
+        continue;
+      }
+      float deviation = (float) (scores[r] - mean);
+      for (int k = neighborStart[i]; k < neighborStart[i + 1]; k++) {
+        int j = neighbors[k];
+        weighted[j] += similarities[k] * deviation;
+        weights[j] += similarities[k];
+      }
+    }
+
+    List<ScoredTour> candidates = new ArrayList<>();
+    for (int j = 0; j < n; j++) {
+      if (weights[j] > 0 && !rated[j]) {
+        candidates.add(new ScoredTour(tourIds[j], mean + weighted[j] / weights[j], weights[j]));
+      }
+    }
+    candidates.sort(ScoredTour.RANKING);
+    return candidates.size() > limit ? List.copyOf(candidates.subList(0, limit)) : candidates;
+  }
+
+  private int indexOf(int tourId) {
+    return tourId >= 0 && tourId < indexByTourId.length ? indexByTourId[tourId] : -1;
+  }
+
+  /**
+   * A tour with the score a customer is predicted to give it.
+   *
+   * @param tourId         tour identifier
+   * @param predictedScore predicted score
+   * @param support        summed similarity of the customer's rated tours
+   *                       the prediction is based on
+   */
+  public record ScoredTour(int tourId, double predictedScore, double support) {
+
+    static final Comparator<ScoredTour> RANKING = Comparator
+        .comparingDouble(ScoredTour::predictedScore).reversed()
+        .thenComparing(Comparator.comparingDouble(ScoredTour::support).reversed())
+        .thenComparingInt(ScoredTour::tourId);
+  }
+
+  /**
+   * Collects scores grouped by customer into a sparse customer x tour matrix
+   * of primitive arrays, about 8 bytes per rating plus up to half as much
+   * again of spare capacity, and builds the model from it. The build adds a
+   * tour-major transpose of another 8 bytes per rating, so peak memory is
+   * roughly twice the matrix. All scores of one customer must be added
+   * consecutively.
+   */
+  public static final class Builder {
+
+    private int[] rowStart = new int[1024];
+    private int customers;
+    private int[] columns = new int[4096];
+    private float[] values = new float[4096];
+    private int size;
+
+    private int[] indexByTourId = new int[64];
+    private int[] tourIds = new int[64];
+    private int tours;
+
+    private int currentCustomer;
+
+    private Builder() {
+      Arrays.fill(indexByTourId, -1);
+    }
+
+    public Builder add(int customerId, int tourId, int score) {
+      if (customers == 0 || customerId != currentCustomer) {
+        closeRow();
+        if (customers + 1 == rowStart.length) {
+          rowStart = Arrays.copyOf(rowStart, rowStart.length * 2);
+        }
+        customers++;
+        currentCustomer = customerId;
+      }
+      if (size == columns.length) {
+        int capacity = size + (size >> 1);
+        columns = Arrays.copyOf(columns, capacity);
+        values = Arrays.copyOf(values, capacity);
+      }
+      columns[size] = index(tourId);
+      values[size] = score;
+      size++;
+      rowStart[customers] = size;
+      return this;
+    }
+
+    /**
+     * @param maxNeighbors most similar tours kept per tour
+     * @param minOverlap   customers two tours need in common to be neighbors
+     */
+    public ItemSimilarityModel build(int maxNeighbors, int minOverlap) {
+      closeRow();
+      int n = tours;
+
+      // column norms and the tour-major transpose of the centered matrix
+      double[] norms = new double[n];
+      int[] colStart = new int[n + 1];
+      for (int k = 0; k < size; k++) {
+        norms[columns[k]] += (double) values[k] * values[k];
+        colStart[columns[k] + 1]++;
+      }
+      for (int j = 0; j < n; j++) {
+        colStart[j + 1] += colStart[j];
+      }
+      int[] colRows = new int[size];
+      float[] colValues = new float[size];
+      int[] fill = Arrays.copyOf(colStart, n);
+      for (int c = 0; c < customers; c++) {
+        for (int k = rowStart[c]; k < rowStart[c + 1]; k++) {
+          int at = fill[columns[k]]++;
+          colRows[at] = c;
+          colValues[at] = values[k];
+        }
+      }
+
+      int[] neighborStart = new int[n + 1];
+      int[] neighbors = new int[n * Math.min(maxNeighbors, Math.max(n - 1, 0))];
+      float[] similarities = new float[neighbors.length];
+      double[] dot = new double[n];
+      int[] overlap = new int[n];
+      int[] touched = new int[n];
+      TopK top = new TopK(maxNeighbors);
+      int out = 0;
+      for (int i = 0; i < n; i++) {
+        int touchedCount = 0;
+        for (int p = colStart[i]; p < colStart[i + 1]; p++) {
+          int c = colRows[p];
+          float v = colValues[p];
+          for (int k = rowStart[c]; k < rowStart[c + 1]; k++) {
+            int j = columns[k];
+            if (j == i) {
+              continue;
+            }
+            if (overlap[j]++ == 0) {
+              touched[touchedCount++] = j;
+            }
+            dot[j] += v * values[k];
+          }
+        }
+        top.clear();
+        for (int t = 0; t < touchedCount; t++) {
+          int j = touched[t];
+          if (overlap[j] >= minOverlap && dot[j] > 0) {
+            top.offer(j, (float) (dot[j] / Math.sqrt(norms[i] * norms[j])));
+          }
+          dot[j] = 0;
+          overlap[j] = 0;
+        }
+        out = top.drainDescending(neighbors, similarities, out);
+        neighborStart[i + 1] = out;
+      }
+
+      return new ItemSimilarityModel(Arrays.copyOf(tourIds, n), indexByTourId, neighborStart,
+          Arrays.copyOf(neighbors, out), Arrays.copyOf(similarities, out), customers, size);
+    }
+
+    private void closeRow() {
+      if (customers == 0) {
+        return;
+      }
+      int from = rowStart[customers - 1];
+      int to = rowStart[customers];
+      double mean = 0;
+      for (int k = from; k < to; k++) {
+        mean += values[k];
+      }
+      mean /= to - from;
+      for (int k = from; k < to; k++) {
+        values[k] -= (float) mean;
+      }
+    }
+
+    private int index(int tourId) {
+      if (tourId >= indexByTourId.length) {
+        int old = indexByTourId.length;
+        indexByTourId = Arrays.copyOf(indexByTourId, Math.max(tourId + 1, old * 2));
+        Arrays.fill(indexByTourId, old, indexByTourId.length, -1);
+      }
+      int i = indexByTourId[tourId];
+      if (i < 0) {
+        if (tours == tourIds.length) {
+          tourIds = Arrays.copyOf(tourIds, tours * 2);
+        }
+        i = tours++;
+        tourIds[i] = tourId;
+        indexByTourId[tourId] = i;
+      }
+      return i;
+    }
+  }
+
+  /**
+   * Bounded min-heap of (index, similarity) pairs keeping the largest.
+   */
+  private static final class TopK {
+    private final int[] index;
+    private final float[] value;
+    private int size;
+
+    TopK(int capacity) {
+      index = new int[capacity];
+      value = new float[capacity];
+    }
+
+    void clear() {
+      size = 0;
+    }
+
+    void offer(int i, float v) {
+      if (size < index.length) {
+        index[size] = i;
+        value[size] = v;
+        siftUp(size++);
+      } else if (index.length > 0 && v > value[0]) {
+        index[0] = i;
+        value[0] = v;
+        siftDown(0);
+      }
+    }
+
+    /** Append the kept pairs best first at out, return the new end. */
+    int drainDescending(int[] toIndex, float[] toValue, int out) {
+      int end = out + size;
+      for (int at = end - 1; at >= out; at--) {
+        toIndex[at] = index[0];
+        toValue[at] = value[0];
+        size--;
+        index[0] = index[size];
+        value[0] = value[size];
+        siftDown(0);
+      }
+      return end;
+    }
+
+    private void siftUp(int at) {
+      while (at > 0) {
+        int parent = (at - 1) >> 1;
+        if (value[parent] <= value[at]) {
+          return;
+        }
+        swap(at, parent);
+        at = parent;
+      }
+    }
+
+    private void siftDown(int at) {
+      while (true) {
+        int smallest = at;
+        int left = 2 * at + 1;
+        if (left < size && value[left] < value[smallest]) {
+          smallest = left;
+        }
+        if (left + 1 < size && value[left + 1] < value[smallest]) {
+          smallest = left + 1;
+        }
+        if (smallest == at) {
+          return;
+        }
+        swap(at, smallest);
+        at = smallest;
+      }
+    }
+
+    private void swap(int a, int b) {
+      int i = index[a];
+      index[a] = index[b];
+      index[b] = i;
+      float v = value[a];
+      value[a] = value[b];
+      value[b] = v;
+    }
+  }
+}
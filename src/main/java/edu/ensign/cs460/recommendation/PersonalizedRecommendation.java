@@ -0,0 +1,18 @@
+package edu.ensign.cs460.recommendation;
+
+/**
+ * A recommended tour with the score the customer is predicted to give it,
+ * null when the recommendation is only based on popularity.
+ */
+public record PersonalizedRecommendation(
+    Integer tourId,
+    String title,
+    Double predictedScore,
+    Double averageScore,
+    Long reviewCount) {
+
+  static PersonalizedRecommendation of(TourRecommendation r, Double predictedScore) {
+    return new PersonalizedRecommendation(r.tourId(), r.title(), predictedScore, r.averageScore(),
+        r.reviewCount());
+  }
+}
@@ -29,4 +29,11 @@ public class RecommendationController {
       @RequestParam(defaultValue = "5") @Min(1) @Max(100) int limit) {
     return service.recommendForCustomer(customerId, limit);
   }
+
+  @GetMapping("/customer/{customerId}/similar")
+  public List<PersonalizedRecommendation> similarForCustomer(
+      @PathVariable @Min(1) int customerId,
+      @RequestParam(defaultValue = "5") @Min(1) @Max(100) int limit) {
+    return service.recommendSimilar(customerId, limit);
+  }
 }
@@ -3,21 +3,30 @@ package edu.ensign.cs460.recommendation;
 import com.example.explorecalijpa.repo.TourRatingRepository;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
 public class RecommendationService {
 
   private final TourRatingRepository repo;
+  private final TourLeaderboard leaderboard;
+  private final CustomerRatedToursCache ratedTours;
+  private final ItemSimilarityEngine similarity;
 
-  public RecommendationService(TourRatingRepository repo) {
+  public RecommendationService(TourRatingRepository repo, TourLeaderboard leaderboard,
+      CustomerRatedToursCache ratedTours, ItemSimilarityEngine similarity) {
     this.repo = repo;
+    this.leaderboard = leaderboard;
+    this.ratedTours = ratedTours;
+    this.similarity = similarity;
   }
 
-  @Transactional(readOnly = true)
   public List<TourRecommendation> recommendTopN(int limit) {
+    if (leaderboard.isReady()) {
+      return leaderboard.top(limit);
+    }
     var page = PageRequest.of(0, limit);
     return repo.findTopTours(page).stream()
         .map(s -> new TourRecommendation(
@@ -28,8 +37,10 @@ public class RecommendationService {
         .toList();
   }
 
-  @Transactional(readOnly = true)
   public List<TourRecommendation> recommendForCustomer(int customerId, int limit) {
+    if (leaderboard.isReady()) {
+      return leaderboard.top(limit, ratedTours.ratedTours(customerId));
+    }
     var page = PageRequest.of(0, limit);
     return repo.findRecommendedForCustomer(customerId, page).stream()
         .map(s -> new TourRecommendation(
@@ -39,4 +50,26 @@ public class RecommendationService {
             s.getReviewCount()))
         .toList();
   }
+
+  /**
+   * Personalized recommendations from tours similar to the ones the customer
+   * rated. Falls back to recommendForCustomer, without a predicted score, when
+   * the similarity model has nothing for the customer.
+   */
+  public List<PersonalizedRecommendation> recommendSimilar(int customerId, int limit) {
+    List<PersonalizedRecommendation> similar = new ArrayList<>(limit);
+    if (leaderboard.isReady()) {
+      for (ItemSimilarityModel.ScoredTour scored : similarity.recommend(customerId, limit)) {
+        leaderboard.find(scored.tourId())
+            .map(r -> PersonalizedRecommendation.of(r, scored.predictedScore()))
+            .ifPresent(similar::add);
+      }
+    }
+    if (!similar.isEmpty()) {
+      return similar;
+    }
+    return recommendForCustomer(customerId, limit).stream()
+        .map(r -> PersonalizedRecommendation.of(r, null))
+        .toList();
+  }
 }
@@ -0,0 +1,216 @@
+package edu.ensign.cs460.recommendation;
+
+import com.example.explorecalijpa.business.RatingEventDispatcher;
+import com.example.explorecalijpa.business.TourRatingStatsChanged;
+import com.example.explorecalijpa.model.Tour;
+import com.example.explorecalijpa.repo.TourRatingStatsRepository;
+import com.example.explorecalijpa.repo.TourRatingTotals;
+import com.example.explorecalijpa.repo.TourRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory ranking of all rated tours, ordered the same way as
+ * TourRatingRepository.findTopTours: average score desc, review count desc,
+ * title asc.
+ *
+ * Built at startup from tour_rating_stats, kept current from the
+ * TourRatingStatsChanged events delivered by RatingEventDispatcher and periodically
+ * rebuilt to repair anything missed.
+ *
+ * Every entry carries the stats version it was taken at, and an entry is only
+ * ever replaced by a newer one, whether from an event or a rebuild. An event
+ * arriving late cannot undo a newer change, and a rebuild that read the
+ * database before an event was applied keeps the event's totals. Tours whose
+ * ratings were all deleted keep an entry outside the ranking for the same
+ * reason.
+ */
+@Component
+public class TourLeaderboard {
+
+  private static final Logger log = LoggerFactory.getLogger(TourLeaderboard.class);
+
+  static final Comparator<Entry> RANKING = Comparator
+      .comparingDouble(Entry::averageScore).reversed()
+      .thenComparing(Comparator.comparingLong(Entry::reviewCount).reversed())
+      .thenComparing(Entry::title)
+      .thenComparing(Entry::tourId);
+
+  private final TourRatingStatsRepository statsRepo;
+  private final TourRepository tourRepo;
+
+  private volatile NavigableSet<Entry> ranking = new ConcurrentSkipListSet<>(RANKING);
+  private volatile Map<Integer, Entry> byTour = new ConcurrentHashMap<>();
+  private volatile boolean ready;
+
+  // not synchronized: events and rebuilds may run on virtual threads, which
+  // synchronized would pin to their carriers
+  private final ReentrantLock writeLock = new ReentrantLock();
+
+  public TourLeaderboard(TourRatingStatsRepository statsRepo, TourRepository tourRepo) {
+    this.statsRepo = statsRepo;
+    this.tourRepo = tourRepo;
+  }
+
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * The best ranked tours.
+   *
+   * @param limit maximum number of tours
+   * @return up to limit recommendations, best first
+   */
+  public List<TourRecommendation> top(int limit) {
+    return top(limit, new BitSet());
+  }
+
+  /**
+   * The best ranked tours, leaving out some tours.
+   *
+   * @param limit    maximum number of tours
+   * @param excluded ids of the tours to leave out
+   * @return up to limit recommendations, best first
+   */
+  public List<TourRecommendation> top(int limit, BitSet excluded) {
+    List<TourRecommendation> top = new ArrayList<>(Math.min(limit, ranking.size()));
+    for (Entry e : ranking) {
+      if (top.size() == limit) {
+        break;
+      }
+      if (!excluded.get(e.tourId())) {
+        top.add(e.toRecommendation());
+      }
+    }
+    return top;
+  }
+
+  /**
+   * The current standing of one tour.
+   *
+   * @param tourId tour identifier
+   * @return the tour, empty when it has no ratings
+   */
+  public Optional<TourRecommendation> find(int tourId) {
+    return Optional.ofNullable(byTour.get(tourId)).filter(Entry::isRated).map(Entry::toRecommendation);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Order(RatingEventDispatcher.READ_MODELS_ORDER)
+  public void warmUp() {
+    rebuild();
+  }
+
+  @Scheduled(fixedDelayString = "${explorecali.leaderboard.reconcile-interval:PT5M}",
+      initialDelayString = "${explorecali.leaderboard.reconcile-interval:PT5M}")
+  public void reconcile() {
+    rebuild();
+  }
+
+  /**
+   * Replace the ranking with one built from the stored rating stats, keeping
+   * the entries of tours that events have since brought past the stored
+   * version.
+   */
+  public void rebuild() {
+    List<TourRatingTotals> totals = statsRepo.findAllTotals();
+    NavigableSet<Entry> newRanking = new ConcurrentSkipListSet<>(RANKING);
+    Map<Integer, Entry> newByTour = new ConcurrentHashMap<>();
+    int changed = 0;
+    int rated;
+    writeLock.lock();
+    try {
+      for (TourRatingTotals t : totals) {
+        Entry stored = new Entry(t.getTourId(), t.getTitle(), t.getVersion(), t.getRatingCount(), t.getScoreSum());
+        Entry current = byTour.get(stored.tourId());
+        Entry e = stored;
+        if (current != null && current.version() > stored.version()) {
+          e = current;
+        } else if (current == null ? stored.isRated() : !stored.equals(current)) {
+          changed++;
+        }
+        newByTour.put(e.tourId(), e);
+        if (e.isRated()) {
+          newRanking.add(e);
+        }
+      }
+      for (Entry current : byTour.values()) {
+        if (!newByTour.containsKey(current.tourId()) && current.isRated()) {
+          changed++;
+        }
+      }
+      rated = newRanking.size();
+      ranking = newRanking;
+      byTour = newByTour;
+      ready = true;
+    } finally {
+      writeLock.unlock();
+    }
+    log.info("Leaderboard rebuilt with {} tours, {} differed from the database", rated, changed);
+  }
+
+  @EventListener
+  public void onStatsChanged(TourRatingStatsChanged event) {
+    Entry current = byTour.get(event.tourId());
+    String title = current != null ? current.title()
+        : tourRepo.findById(event.tourId()).map(Tour::getTitle).orElse(null);
+    if (title != null) {
+      update(new Entry(event.tourId(), title, event.version(), event.ratingCount(), event.scoreSum()));
+    }
+  }
+
+  /**
+   * Replace the entry of a tour, unless it is already at the same or a newer
+   * version.
+   */
+  void update(Entry e) {
+    writeLock.lock();
+    try {
+      Entry old = byTour.get(e.tourId());
+      if (old != null && old.version() >= e.version()) {
+        return;
+      }
+      byTour.put(e.tourId(), e);
+      if (old != null) {
+        ranking.remove(old);
+      }
+      if (e.isRated()) {
+        ranking.add(e);
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  record Entry(Integer tourId, String title, long version, long reviewCount, long scoreSum) {
+
+    boolean isRated() {
+      return reviewCount > 0;
+    }
+
+    double averageScore() {
+      return (double) scoreSum / reviewCount;
+    }
+
+    TourRecommendation toRecommendation() {
+      return new TourRecommendation(tourId, title, averageScore(), reviewCount);
+    }
+  }
+}
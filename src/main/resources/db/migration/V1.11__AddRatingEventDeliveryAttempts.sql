@@ -0,0 +1,8 @@
+
+
+-- Failed deliveries of each outbox event. After too many the event is parked: it stays in
+-- rating_event for inspection but is no longer read, so it cannot hold back other events.
+
+ALTER TABLE rating_event ADD COLUMN attempts INT NOT NULL DEFAULT 0;
+ALTER TABLE rating_event ADD COLUMN last_error VARCHAR(1000);
+ALTER TABLE rating_event ADD COLUMN parked_at TIMESTAMP NULL;
@@ -0,0 +1,10 @@
+
+
+-- The one row is leased by the instance that delivers rating events, see RatingEventLease.
+
+CREATE TABLE rating_event_lease (
+    id INT NOT NULL PRIMARY KEY,
+    owner VARCHAR(64),
+    expires_at TIMESTAMP NULL);
+
+INSERT INTO rating_event_lease (id) VALUES (1);
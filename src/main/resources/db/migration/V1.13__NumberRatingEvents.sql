@@ -0,0 +1,10 @@
+
+
+-- Every instance delivers every outbox event, keeping its own cursor over seq, so events
+-- are no longer deleted on delivery but purged by created_at, and the lease is not needed.
+
+DROP TABLE rating_event_lease;
+
+ALTER TABLE rating_event ADD COLUMN seq BIGINT AUTO_INCREMENT UNIQUE;
+
+CREATE INDEX IX_RATING_EVENT_CREATED_AT ON rating_event (created_at);
@@ -0,0 +1,27 @@
+
+
+CREATE TABLE tour_rating_stats (
+    tour_id BIGINT NOT NULL PRIMARY KEY,
+    rating_count BIGINT NOT NULL,
+    score_sum BIGINT NOT NULL,
+    min_score INT,
+    max_score INT,
+    score_0 BIGINT NOT NULL,
+    score_1 BIGINT NOT NULL,
+    score_2 BIGINT NOT NULL,
+    score_3 BIGINT NOT NULL,
+    score_4 BIGINT NOT NULL,
+    score_5 BIGINT NOT NULL);
+
+insert into tour_rating_stats (tour_id, rating_count, score_sum, min_score, max_score,
+    score_0, score_1, score_2, score_3, score_4, score_5)
+  select tour_id, count(*), sum(score), min(score), max(score),
+    sum(case when score = 0 then 1 else 0 end),
+    sum(case when score = 1 then 1 else 0 end),
+    sum(case when score = 2 then 1 else 0 end),
+    sum(case when score = 3 then 1 else 0 end),
+    sum(case when score = 4 then 1 else 0 end),
+    sum(case when score = 5 then 1 else 0 end)
+  from tour_rating
+  where tour_id is not null and score between 0 and 5
+  group by tour_id;
@@ -0,0 +1,28 @@
+
+-- A customer rates a tour once. Before the unique index, keep only the newest rating (highest id)
+-- of each customer and tour, and rebuild the stats V1.5 counted from the duplicates. The derived
+-- table lets MySQL delete from the table the subquery reads.
+
+DELETE FROM tour_rating
+  WHERE tour_id IS NOT NULL AND customer_id IS NOT NULL
+    AND id NOT IN (SELECT id FROM (SELECT MAX(id) AS id FROM tour_rating GROUP BY tour_id, customer_id) newest);
+
+DELETE FROM tour_rating_stats;
+
+insert into tour_rating_stats (tour_id, rating_count, score_sum, min_score, max_score,
+    score_0, score_1, score_2, score_3, score_4, score_5)
+  select tour_id, count(*), sum(score), min(score), max(score),
+    sum(case when score = 0 then 1 else 0 end),
+    sum(case when score = 1 then 1 else 0 end),
+    sum(case when score = 2 then 1 else 0 end),
+    sum(case when score = 3 then 1 else 0 end),
+    sum(case when score = 4 then 1 else 0 end),
+    sum(case when score = 5 then 1 else 0 end)
+  from tour_rating
+  where tour_id is not null and score between 0 and 5
+  group by tour_id;
+
+CREATE UNIQUE INDEX UX_TOUR_RATING_TOUR_CUSTOMER ON tour_rating (tour_id, customer_id);
+CREATE INDEX IX_TOUR_RATING_CUSTOMER_TOUR ON tour_rating (customer_id, tour_id);
+CREATE INDEX IX_TOUR_RATING_TOUR_SCORE ON tour_rating (tour_id, score);
+ALTER TABLE tour_rating ADD CONSTRAINT FK_TOUR_RATING_TOUR FOREIGN KEY (tour_id) REFERENCES tour(id);
@@ -0,0 +1,11 @@
+
+
+-- Hibernate reads next_val as the top of a block of 50 ids and hands out
+-- next_val - 49 .. next_val, so each table starts 50 above the highest id in use.
+-- Tables rather than sequences, as MySQL has no CREATE SEQUENCE.
+
+CREATE TABLE tour_seq (next_val BIGINT NOT NULL);
+insert into tour_seq (next_val) select coalesce(max(id), 0) + 50 from tour;
+
+CREATE TABLE tour_rating_seq (next_val BIGINT NOT NULL);
+insert into tour_rating_seq (next_val) select coalesce(max(id), 0) + 50 from tour_rating;
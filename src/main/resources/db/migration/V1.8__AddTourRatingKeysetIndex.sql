@@ -0,0 +1,3 @@
+
+
+CREATE INDEX IX_TOUR_RATING_TOUR_ID ON tour_rating (tour_id, id);
@@ -0,0 +1,11 @@
+
+
+ALTER TABLE tour_rating_stats ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+CREATE TABLE rating_event (
+    tour_id BIGINT NOT NULL,
+    version BIGINT NOT NULL,
+    event_type VARCHAR(20) NOT NULL,
+    payload MEDIUMTEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (tour_id, version));
@@ -0,0 +1,188 @@
+package com.example.explorecalijpa.business;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.explorecalijpa.model.RatingEventRecord;
+import com.example.explorecalijpa.repo.RatingEventRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class RatingEventDispatcherTest {
+
+  private static final int BATCH_SIZE = 10;
+  private static final int MAX_ATTEMPTS = 3;
+  private static final Duration GAP_TIMEOUT = Duration.ofSeconds(10);
+  private static final Duration RETENTION = Duration.ofHours(24);
+
+  @Mock
+  private RatingEventRecordRepository repositoryMock;
+  @Mock
+  private ApplicationEventPublisher eventPublisherMock;
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private RatingOutbox outbox;
+  private RatingEventDispatcher dispatcher;
+
+  @BeforeEach
+  void setUp() {
+    outbox = new RatingOutbox(repositoryMock, new ObjectMapper());
+    dispatcher = new RatingEventDispatcher(repositoryMock, outbox, eventPublisherMock, registry, 2, BATCH_SIZE,
+        Duration.ofSeconds(1), MAX_ATTEMPTS, GAP_TIMEOUT, RETENTION);
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    dispatcher.stop();
+  }
+
+  @Test
+  void deliversEachToursEventsInOrderAndMovesTheCursorPastThem() throws InterruptedException {
+    when(repositoryMock.findAfter(0, Limit.of(BATCH_SIZE))).thenReturn(List.of(
+        record(new RatingCreated(1, 1, 2, 9, List.of(100, 101)), 1),
+        record(new RatingCreated(2, 1, 1, 5, List.of(100)), 2),
+        record(new RatingUpdated(1, 2, 2, 7, 100, 5, 3), 3),
+        record(new RatingDeleted(1, 3, 1, 4, 101, 4), 4)));
+
+    assertThat(dispatcher.dispatchBatch(), is(4));
+    assertThat(dispatcher.dispatchBatch(), is(0));
+
+    InOrder tour1 = inOrder(eventPublisherMock);
+    tour1.verify(eventPublisherMock).publishEvent(new TourRatingStatsChanged(1, 1, 2, 9));
+    tour1.verify(eventPublisherMock).publishEvent(new CustomerRatingsChanged(1, List.of(100, 101), true));
+    tour1.verify(eventPublisherMock).publishEvent(new TourRatingStatsChanged(1, 2, 2, 7));
+    tour1.verify(eventPublisherMock).publishEvent(new TourRatingStatsChanged(1, 3, 1, 4));
+    tour1.verify(eventPublisherMock).publishEvent(new CustomerRatingsChanged(1, List.of(101), false));
+    verify(eventPublisherMock).publishEvent(new TourRatingStatsChanged(2, 1, 1, 5));
+    verify(eventPublisherMock).publishEvent(new CustomerRatingsChanged(2, List.of(100), true));
+    verify(repositoryMock).findAfter(4, Limit.of(BATCH_SIZE));
+  }
+
+  @Test
+  void startsAfterTheLastEventOlderThanTheGapTimeout() throws InterruptedException {
+    when(repositoryMock.findLastSeqBefore(argThat(before -> before.isBefore(Instant.now().minus(GAP_TIMEOUT)
+        .plusSeconds(1))))).thenReturn(7L);
+
+    dispatcher.takeCursor();
+    dispatcher.dispatchBatch();
+
+    verify(repositoryMock).findAfter(7, Limit.of(BATCH_SIZE));
+  }
+
+  @Test
+  void skipsVersionsAlreadyDelivered() throws InterruptedException {
+    RatingEventRecord first = record(new RatingUpdated(1, 4, 3, 12, 100, 5, 4), 1);
+    RatingEventRecord second = record(new RatingUpdated(1, 5, 3, 11, 100, 4, 3), 2);
+    when(repositoryMock.findAfter(0, Limit.of(BATCH_SIZE))).thenReturn(List.of(first));
+    when(repositoryMock.findAfter(1, Limit.of(BATCH_SIZE))).thenReturn(List.of(first, second));
+
+    dispatcher.dispatchBatch();
+    dispatcher.dispatchBatch();
+
+    verify(eventPublisherMock, times(1)).publishEvent(new TourRatingStatsChanged(1, 4, 3, 12));
+    verify(eventPublisherMock, times(1)).publishEvent(new TourRatingStatsChanged(1, 5, 3, 11));
+    assertThat(registry.counter("ratings.events.duplicates").count(), is(1.0));
+  }
+
+  @Test
+  void waitsAtAGapUntilItIsOlderThanTheGapTimeout() throws InterruptedException {
+    RatingEventRecord first = record(new RatingUpdated(1, 1, 1, 4, 100, 5, 4), 1);
+    RatingEventRecord afterGap = record(new RatingUpdated(2, 1, 1, 5, 100, 4, 5), 3);
+    when(repositoryMock.findAfter(0, Limit.of(BATCH_SIZE))).thenReturn(List.of(first, afterGap));
+    when(repositoryMock.findAfter(1, Limit.of(BATCH_SIZE))).thenReturn(List.of(afterGap));
+
+    assertThat(dispatcher.dispatchBatch(), is(1));
+    ReflectionTestUtils.setField(afterGap, "createdAt", Instant.now().minus(GAP_TIMEOUT).minusSeconds(1));
+    assertThat(dispatcher.dispatchBatch(), is(1));
+
+    // delivered as soon as it was read, the gap only holds the cursor
+    verify(eventPublisherMock, times(1)).publishEvent(new TourRatingStatsChanged(2, 1, 1, 5));
+  }
+
+  @Test
+  void holdsBackOnlyTheToursAfterAFailedEvent() throws InterruptedException {
+    RatingEventRecord otherTour = record(new RatingUpdated(2, 1, 1, 5, 100, 4, 5), 1);
+    RatingEventRecord failing = record(new RatingUpdated(1, 1, 1, 4, 100, 5, 4), 2);
+    RatingEventRecord later = record(new RatingUpdated(1, 2, 1, 3, 100, 4, 3), 3);
+    when(repositoryMock.findAfter(0, Limit.of(BATCH_SIZE))).thenReturn(List.of(otherTour, failing, later));
+    failDeliveriesOfTour(1);
+
+    assertThat(dispatcher.dispatchBatch(), is(1));
+
+    verify(eventPublisherMock).publishEvent(new TourRatingStatsChanged(2, 1, 1, 5));
+    verify(eventPublisherMock, never()).publishEvent(new TourRatingStatsChanged(1, 2, 1, 3));
+    verify(repositoryMock).recordFailure(eq(1), eq(1L), contains("listener failed"), isNull());
+    assertThat(registry.counter("ratings.events.failed").count(), is(1.0));
+    assertThat(registry.counter("ratings.events.parked").count(), is(0.0));
+  }
+
+  @Test
+  void parksAnEventThatKeepsFailing() throws InterruptedException {
+    RatingEventRecord failing = record(new RatingUpdated(1, 1, 1, 4, 100, 5, 4), 1);
+    when(repositoryMock.findAfter(0, Limit.of(BATCH_SIZE))).thenReturn(List.of(failing));
+    failDeliveriesOfTour(1);
+
+    for (int attempt = 1; attempt < MAX_ATTEMPTS; attempt++) {
+      assertThat(dispatcher.dispatchBatch(), is(0));
+    }
+    assertThat(dispatcher.dispatchBatch(), is(1));
+
+    verify(repositoryMock, times(MAX_ATTEMPTS - 1)).recordFailure(eq(1), eq(1L), contains("listener failed"),
+        isNull());
+    verify(repositoryMock).recordFailure(eq(1), eq(1L), contains("listener failed"), any(Instant.class));
+    assertThat(registry.counter("ratings.events.parked").count(), is(1.0));
+  }
+
+  @Test
+  void purgesEventsOlderThanTheRetention() {
+    Instant cutoff = Instant.now().minus(RETENTION);
+
+    dispatcher.purge();
+
+    verify(repositoryMock).deleteCreatedBefore(argThat(before -> !before.isBefore(cutoff)
+        && before.isBefore(cutoff.plusSeconds(1))));
+  }
+
+  private RatingEventRecord record(RatingEvent event, long seq) {
+    RatingEventRecord record = outbox.toRecord(event);
+    ReflectionTestUtils.setField(record, "seq", seq);
+    return record;
+  }
+
+  private void failDeliveriesOfTour(int tourId) {
+    doAnswer(invocation -> {
+      if (invocation.getArgument(0) instanceof TourRatingStatsChanged changed && changed.tourId() == tourId) {
+        throw new IllegalStateException("listener failed");
+      }
+      return null;
+    }).when(eventPublisherMock).publishEvent(any(Object.class));
+  }
+}
@@ -0,0 +1,101 @@
+package com.example.explorecalijpa.business;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class RatingJournalTest {
+
+  private static final long SEGMENT_BYTES = 1024 * 1024;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @TempDir
+  private Path directory;
+
+  @Test
+  void replaysRatingsAfterTheCheckpoint() throws IOException {
+    try (RatingJournal journal = new RatingJournal(directory, objectMapper, SEGMENT_BYTES)) {
+      assertThat(journal.recover(), is(empty()));
+      journal.append(1, 100, 5, "first");
+      PendingRating second = journal.append(1, 101, 4, null);
+      PendingRating third = journal.append(2, 100, 3, "third");
+      journal.awaitDurable(third.sequence());
+      journal.checkpoint(1);
+
+      try (RatingJournal reopened = new RatingJournal(directory, objectMapper, SEGMENT_BYTES)) {
+        assertThat(reopened.recover(), contains(second, third));
+      }
+    }
+  }
+
+  @Test
+  void skipsATornRecordAndKeepsNumbering() throws IOException {
+    try (RatingJournal journal = new RatingJournal(directory, objectMapper, SEGMENT_BYTES)) {
+      journal.recover();
+      journal.append(1, 100, 5, null);
+      journal.awaitDurable(1);
+    }
+    Files.writeString(directory.resolve("ratings-1.journal"), "{\"sequence\":2,\"tourId\":1,",
+        StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+    try (RatingJournal journal = new RatingJournal(directory, objectMapper, SEGMENT_BYTES)) {
+      assertThat(journal.recover(), contains(new PendingRating(1, 1, 100, 5, null)));
+      PendingRating next = journal.append(1, 101, 2, null);
+      assertThat(next.sequence(), is(2L));
+    }
+    try (RatingJournal journal = new RatingJournal(directory, objectMapper, SEGMENT_BYTES)) {
+      List<PendingRating> recovered = journal.recover();
+      assertThat(recovered.stream().map(PendingRating::customerId).toList(), contains(100, 101));
+    }
+  }
+
+  @Test
+  void checkpointDeletesTheSegmentsItCovers() throws IOException {
+    // every append fills a segment
+    try (RatingJournal journal = new RatingJournal(directory, objectMapper, 1)) {
+      journal.recover();
+      for (int customerId = 100; customerId < 103; customerId++) {
+        journal.append(1, customerId, 5, null);
+        journal.rotate();
+      }
+      journal.checkpoint(2);
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      assertThat(files.map(file -> file.getFileName().toString()).filter(name -> name.endsWith(".journal"))
+          .sorted().toList(), contains("ratings-3.journal", "ratings-4.journal"));
+    }
+    try (RatingJournal journal = new RatingJournal(directory, objectMapper, SEGMENT_BYTES)) {
+      assertThat(journal.recover().stream().map(PendingRating::customerId).toList(), contains(102));
+      assertThat(journal.append(1, 103, 5, null).sequence(), is(4L));
+    }
+  }
+
+  @Test
+  void keepsAppendingToASegmentBelowTheSize() throws IOException {
+    try (RatingJournal journal = new RatingJournal(directory, objectMapper, SEGMENT_BYTES)) {
+      journal.recover();
+      journal.append(1, 100, 5, null);
+      journal.rotate();
+      journal.append(1, 101, 5, null);
+      journal.checkpoint(2);
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      assertThat(files.filter(file -> file.getFileName().toString().endsWith(".journal")).count(), is(1L));
+    }
+  }
+}
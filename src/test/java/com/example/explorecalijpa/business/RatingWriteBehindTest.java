@@ -0,0 +1,205 @@
+package com.example.explorecalijpa.business;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.util.unit.DataSize;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class RatingWriteBehindTest {
+  private static final int TOUR_ID = 1;
+  private static final int MISSING_TOUR_ID = 2;
+  private static final long WAIT_MS = 5000;
+  private static final long SEGMENT_BYTES = 1024 * 1024;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  @Mock
+  private TourRatingService tourRatingServiceMock;
+
+  @TempDir
+  private Path directory;
+
+  private RatingWriteBehind writeBehind;
+
+  @AfterEach
+  void stop() throws Exception {
+    if (writeBehind != null) {
+      writeBehind.stop();
+    }
+  }
+
+  @Test
+  void rejectsRatingsWhileTheQueueIsFull() throws Exception {
+    CountDownLatch writing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      writing.countDown();
+      release.await();
+      return null;
+    }).when(tourRatingServiceMock).upsertAll(anyList());
+    start(1);
+
+    writeBehind.submit(TOUR_ID, 100, 5, null);
+    assertThat(writing.await(WAIT_MS, TimeUnit.MILLISECONDS), is(true));
+    writeBehind.submit(TOUR_ID, 101, 4, null);
+
+    assertThrows(RatingQueueFullException.class, () -> writeBehind.submit(TOUR_ID, 102, 3, null));
+    assertThat(registry.counter("ratings.write.behind.rejected").count(), is(1.0));
+    release.countDown();
+  }
+
+  @Test
+  void writesAFailedBatchOneAtATimeAndDropsWhatCannotBeWritten() throws Exception {
+    List<PendingRating> journaled = journal(TOUR_ID, MISSING_TOUR_ID, TOUR_ID);
+    doAnswer(invocation -> {
+      List<PendingRating> batch = invocation.getArgument(0);
+      if (batch.stream().anyMatch(r -> r.tourId() == MISSING_TOUR_ID)) {
+        throw new NoSuchElementException("Tour does not exist " + MISSING_TOUR_ID);
+      }
+      return null;
+    }).when(tourRatingServiceMock).upsertAll(anyList());
+    start(10);
+
+    verify(tourRatingServiceMock, timeout(WAIT_MS)).upsertAll(journaled);
+    verify(tourRatingServiceMock, timeout(WAIT_MS)).upsertAll(List.of(journaled.get(0)));
+    verify(tourRatingServiceMock, timeout(WAIT_MS)).upsertAll(List.of(journaled.get(2)));
+    verify(tourRatingServiceMock, timeout(WAIT_MS)).upsertAll(List.of(journaled.get(1)));
+    writeBehind.stop();
+    writeBehind = null;
+    assertThat(registry.counter("ratings.write.behind.dropped").count(), is(1.0));
+  }
+
+  @Test
+  void replaysTheJournalOnTheWriterAfterARestart() throws Exception {
+    List<PendingRating> journaled = journal(TOUR_ID, TOUR_ID);
+    CountDownLatch release = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      release.await();
+      return null;
+    }).when(tourRatingServiceMock).upsertAll(anyList());
+
+    // returns while the replay waits for the database
+    start(10);
+    verify(tourRatingServiceMock, timeout(WAIT_MS)).upsertAll(journaled);
+    release.countDown();
+    writeBehind.stop();
+    writeBehind = null;
+
+    try (RatingJournal journal = new RatingJournal(directory, objectMapper, SEGMENT_BYTES)) {
+      assertThat(journal.recover(), is(empty()));
+    }
+  }
+
+  @Test
+  void keepsWritingAfterTheDatabaseRecovers() throws Exception {
+    doThrow(new CannotCreateTransactionException("database down"))
+        .doThrow(new CannotCreateTransactionException("database down"))
+        .doNothing()
+        .when(tourRatingServiceMock).upsertAll(anyList());
+    start(10);
+
+    PendingRating first = writeBehind.submit(TOUR_ID, 100, 5, null);
+    verify(tourRatingServiceMock, timeout(WAIT_MS).times(3)).upsertAll(List.of(first));
+    PendingRating second = writeBehind.submit(TOUR_ID, 101, 4, null);
+
+    verify(tourRatingServiceMock, timeout(WAIT_MS)).upsertAll(List.of(second));
+  }
+
+  @Test
+  void refusesChangesOfARatingUntilItsQueuedWriteLands() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      release.await();
+      return null;
+    }).when(tourRatingServiceMock).upsertAll(anyList());
+    start(10);
+
+    writeBehind.submit(TOUR_ID, 100, 5, null);
+
+    assertThrows(RatingWritePendingException.class, () -> writeBehind.checkNotPending(TOUR_ID, 100));
+    writeBehind.checkNotPending(TOUR_ID, 101);
+    release.countDown();
+    long deadline = System.currentTimeMillis() + WAIT_MS;
+    while (true) {
+      try {
+        writeBehind.checkNotPending(TOUR_ID, 100);
+        break;
+      } catch (RatingWritePendingException e) {
+        if (System.currentTimeMillis() > deadline) {
+          fail("Rating still pending after it was written");
+        }
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  @Test
+  void refusesRatingsOnceTheWriterHasDied() throws Exception {
+    doThrow(new LinkageError("broken writer")).when(tourRatingServiceMock).upsertAll(anyList());
+    start(1000);
+
+    writeBehind.submit(TOUR_ID, 100, 5, null);
+
+    long deadline = System.currentTimeMillis() + WAIT_MS;
+    while (true) {
+      try {
+        writeBehind.submit(TOUR_ID, 101, 4, null);
+      } catch (RatingWriterUnavailableException e) {
+        break;
+      }
+      if (System.currentTimeMillis() > deadline) {
+        fail("Ratings still accepted after the writer died");
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  private List<PendingRating> journal(int... tourIds) throws IOException {
+    try (RatingJournal journal = new RatingJournal(directory, objectMapper, SEGMENT_BYTES)) {
+      journal.recover();
+      PendingRating last = null;
+      for (int i = 0; i < tourIds.length; i++) {
+        last = journal.append(tourIds[i], 100 + i, 5, null);
+      }
+      journal.awaitDurable(last.sequence());
+    }
+    try (RatingJournal journal = new RatingJournal(directory, objectMapper, SEGMENT_BYTES)) {
+      return journal.recover();
+    }
+  }
+
+  private void start(int capacity) throws IOException {
+    writeBehind = new RatingWriteBehind(tourRatingServiceMock, objectMapper, registry, capacity, 10, directory,
+        DataSize.ofBytes(SEGMENT_BYTES), Duration.ofMinutes(1));
+    writeBehind.start();
+  }
+}
@@ -0,0 +1,64 @@
+package com.example.explorecalijpa.business;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Exports generated ratings from the migrated H2 schema and checks the
+ * persistence context stays bounded however many rows are read. Set
+ * -Dexport.rows=5000000 with a small -Xmx to run it at production scale.
+ */
+@DataJpaTest
+@Import(TourRatingExporter.class)
+public class TourRatingExporterJpaTest {
+
+  private static final int TOUR_ID = 2;
+  private static final int ROWS = Integer.getInteger("export.rows", 200_000);
+  private static final int FIRST_GENERATED_ID = 10_000_000;
+
+  @Autowired
+  private TourRatingExporter exporter;
+
+  // used by the application's startup runner
+  @MockBean
+  private TourService tourService;
+
+  @MockBean
+  private TourPackageService tourPackageService;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Test
+  void exportKeepsThePersistenceContextBounded() {
+    long existing = entityManager.createQuery("select count(tr) from TourRating tr", Long.class).getSingleResult();
+    entityManager.createNativeQuery("""
+        insert into tour_rating (id, tour_id, customer_id, score, comment)
+        select x + :firstId, :tourId, x + :firstId, mod(x, 5) + 1, 'generated'
+        from system_range(1, :rows)
+        """)
+        .setParameter("firstId", FIRST_GENERATED_ID)
+        .setParameter("tourId", TOUR_ID)
+        .setParameter("rows", ROWS)
+        .executeUpdate();
+    Session session = entityManager.unwrap(Session.class);
+
+    int[] maxManaged = new int[1];
+    long exported = exporter.exportAll(rating -> {
+      maxManaged[0] = Math.max(maxManaged[0], session.getStatistics().getEntityCount());
+    });
+
+    assertThat(exported, is(existing + ROWS));
+    assertThat(maxManaged[0], lessThanOrEqualTo(TourRatingExporter.CLEAR_INTERVAL));
+  }
+}
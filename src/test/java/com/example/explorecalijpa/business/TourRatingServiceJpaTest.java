@@ -0,0 +1,179 @@
+package com.example.explorecalijpa.business;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import com.example.explorecalijpa.model.TourRating;
+import com.example.explorecalijpa.repo.TourRatingStatsRepository;
+import com.example.explorecalijpa.repo.TourRatingView;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Counts the SQL statements TourRatingService runs against the migrated H2
+ * schema.
+ */
+@DataJpaTest
+@Import(TourRatingService.class)
+public class TourRatingServiceJpaTest {
+
+  private static final int TOUR_ID = 2;
+  private static final int RATINGS = 10_000;
+  private static final int PAGE_SIZE = 1000;
+
+  @Autowired
+  private TourRatingService service;
+
+  // used by the application's startup runner
+  @MockBean
+  private TourService tourService;
+
+  @MockBean
+  private TourPackageService tourPackageService;
+
+  @Autowired
+  private TourRatingStatsRepository statsRepository;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  private Statistics statistics;
+  private int existing;
+
+  @BeforeEach
+  void enableStatistics() {
+    statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    statistics.setStatisticsEnabled(true);
+  }
+
+  @Test
+  void pagingThroughRatingsIsOneStatementPerPageThatNeverLoadsTours() {
+    rateTourForManyCustomers();
+
+    int pages = 0;
+    int listed = 0;
+    List<TourRatingView> page = service.lookupRatings(TOUR_ID, null, PAGE_SIZE);
+    while (!page.isEmpty()) {
+      pages++;
+      listed += page.size();
+      page = service.lookupRatings(TOUR_ID, page.get(page.size() - 1).getId(), PAGE_SIZE);
+    }
+
+    assertThat(listed, is(existing + RATINGS));
+    assertThat(statistics.getPrepareStatementCount(), is(pages + 1L));
+    assertThat(statistics.getEntityLoadCount(), is(0L));
+  }
+
+  @Test
+  void streamingRatingsIsOneStatementThatNeverLoadsTours() {
+    rateTourForManyCustomers();
+
+    AtomicInteger streamed = new AtomicInteger();
+    service.forEachRating(TOUR_ID, rating -> streamed.incrementAndGet());
+
+    assertThat(streamed.get(), is(existing + RATINGS));
+    assertThat(statistics.getPrepareStatementCount(), is(1L));
+    assertThat(statistics.getEntityLoadCount(), is(0L));
+  }
+
+  @Test
+  void loadingRatingEntitiesLeavesTheirTourUnloaded() {
+    service.rateMany(TOUR_ID, 4, List.of(1, 2, 3));
+    entityManager.flush();
+    entityManager.clear();
+    statistics.clear();
+
+    assertThat(service.lookupAll().isEmpty(), is(false));
+    assertThat(statistics.getPrepareStatementCount(), is(1L));
+    assertThat(statistics.getEntityStatistics("com.example.explorecalijpa.model.Tour").getLoadCount(), is(0L));
+  }
+
+  @Test
+  void creatingARatingReadsItsTourFromTheSecondLevelCache() {
+    service.createNew(TOUR_ID, 4_000_000, 5, null);
+    entityManager.flush();
+    entityManager.clear();
+    statistics.clear();
+
+    service.createNew(TOUR_ID, 4_000_001, 4, null);
+    entityManager.flush();
+
+    // lock the stats, insert the rating, update the stats; a fourth statement read the tour before it was cached
+    assertThat(statistics.getPrepareStatementCount(), is(3L));
+    assertThat(statistics.getEntityStatistics("com.example.explorecalijpa.model.Tour").getCacheHitCount(),
+        greaterThan(0L));
+  }
+
+  @Test
+  void importingAChunkRejectsUnknownToursAndRepeatedCustomers() {
+    List<RatingImportSummary.Rejection> rejections = service.importChunk(List.of(
+        new RatingImportRow(1, TOUR_ID, 2_000_000, 5, "first"),
+        new RatingImportRow(2, TOUR_ID, 2_000_000, 4, null),
+        new RatingImportRow(3, 999_999, 2_000_001, 3, null),
+        new RatingImportRow(4, 1, 2_000_001, 3, null)));
+    entityManager.flush();
+
+    assertThat(rejections.stream().map(RatingImportSummary.Rejection::row).toList(), contains(2L, 3L));
+    assertThat(service.verifyTourRating(TOUR_ID, 2_000_000).getComment(), is("first"));
+    assertThat(service.verifyTourRating(1, 2_000_001).getScore(), is(3));
+  }
+
+  @Test
+  void upsertReplacesARatingWithoutLoadingIt() {
+    assertThat(service.upsert(TOUR_ID, 3_000_000, 2, "first"), is(true));
+    entityManager.flush();
+    entityManager.clear();
+    statistics.clear();
+
+    assertThat(service.upsert(TOUR_ID, 3_000_000, 5, "second"), is(false));
+    entityManager.flush();
+
+    // lock the stats reading the old score, upsert the rating, update the stats
+    assertThat(statistics.getPrepareStatementCount(), is(3L));
+    assertThat(statistics.getEntityLoadCount(), is(1L));
+    entityManager.clear();
+    TourRating rating = service.verifyTourRating(TOUR_ID, 3_000_000);
+    assertThat(rating.getScore(), is(5));
+    assertThat(rating.getComment(), is("second"));
+  }
+
+  @Test
+  void creatingStatsThatExistLeavesThemAlone() {
+    service.rateMany(TOUR_ID, 4, List.of(1, 2, 3));
+    entityManager.flush();
+    entityManager.clear();
+    long ratingCount = statsRepository.findById(TOUR_ID).orElseThrow().getRatingCount();
+
+    statsRepository.insertIfAbsent(TOUR_ID);
+    entityManager.clear();
+
+    assertThat(statsRepository.findById(TOUR_ID).orElseThrow().getRatingCount(), is(ratingCount));
+  }
+
+  /**
+   * Add RATINGS ratings to the tour, then reset the persistence context and
+   * the statistics.
+   */
+  private void rateTourForManyCustomers() {
+    service.forEachRating(TOUR_ID, rating -> existing++);
+    service.rateMany(TOUR_ID, 4, IntStream.range(0, RATINGS).map(i -> 1_000_000 + i).boxed().toList());
+    entityManager.flush();
+    entityManager.clear();
+    statistics.clear();
+  }
+}
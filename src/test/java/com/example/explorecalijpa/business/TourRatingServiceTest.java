@@ -5,6 +5,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -14,18 +15,27 @@ import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 
 import com.example.explorecalijpa.model.Tour;
 import com.example.explorecalijpa.model.TourRating;
+import com.example.explorecalijpa.model.TourRatingStats;
+import com.example.explorecalijpa.repo.LockedTourRatingStats;
 import com.example.explorecalijpa.repo.TourRatingRepository;
+import com.example.explorecalijpa.repo.TourRatingStatsRepository;
+import com.example.explorecalijpa.repo.TourRatingView;
 import com.example.explorecalijpa.repo.TourRepository;
 
+import jakarta.persistence.EntityManager;
+
 /**
  * Created by Mary Ellen Bowman
  */
@@ -35,13 +45,19 @@ public class TourRatingServiceTest {
   private static final int CUSTOMER_ID = 123;
   private static final int TOUR_ID = 1;
   private static final int TOUR_RATING_ID = 100;
+  private static final int BATCH_SIZE = 2;
 
   @Mock
   private TourRepository tourRepositoryMock;
   @Mock
   private TourRatingRepository tourRatingRepositoryMock;
+  @Mock
+  private TourRatingStatsRepository tourRatingStatsRepositoryMock;
+  @Mock
+  private ApplicationEventPublisher eventPublisherMock;
+  @Mock
+  private EntityManager entityManagerMock;
 
-  @InjectMocks 
   private TourRatingService service;
 
   @Mock
@@ -53,6 +69,18 @@ public class TourRatingServiceTest {
   @Mock
   private TourRating tourRatingMock2;
 
+  @Mock
+  private TourRatingView tourRatingViewMock;
+
+  @Captor
+  private ArgumentCaptor<List<TourRating>> ratingsCaptor;
+
+  @BeforeEach
+  public void setUp() {
+    service = new TourRatingService(tourRatingRepositoryMock, tourRepositoryMock, tourRatingStatsRepositoryMock,
+        eventPublisherMock, entityManagerMock, BATCH_SIZE);
+  }
+
   /**
    * Mock responses to commonly invoked methods.
    */
@@ -88,26 +116,76 @@ public class TourRatingServiceTest {
 
   @Test
   public void getAverageScore() {
+    TourRatingStats stats = new TourRatingStats(TOUR_ID);
+    stats.add(5);
+    stats.add(2);
     when(tourRepositoryMock.findById(TOUR_ID)).thenReturn(Optional.of(tourMock));
     when(tourMock.getId()).thenReturn(TOUR_ID);
-    when(tourRatingRepositoryMock.findByTourId(TOUR_ID)).thenReturn(Arrays.asList(tourRatingMock));
-    when(tourRatingMock.getScore()).thenReturn(10);
+    when(tourRatingStatsRepositoryMock.findById(TOUR_ID)).thenReturn(Optional.of(stats));
 
     // invoke and verify getAverageScore
-    assertThat(service.getAverageScore(TOUR_ID), is(10.0));
+    assertThat(service.getAverageScore(TOUR_ID), is(3.5));
   }
 
   @Test
   public void lookupRatings() {
-    // create mocks of Pageable and Page (only needed in this test)
-    List list = mock(List.class);
-    when(tourRepositoryMock.findById(TOUR_ID)).thenReturn(Optional.of(tourMock));
-    when(tourMock.getId()).thenReturn(TOUR_ID);
+    List<TourRatingView> list = List.of(tourRatingViewMock);
+    when(tourRatingRepositoryMock.findViewsByTourId(TOUR_ID, Integer.MIN_VALUE, Limit.of(10))).thenReturn(list);
 
-    when(tourRatingRepositoryMock.findByTourId(TOUR_ID)).thenReturn(list);
+    // invoke and verify lookupRatings, a tour with ratings exists
+    assertThat(service.lookupRatings(TOUR_ID, null, 10), is(list));
+    verify(tourRepositoryMock, never()).existsById(TOUR_ID);
+  }
+
+  @Test
+  public void lookupRatingsOfTourWithoutRatings() {
+    when(tourRatingRepositoryMock.findViewsByTourId(TOUR_ID, Integer.MIN_VALUE, Limit.of(10))).thenReturn(List.of());
+    when(tourRepositoryMock.existsById(TOUR_ID)).thenReturn(true);
 
     // invoke and verify lookupRatings
-    assertThat(service.lookupRatings(TOUR_ID), is(list));
+    assertThat(service.lookupRatings(TOUR_ID, null, 10).isEmpty(), is(true));
+  }
+
+  @Test
+  public void lookupRatingsPastTheLastPage() {
+    when(tourRatingRepositoryMock.findViewsByTourId(TOUR_ID, 500, Limit.of(10))).thenReturn(List.of());
+
+    // invoke and verify lookupRatings, only the first page checks the tour
+    assertThat(service.lookupRatings(TOUR_ID, 500, 10).isEmpty(), is(true));
+    verify(tourRepositoryMock, never()).existsById(TOUR_ID);
+  }
+
+  @Test
+  public void upsertReplacesTheCustomersScore() {
+    TourRatingStats stats = new TourRatingStats(TOUR_ID);
+    stats.add(3);
+    LockedTourRatingStats locked = mock(LockedTourRatingStats.class);
+    when(locked.getStats()).thenReturn(stats);
+    when(locked.getScore()).thenReturn(3);
+    when(tourRatingStatsRepositoryMock.findForUpdateWithScore(TOUR_ID, CUSTOMER_ID)).thenReturn(Optional.of(locked));
+
+    // invoke and verify upsert, the rating existed
+    assertThat(service.upsert(TOUR_ID, CUSTOMER_ID, 5, "great"), is(false));
+    verify(tourRatingRepositoryMock).upsert(TOUR_ID, CUSTOMER_ID, 5, "great");
+    verify(tourRepositoryMock, never()).findById(TOUR_ID);
+    assertThat(stats.getRatingCount(), is(1L));
+    assertThat(stats.getScoreSum(), is(5L));
+    verify(eventPublisherMock).publishEvent(new RatingUpdated(TOUR_ID, stats.getVersion(), 1, 5, CUSTOMER_ID, 3, 5));
+  }
+
+  @Test
+  public void upsertCreatesTheFirstRatingOfATour() {
+    LockedTourRatingStats locked = mock(LockedTourRatingStats.class);
+    when(locked.getStats()).thenReturn(new TourRatingStats(TOUR_ID));
+    when(tourRatingStatsRepositoryMock.findForUpdateWithScore(TOUR_ID, CUSTOMER_ID))
+        .thenReturn(Optional.empty(), Optional.of(locked));
+    when(tourRepositoryMock.findById(TOUR_ID)).thenReturn(Optional.of(tourMock));
+
+    // invoke and verify upsert, the rating is new and the stats created before locking them
+    assertThat(service.upsert(TOUR_ID, CUSTOMER_ID, 2, "ok"), is(true));
+    verify(tourRatingStatsRepositoryMock).insertIfAbsent(TOUR_ID);
+    verify(tourRatingRepositoryMock).upsert(TOUR_ID, CUSTOMER_ID, 2, "ok");
+    verify(eventPublisherMock).publishEvent(new RatingCreated(TOUR_ID, 1, 1, 2, List.of(CUSTOMER_ID)));
   }
 
   /**************************************************************************************
@@ -118,35 +196,62 @@ public class TourRatingServiceTest {
 
   @Test
   public void delete() {
+    TourRatingStats stats = statsWithScore(3);
     when(tourRatingRepositoryMock.findByTourIdAndCustomerId(TOUR_ID, CUSTOMER_ID))
         .thenReturn(Optional.of(tourRatingMock));
+    when(tourRatingMock.getScore()).thenReturn(3);
 
     // invoke delete
     service.delete(1, CUSTOMER_ID);
 
-    // verify tourRatingRepository.delete invoked
+    // verify tourRatingRepository.delete invoked and the score removed from the stats
     verify(tourRatingRepositoryMock).delete(any(TourRating.class));
+    assertThat(stats.getRatingCount(), is(0L));
   }
 
   @Test
   public void rateMany() {
+    TourRatingStats stats = new TourRatingStats(TOUR_ID);
+    when(tourRatingStatsRepositoryMock.findForUpdate(TOUR_ID)).thenReturn(Optional.of(stats));
     when(tourRepositoryMock.findById(TOUR_ID)).thenReturn(Optional.of(tourMock));
-    when(tourRatingRepositoryMock.findByTourIdAndCustomerId(TOUR_ID, CUSTOMER_ID))
-        .thenReturn(Optional.empty());
-    when(tourRatingRepositoryMock.findByTourIdAndCustomerId(TOUR_ID, CUSTOMER_ID + 1))
-        .thenReturn(Optional.empty());
+    when(tourRatingRepositoryMock.findRatedCustomerIds(TOUR_ID, List.of(CUSTOMER_ID, CUSTOMER_ID + 1, CUSTOMER_ID + 2)))
+        .thenReturn(List.of(CUSTOMER_ID + 2));
 
     // invoke rateMany
-    service.rateMany(TOUR_ID, 10, List.of(CUSTOMER_ID, CUSTOMER_ID + 1));
+    RateManyResult result = service.rateMany(TOUR_ID, 5, List.of(CUSTOMER_ID, CUSTOMER_ID + 1, CUSTOMER_ID + 2));
+
+    // verify the new ratings are saved together and the existing one skipped
+    verify(tourRatingRepositoryMock).saveAll(ratingsCaptor.capture());
+    assertThat(ratingsCaptor.getValue().size(), is(2));
+    assertThat(result.created(), is(List.of(CUSTOMER_ID, CUSTOMER_ID + 1)));
+    assertThat(result.duplicates(), is(List.of(CUSTOMER_ID + 2)));
+    assertThat(stats.getScoreSum(), is(10L));
+  }
 
-    // verify tourRatingRepository.save invoked twice
-    verify(tourRatingRepositoryMock, times(2)).save(any(TourRating.class));
+  @Test
+  public void rateManyFlushesEachBatch() {
+    List<Integer> customers = List.of(CUSTOMER_ID, CUSTOMER_ID + 1, CUSTOMER_ID + 2, CUSTOMER_ID + 3, CUSTOMER_ID + 4);
+    TourRatingStats stats = new TourRatingStats(TOUR_ID);
+    when(tourRatingStatsRepositoryMock.findForUpdate(TOUR_ID)).thenReturn(Optional.of(stats));
+    when(tourRepositoryMock.findById(TOUR_ID)).thenReturn(Optional.of(tourMock));
+    when(tourRatingRepositoryMock.findRatedCustomerIds(TOUR_ID, customers)).thenReturn(List.of());
+
+    service.rateMany(TOUR_ID, 5, customers);
+
+    // verify the ratings are sent BATCH_SIZE at a time and let go of once sent
+    verify(tourRatingRepositoryMock, times(3)).saveAll(ratingsCaptor.capture());
+    assertThat(ratingsCaptor.getAllValues().stream().map(List::size).toList(), is(List.of(2, 2, 1)));
+    verify(entityManagerMock, times(3)).flush();
+    verify(entityManagerMock, times(5)).detach(any(TourRating.class));
+    assertThat(stats.getScoreSum(), is(25L));
   }
 
   @Test
   public void update() {
+    TourRatingStats stats = statsWithScore(3);
     when(tourRatingRepositoryMock.findByTourIdAndCustomerId(TOUR_ID, CUSTOMER_ID))
         .thenReturn(Optional.of(tourRatingMock));
+    when(tourRatingMock.getScore()).thenReturn(3);
 
     // invoke update
     service.update(TOUR_ID, CUSTOMER_ID, 5, "great");
@@ -157,12 +262,15 @@ public class TourRatingServiceTest {
     // verify and tourRating setter methods invoked
     verify(tourRatingMock).setComment("great");
     verify(tourRatingMock).setScore(5);
+    assertThat(stats.getScoreSum(), is(5L));
   }
 
   @Test
   public void updateSome() {
+    TourRatingStats stats = statsWithScore(3);
     when(tourRatingRepositoryMock.findByTourIdAndCustomerId(TOUR_ID, CUSTOMER_ID))
         .thenReturn(Optional.of(tourRatingMock));
+    when(tourRatingMock.getScore()).thenReturn(3);
 
     // invoke updateSome
     service.updateSome(TOUR_ID, CUSTOMER_ID, Optional.of(1), Optional.of("awful"));
@@ -173,6 +281,7 @@ public class TourRatingServiceTest {
     // verify and tourRating setter methods invoked
     verify(tourRatingMock).setComment("awful");
     verify(tourRatingMock).setScore(1);
+    assertThat(stats.getMinScore(), is(1));
   }
 
   /**************************************************************************************
@@ -186,6 +295,8 @@ public class TourRatingServiceTest {
   @Test
   public void createNew() {
     when(tourRepositoryMock.findById(TOUR_ID)).thenReturn(Optional.of(tourMock));
+    TourRatingStats stats = new TourRatingStats(TOUR_ID);
+    when(tourRatingStatsRepositoryMock.findForUpdate(TOUR_ID)).thenReturn(Optional.empty(), Optional.of(stats));
     // prepare to capture a TourRating Object
     ArgumentCaptor<TourRating> tourRatingCaptor = ArgumentCaptor.forClass(TourRating.class);
 
@@ -201,6 +312,14 @@ public class TourRatingServiceTest {
     assertThat(tourRatingCaptor.getValue().getCustomerId(), is(CUSTOMER_ID));
     assertThat(tourRatingCaptor.getValue().getScore(), is(2));
     assertThat(tourRatingCaptor.getValue().getComment(), is("ok"));
+
+    // verify the stats of the tour were created, then locked and given the new score
+    verify(tourRatingStatsRepositoryMock).insertIfAbsent(TOUR_ID);
+    assertThat(stats.getRatingCount(), is(1L));
+    assertThat(stats.getScoreSum(), is(2L));
+
+    // verify the outbox is told about the new rating and stats
+    verify(eventPublisherMock).publishEvent(new RatingCreated(TOUR_ID, 1, 1, 2, List.of(CUSTOMER_ID)));
   }
 
   /**
@@ -208,10 +327,21 @@ public class TourRatingServiceTest {
    */
   @Test
   public void testNotFound() {
-    when(tourRepositoryMock.findById(TOUR_ID)).thenReturn(Optional.empty());
+    when(tourRatingRepositoryMock.findViewsByTourId(TOUR_ID, Integer.MIN_VALUE, Limit.of(10))).thenReturn(List.of());
+    when(tourRepositoryMock.existsById(TOUR_ID)).thenReturn(false);
     
     assertThrows(NoSuchElementException.class, () -> 
-        service.lookupRatings(TOUR_ID)
+        service.lookupRatings(TOUR_ID, null, 10)
     );
   }
+
+  /**
+   * Stub the locked stats of the tour holding a single score.
+   */
+  private TourRatingStats statsWithScore(int score) {
+    TourRatingStats stats = new TourRatingStats(TOUR_ID);
+    stats.add(score);
+    when(tourRatingStatsRepositoryMock.findForUpdate(TOUR_ID)).thenReturn(Optional.of(stats));
+    return stats;
+  }
 }
\ No newline at end of file
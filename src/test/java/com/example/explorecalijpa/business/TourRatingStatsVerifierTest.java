@@ -0,0 +1,95 @@
+package com.example.explorecalijpa.business;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.example.explorecalijpa.model.TourRatingStats;
+import com.example.explorecalijpa.repo.ScoreCount;
+import com.example.explorecalijpa.repo.TourRatingRepository;
+import com.example.explorecalijpa.repo.TourRatingStatsRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class TourRatingStatsVerifierTest {
+
+  @Mock
+  private TourRatingRepository tourRatingRepositoryMock;
+  @Mock
+  private TourRatingStatsRepository tourRatingStatsRepositoryMock;
+
+  private TourRatingStatsVerifier verifier;
+
+  @BeforeEach
+  void setUp() {
+    verifier = new TourRatingStatsVerifier(tourRatingRepositoryMock, tourRatingStatsRepositoryMock);
+  }
+
+  @Test
+  void findsNoDriftWhenTheStatsMatch() {
+    when(tourRatingRepositoryMock.countScoresByTour()).thenReturn(List.of(count(1, 5, 2), count(1, 3, 1)));
+    when(tourRatingStatsRepositoryMock.findAll()).thenReturn(List.of(stats(1, 3, 5, 5), stats(2)));
+
+    assertThat(verifier.verify(), is(0));
+  }
+
+  @Test
+  void countsEachDriftedTour() {
+    when(tourRatingRepositoryMock.countScoresByTour()).thenReturn(List.of(
+        // same count and sum as the stored 2 and 4, but in other buckets
+        count(1, 3, 2),
+        // a rating the stats missed
+        count(2, 4, 2),
+        // no stats row at all
+        count(3, 1, 1)));
+    when(tourRatingStatsRepositoryMock.findAll()).thenReturn(List.of(
+        stats(1, 2, 4),
+        stats(2, 4),
+        // stats left behind for a tour without ratings
+        stats(4, 5)));
+
+    assertThat(verifier.verify(), is(4));
+  }
+
+  @Test
+  void countsScoresOutOfRangeAsDrift() {
+    when(tourRatingRepositoryMock.countScoresByTour()).thenReturn(List.of(count(1, 4, 1), count(1, 9, 1)));
+    when(tourRatingStatsRepositoryMock.findAll()).thenReturn(List.of(stats(1, 4)));
+
+    assertThat(verifier.verify(), is(1));
+  }
+
+  private static TourRatingStats stats(int tourId, int... scores) {
+    TourRatingStats stats = new TourRatingStats(tourId);
+    for (int score : scores) {
+      stats.add(score);
+    }
+    return stats;
+  }
+
+  private static ScoreCount count(int tourId, int score, long ratingCount) {
+    return new ScoreCount() {
+      @Override
+      public Integer getTourId() {
+        return tourId;
+      }
+
+      @Override
+      public Integer getScore() {
+        return score;
+      }
+
+      @Override
+      public Long getRatingCount() {
+        return ratingCount;
+      }
+    };
+  }
+}
@@ -0,0 +1,59 @@
+package com.example.explorecalijpa.business;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import com.example.explorecalijpa.model.Tour;
+
+/**
+ * Price range lookups against the migrated H2 schema, where price is an
+ * integer column rather than the original VARCHAR.
+ */
+@DataJpaTest
+@Import(TourService.class)
+public class TourServiceJpaTest {
+
+  @Autowired
+  private TourService service;
+
+  // used by the application's startup runner
+  @MockBean
+  private TourPackageService tourPackageService;
+
+  @Test
+  void lookupByPriceComparesNumbersCheapestFirst() {
+    List<Integer> prices = new ArrayList<>();
+    Page<Tour> page = service.lookupByPrice(500, 1000, PageRequest.of(0, 5));
+    long total = page.getTotalElements();
+    while (true) {
+      page.forEach(t -> prices.add(t.getPrice()));
+      if (!page.hasNext()) {
+        break;
+      }
+      page = service.lookupByPrice(500, 1000, page.nextPageable());
+    }
+
+    // compared as strings '500' sorts after '1000', so the range would be empty
+    assertThat(total, is(14L));
+    assertThat(prices.size(), is(14));
+    assertThat(prices.get(0), is(500));
+    assertThat(prices.get(prices.size() - 1), is(1000));
+    for (int i = 1; i < prices.size(); i++) {
+      assertThat(prices.get(i - 1), lessThanOrEqualTo(prices.get(i)));
+    }
+    assertThat(prices, everyItem(lessThanOrEqualTo(1000)));
+  }
+}
@@ -0,0 +1,83 @@
+package com.example.explorecalijpa.datagen;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.explorecalijpa.business.TourPackageService;
+import com.example.explorecalijpa.business.TourRatingStatsVerifier;
+import com.example.explorecalijpa.business.TourService;
+
+/**
+ * Loads a small synthetic data set into the migrated H2 schema.
+ */
+@DataJpaTest
+@Import(TourRatingStatsVerifier.class)
+public class SyntheticDataJpaTest {
+
+  private static final int RATINGS = 50_000;
+
+  @Autowired
+  private JdbcTemplate jdbc;
+
+  @Autowired
+  private TransactionTemplate tx;
+
+  @Autowired
+  private TourRatingStatsVerifier verifier;
+
+  // used by the application's startup runner
+  @MockBean
+  private TourService tourService;
+
+  @MockBean
+  private TourPackageService tourPackageService;
+
+  @Test
+  void loadsSkewedRatingsWithMatchingStats() {
+    long tours = count("select count(*) from tour");
+    long ratings = count("select count(*) from tour_rating");
+    Map<Long, Long> versions = statsVersions();
+
+    SyntheticData.Result result = new SyntheticData(jdbc, tx)
+        .load(new SyntheticData.Settings(5, 200, RATINGS, 30, 1.0, 1.2, 100_000_000, 42));
+
+    assertThat(count("select count(*) from tour"), is(tours + 200));
+    assertThat(count("select count(*) from tour_rating"), is(ratings + RATINGS));
+    assertThat((long) result.tourIds().size(), is(tours + 200));
+    assertThat(count("select count(distinct customer_id) from tour_rating where customer_id >= 100000000"),
+        is((long) result.customers()));
+    assertThat(verifier.verify(), is(0));
+    // stats are updated in place, so rating_event versions of a tour keep going up
+    Map<Long, Long> rebuilt = statsVersions();
+    versions.forEach((tourId, version) -> assertThat(rebuilt.get(tourId), greaterThan(version)));
+
+    long mostPopular = count("select count(*) from tour_rating where tour_id = " + result.tourIds().get(0));
+    long median = count("select count(*) from tour_rating where tour_id = "
+        + result.tourIds().get(result.tourIds().size() / 2));
+    assertThat(mostPopular, greaterThan(10 * median));
+  }
+
+  private Map<Long, Long> statsVersions() {
+    Map<Long, Long> versions = new HashMap<>();
+    jdbc.query("select tour_id, version from tour_rating_stats",
+        (RowCallbackHandler) rs -> versions.put(rs.getLong(1), rs.getLong(2)));
+    return versions;
+  }
+
+  private long count(String sql) {
+    return jdbc.queryForObject(sql, Long.class);
+  }
+}
@@ -0,0 +1,59 @@
+package com.example.explorecalijpa.metrics;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import com.example.explorecalijpa.business.TourRatingService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * The aspect around a mocked service, so the test does not depend on what the
+ * service is built from.
+ */
+@ExtendWith(MockitoExtension.class)
+public class ServiceTimingAspectTest {
+
+  private static final int TOUR_ID = 1;
+
+  @Mock
+  private TourRatingService serviceMock;
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private TourRatingService service;
+
+  @BeforeEach
+  void setUp() {
+    AspectJProxyFactory factory = new AspectJProxyFactory(serviceMock);
+    factory.setProxyTargetClass(true);
+    factory.addAspect(new ServiceTimingAspect(registry));
+    service = factory.getProxy();
+  }
+
+  @Test
+  void timesCallsByMethodAndOutcome() {
+    when(serviceMock.getAverageScore(TOUR_ID)).thenReturn(4.0).thenThrow(new NoSuchElementException());
+
+    service.getAverageScore(TOUR_ID);
+    assertThrows(NoSuchElementException.class, () -> service.getAverageScore(TOUR_ID));
+    for (String outcome : new String[] { "success", "not_found" }) {
+      assertThat(registry.get(ServiceTimingAspect.METRIC)
+          .tag("class", "TourRatingService")
+          .tag("method", "getAverageScore")
+          .tag("endpoint", Endpoints.NONE)
+          .tag("outcome", outcome)
+          .timer().count(), is(1L));
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package com.example.explorecalijpa.metrics;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.example.explorecalijpa.web.RatingDto;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Statement budgets of the busiest endpoints. Raising a budget should be a
+ * deliberate change, made with the query plan in hand.
+ */
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+    "explorecali.sql.metrics.enabled=true",
+    "explorecali.sql.metrics.sample-rate=1.0" })
+public class SqlStatementBudgetTest {
+
+  private static final int TOUR_ID = 1;
+  private static final int CUSTOMER_ID = 5000;
+
+  @Autowired
+  private TestRestTemplate restTemplate;
+
+  @Autowired
+  private SqlStatementCounter counter;
+
+  @Autowired
+  private MeterRegistry registry;
+
+  private SqlStatementCapture capture;
+
+  @BeforeEach
+  void openCapture() {
+    capture = new SqlStatementCapture(counter);
+  }
+
+  @AfterEach
+  void closeCapture() {
+    capture.close();
+  }
+
+  @Test
+  void ratingsPageIsOneQuery() throws InterruptedException {
+    ResponseEntity<String> response = restTemplate.getForEntity("/tours/" + TOUR_ID + "/ratings", String.class);
+
+    assertThat(response.getStatusCode(), is(HttpStatus.OK));
+    capture.assertWithinBudget("GET /tours/{tourId}/ratings", 1);
+  }
+
+  @Test
+  void averageReadsTheStatsRow() throws InterruptedException {
+    ResponseEntity<String> response = restTemplate.getForEntity("/tours/" + TOUR_ID + "/ratings/average",
+        String.class);
+
+    assertThat(response.getStatusCode(), is(HttpStatus.OK));
+    // the tour, unless it is in the second-level cache, and its stats row
+    capture.assertWithinBudget("GET /tours/{tourId}/ratings/average", 2);
+  }
+
+  @Test
+  void ratingWriteStaysWithinBudget() throws InterruptedException {
+    ResponseEntity<RatingDto> response = restTemplate.postForEntity("/tours/" + TOUR_ID + "/ratings",
+        new RatingDto(4, "budget", CUSTOMER_ID), RatingDto.class);
+
+    assertThat(response.getStatusCode(), is(HttpStatus.CREATED));
+    // locked read of the old score, upsert, stats update and outbox insert, plus the id
+    // generator's select and update whenever its pool of ids runs out
+    capture.assertWithinBudget("POST /tours/{tourId}/ratings", 6);
+  }
+
+  @Test
+  void topToursComeFromTheLeaderboard() throws InterruptedException {
+    ResponseEntity<String> response = restTemplate.getForEntity("/recommendations/top/5", String.class);
+
+    assertThat(response.getStatusCode(), is(HttpStatus.OK));
+    capture.assertWithinBudget("GET /recommendations/top/{limit}", 1);
+  }
+
+  @Test
+  void recordsStatementsPerEndpoint() throws InterruptedException {
+    restTemplate.getForEntity("/tours/" + TOUR_ID + "/ratings/average", Map.class);
+    SqlStatements statements = capture.await("GET /tours/{tourId}/ratings/average");
+
+    assertThat(registry.get("explorecali.request.sql.statements")
+        .tag("endpoint", statements.endpoint())
+        .summary().count() > 0, is(true));
+  }
+}
@@ -0,0 +1,67 @@
+package com.example.explorecalijpa.metrics;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.anEmptyMap;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Collects the SQL statements of the requests served while it is open, for
+ * tests that call the application over HTTP. The response can reach the test
+ * before the request's statements are recorded, so await waits for them.
+ */
+public class SqlStatementCapture implements AutoCloseable {
+  private static final long TIMEOUT_SECONDS = 5;
+
+  private final SqlStatementCounter counter;
+  private final BlockingQueue<SqlStatements> requests = new LinkedBlockingQueue<>();
+  private final Consumer<SqlStatements> listener = requests::add;
+
+  public SqlStatementCapture(SqlStatementCounter counter) {
+    this.counter = counter;
+    counter.addListener(listener);
+  }
+
+  /**
+   * Wait for the next captured request to an endpoint.
+   *
+   * @param endpoint method and path pattern, e.g. "GET /tours/{tourId}/ratings"
+   * @return the statements of the request
+   */
+  public SqlStatements await(String endpoint) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+    while (true) {
+      SqlStatements statements = requests.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+      if (statements == null) {
+        throw new AssertionError("No request to " + endpoint + " within " + TIMEOUT_SECONDS + "s");
+      }
+      if (statements.endpoint().equals(endpoint)) {
+        return statements;
+      }
+    }
+  }
+
+  /**
+   * Assert that the next request to an endpoint ran at most a number of
+   * statements and no statement twice.
+   *
+   * @param endpoint method and path pattern
+   * @param budget   statements allowed
+   * @return the statements of the request
+   */
+  public SqlStatements assertWithinBudget(String endpoint, int budget) throws InterruptedException {
+    SqlStatements statements = await(endpoint);
+    assertThat(endpoint + " statements", statements.statements(), lessThanOrEqualTo(budget));
+    assertThat(endpoint + " repeated statements", statements.repeated(), anEmptyMap());
+    return statements;
+  }
+
+  @Override
+  public void close() {
+    counter.removeListener(listener);
+  }
+}
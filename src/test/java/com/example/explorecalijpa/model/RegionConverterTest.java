@@ -0,0 +1,32 @@
+package com.example.explorecalijpa.model;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import org.junit.jupiter.api.Test;
+
+public class RegionConverterTest {
+
+  private final RegionConverter converter = new RegionConverter();
+
+  @Test
+  void convertsEveryLabelBothWays() {
+    for (Region region : Region.values()) {
+      String column = converter.convertToDatabaseColumn(region);
+      assertThat(converter.convertToEntityAttribute(new String(column)), is(region));
+    }
+  }
+
+  @Test
+  void ignoresCaseOfLabels() {
+    assertThat(converter.convertToEntityAttribute("central coast"), is(Region.Central_Coast));
+    assertThat(converter.convertToEntityAttribute("NORTHERN CALIFORNIA"), is(Region.Northern_California));
+  }
+
+  @Test
+  void unknownLabelIsNull() {
+    assertThat(converter.convertToEntityAttribute("Central_Coast"), is(nullValue()));
+    assertThat(converter.convertToEntityAttribute(null), is(nullValue()));
+  }
+}
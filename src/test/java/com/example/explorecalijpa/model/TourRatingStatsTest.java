@@ -0,0 +1,100 @@
+package com.example.explorecalijpa.model;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+public class TourRatingStatsTest {
+
+  private final TourRatingStats stats = new TourRatingStats(1);
+
+  @Test
+  void newStatsHaveNoAverageOrBounds() {
+    assertThat(stats.getRatingCount(), is(0L));
+    assertThat(stats.getAverageScore(), is(nullValue()));
+    assertThat(stats.getMinScore(), is(nullValue()));
+    assertThat(stats.getMaxScore(), is(nullValue()));
+    assertThat(stats.getVersion(), is(0L));
+  }
+
+  @Test
+  void addCountsScoresAndWidensTheBounds() {
+    stats.add(3);
+    stats.add(5);
+    stats.add(1, 2);
+
+    assertThat(stats.getRatingCount(), is(4L));
+    assertThat(stats.getScoreSum(), is(10L));
+    assertThat(stats.getAverageScore(), is(2.5));
+    assertThat(stats.getBucket(1), is(2L));
+    assertThat(stats.getMinScore(), is(1));
+    assertThat(stats.getMaxScore(), is(5));
+    assertThat(stats.getVersion(), is(3L));
+  }
+
+  @Test
+  void removeNarrowsTheBoundsOnceABucketEmpties() {
+    stats.add(0);
+    stats.add(2);
+    stats.add(5, 2);
+
+    stats.remove(5);
+    assertThat(stats.getMaxScore(), is(5));
+    stats.remove(5);
+    assertThat(stats.getMaxScore(), is(2));
+    stats.remove(0);
+    assertThat(stats.getMinScore(), is(2));
+    stats.remove(2);
+
+    assertThat(stats.getRatingCount(), is(0L));
+    assertThat(stats.getScoreSum(), is(0L));
+    assertThat(stats.getAverageScore(), is(nullValue()));
+    assertThat(stats.getMinScore(), is(nullValue()));
+    assertThat(stats.getMaxScore(), is(nullValue()));
+    assertThat(stats.getVersion(), is(7L));
+  }
+
+  @Test
+  void removeOfAScoreNeverAddedFails() {
+    stats.add(4);
+
+    assertThrows(IllegalStateException.class, () -> stats.remove(3));
+    assertThat(stats.getRatingCount(), is(1L));
+    assertThat(stats.getVersion(), is(1L));
+  }
+
+  @Test
+  void replaceMovesTheScoreBetweenBuckets() {
+    stats.add(1);
+    stats.add(4);
+
+    stats.replace(1, 3);
+
+    assertThat(stats.getRatingCount(), is(2L));
+    assertThat(stats.getScoreSum(), is(7L));
+    assertThat(stats.getBucket(1), is(0L));
+    assertThat(stats.getMinScore(), is(3));
+    assertThat(stats.getMaxScore(), is(4));
+    assertThat(stats.getVersion(), is(4L));
+  }
+
+  @Test
+  void replaceWithTheSameScoreOnlyBumpsTheVersion() {
+    stats.add(4);
+
+    stats.replace(4, 4);
+
+    assertThat(stats.getRatingCount(), is(1L));
+    assertThat(stats.getBucket(4), is(1L));
+    assertThat(stats.getVersion(), is(2L));
+  }
+
+  @Test
+  void rejectsScoresOutOfRange() {
+    assertThrows(IllegalArgumentException.class, () -> stats.add(TourRatingStats.MAX_SCORE + 1));
+    assertThrows(IllegalArgumentException.class, () -> stats.getBucket(TourRatingStats.MIN_SCORE - 1));
+  }
+}
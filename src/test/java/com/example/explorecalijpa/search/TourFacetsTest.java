@@ -0,0 +1,87 @@
+package com.example.explorecalijpa.search;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.explorecalijpa.model.Difficulty;
+import com.example.explorecalijpa.model.Region;
+import com.example.explorecalijpa.search.TourFacets.Facet;
+
+public class TourFacetsTest {
+
+  private final TourFacets facets = TourFacets.builder()
+      .add(tour(1, "BC", Difficulty.Medium, Region.Central_Coast, 750))
+      .add(tour(2, "BC", Difficulty.Difficult, Region.Northern_California, 600))
+      .add(tour(3, "CW", Difficulty.Easy, Region.Central_Coast, null))
+      .add(tour(4, "CW", Difficulty.Easy, Region.Central_Coast, 2500))
+      .build();
+
+  @Test
+  void countsEveryFacetValue() {
+    TourFacetResult result = facets.browse(Map.of(), 0, 10);
+
+    assertThat(result.total(), is(4));
+    assertThat(result.facets().get("region"), is(Map.of("Central_Coast", 3, "Northern_California", 1)));
+    assertThat(result.facets().get("tourPackage"), is(Map.of("BC", 2, "CW", 2)));
+    assertThat(result.facets().get("price"), is(Map.of("500-999", 2, "2000+", 1)));
+    assertThat(tourIds(result), contains(1, 2, 3, 4));
+  }
+
+  @Test
+  void countsOfAFacetIgnoreItsOwnSelection() {
+    TourFacetResult result = facets.browse(Map.of(Facet.REGION, "Central_Coast", Facet.TOUR_PACKAGE, "CW"), 0, 10);
+
+    assertThat(result.total(), is(2));
+    assertThat(tourIds(result), contains(3, 4));
+    assertThat(result.facets().get("region"), is(Map.of("Central_Coast", 2)));
+    assertThat(result.facets().get("tourPackage"), is(Map.of("CW", 2, "BC", 1)));
+    assertThat(result.facets().get("difficulty"), is(Map.of("Easy", 2)));
+  }
+
+  @Test
+  void unknownValueMatchesNothing() {
+    assertThat(facets.browse(Map.of(Facet.PRICE, "cheap"), 0, 10).total(), is(0));
+  }
+
+  @Test
+  void pagesByTourId() {
+    assertThat(tourIds(facets.browse(Map.of(), 0, 2)), contains(1, 2));
+    assertThat(tourIds(facets.browse(Map.of(), 2, 2)), contains(3, 4));
+  }
+
+  @Test
+  void putAndRemoveUpdateCounts() {
+    facets.put(tour(2, "CW", Difficulty.Easy, Region.Varies, 100));
+    facets.remove(4);
+
+    TourFacetResult result = facets.browse(Map.of(Facet.TOUR_PACKAGE, "CW"), 0, 10);
+    assertThat(tourIds(result), contains(2, 3));
+    assertThat(result.facets().get("tourPackage"), is(Map.of("BC", 1, "CW", 2)));
+    assertThat(result.facets().get("price"), is(Map.of("0-499", 1)));
+    assertThat(facets.size(), is(3));
+  }
+
+  @Test
+  void bucketsPrices() {
+    assertThat(TourFacets.priceBucket(0), is("0-499"));
+    assertThat(TourFacets.priceBucket(1000), is("1000-1999"));
+    assertThat(TourFacets.priceBucket(2000), is("2000+"));
+    assertThat(TourFacets.priceBucket(null), is(nullValue()));
+  }
+
+  private static TourDocument tour(int id, String tourPackageCode, Difficulty difficulty, Region region,
+      Integer price) {
+    return new TourDocument(id, "Tour " + id, "", "", tourPackageCode, difficulty, region, price);
+  }
+
+  private static List<Integer> tourIds(TourFacetResult result) {
+    return result.tours().stream().map(TourFacetResult.Match::tourId).toList();
+  }
+}
@@ -0,0 +1,78 @@
+package com.example.explorecalijpa.search;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.explorecalijpa.model.Difficulty;
+import com.example.explorecalijpa.model.Region;
+
+public class TourSearchIndexTest {
+
+  private static final TourDocument BIG_SUR = new TourDocument(1, "Big Sur Retreat", "Hiking, National Parks, Big Sur",
+      "Big Sur is big country. Secret trails along the Pacific Coast.", "BC", Difficulty.Medium,
+      Region.Central_Coast, 750);
+  private static final TourDocument MUIR = new TourDocument(2, "In the Steps of John Muir", "Hiking, Yosemite",
+      "Walk the trails around Yosemite National Park.", "BC", Difficulty.Difficult, Region.Northern_California, 600);
+  private static final TourDocument WINE = new TourDocument(3, "Wine Tasting", "Wine, Food",
+      "Vineyards of the Central Coast, with a hike on the last day.", "CW", Difficulty.Easy, Region.Central_Coast,
+      null);
+
+  private final TourSearchIndex index = TourSearchIndex.builder().add(BIG_SUR).add(MUIR).add(WINE).build();
+
+  @Test
+  void ranksTitleAndKeywordMatchesFirst() {
+    assertThat(tourIds(index.search("yosemite", TourSearchFilter.NONE, 10)), contains(2));
+    assertThat(tourIds(index.search("Big Sur hiking", TourSearchFilter.NONE, 10)), contains(1, 2));
+    // the shorter tour ranks first for the same term frequency
+    assertThat(tourIds(index.search("coast", TourSearchFilter.NONE, 10)), contains(3, 1));
+  }
+
+  @Test
+  void ignoresCaseAndStopWords() {
+    assertThat(tourIds(index.search("THE WINE", TourSearchFilter.NONE, 10)), contains(3));
+    assertThat(index.search("the of and", TourSearchFilter.NONE, 10), is(empty()));
+  }
+
+  @Test
+  void appliesFiltersAndLimit() {
+    assertThat(tourIds(index.search("trails", new TourSearchFilter(Difficulty.Difficult, null, null, null, null), 10)),
+        contains(2));
+    assertThat(tourIds(index.search("coast", new TourSearchFilter(null, Region.Central_Coast, "CW", null, null), 10)),
+        contains(3));
+    // a tour without a price never falls in a price range
+    assertThat(tourIds(index.search("coast", new TourSearchFilter(null, null, null, 700, null), 10)), contains(1));
+    assertThat(index.search("trails", TourSearchFilter.NONE, 1).size(), is(1));
+  }
+
+  @Test
+  void putReplacesAndRemoveDrops() {
+    index.put(new TourDocument(3, "Wine and Yosemite", "Wine", "", "CW", Difficulty.Easy, Region.Varies, 100));
+    assertThat(tourIds(index.search("yosemite", TourSearchFilter.NONE, 10)), contains(3, 2));
+    assertThat(index.search("vineyards", TourSearchFilter.NONE, 10), is(empty()));
+
+    index.remove(3);
+    assertThat(tourIds(index.search("wine", TourSearchFilter.NONE, 10)), is(empty()));
+    assertThat(index.size(), is(2));
+  }
+
+  @Test
+  void incrementalIndexMatchesBuiltIndex() {
+    TourSearchIndex incremental = TourSearchIndex.builder().build();
+    incremental.put(WINE);
+    incremental.put(BIG_SUR);
+    incremental.put(MUIR);
+
+    assertThat(incremental.search("hiking trails coast", TourSearchFilter.NONE, 10),
+        is(index.search("hiking trails coast", TourSearchFilter.NONE, 10)));
+  }
+
+  private static List<Integer> tourIds(List<TourSearchHit> hits) {
+    return hits.stream().map(TourSearchHit::tourId).toList();
+  }
+}
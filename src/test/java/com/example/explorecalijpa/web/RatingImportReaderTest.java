@@ -0,0 +1,145 @@
+package com.example.explorecalijpa.web;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.explorecalijpa.business.RatingImportRow;
+import com.example.explorecalijpa.business.RatingImportSummary;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
+public class RatingImportReaderTest {
+
+  private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+  private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+  private final RatingImportSummary summary = new RatingImportSummary();
+
+  @Test
+  void parsesCsvWithQuotedComments() throws IOException {
+    List<RatingImportRow> rows = read(RatingImportReader.Format.CSV, """
+        tourId,customerId,score,comment
+        1,100,5,"Great, ""really"" great"
+        2,101,3,
+        3,102,4,"two
+        lines"
+        """);
+
+    assertThat(rows, contains(
+        new RatingImportRow(1, 1, 100, 5, "Great, \"really\" great"),
+        new RatingImportRow(2, 2, 101, 3, null),
+        new RatingImportRow(3, 3, 102, 4, "two\nlines")));
+    assertThat(summary.getRejected(), is(0L));
+  }
+
+  @Test
+  void rejectsInvalidCsvRowsAndCarriesOn() throws IOException {
+    List<RatingImportRow> rows = read(RatingImportReader.Format.CSV, """
+        tourId,customerId,score,comment
+        1,100,9,too high
+        x,101,3,
+        1,,3
+        1,103,2,ok
+        """);
+
+    assertThat(rows, contains(new RatingImportRow(4, 1, 103, 2, "ok")));
+    assertThat(summary.getRejected(), is(3L));
+    assertThat(summary.getRejections().stream().map(RatingImportSummary.Rejection::row).toList(),
+        contains(1L, 2L, 3L));
+  }
+
+  @Test
+  void rejectsAnOverlongCsvFieldWithItsLine() throws IOException {
+    List<RatingImportRow> rows = read(RatingImportReader.Format.CSV, """
+        tourId,customerId,score,comment
+        1,100,5,ok
+        1,101,4,%s
+        1,102,3,fine
+        """.formatted("x".repeat(RatingImportReader.MAX_FIELD_LENGTH + 1)));
+
+    assertThat(rows, contains(new RatingImportRow(1, 1, 100, 5, "ok"), new RatingImportRow(3, 1, 102, 3, "fine")));
+    assertThat(summary.getRejections(), contains(new RatingImportSummary.Rejection(2,
+        "Malformed row: field 4 of the record starting on line 3 is longer than 100 characters")));
+  }
+
+  @Test
+  void stopsReadingAnUnterminatedQuoteAtTheFieldLimit() throws IOException {
+    List<RatingImportRow> rows = read(RatingImportReader.Format.CSV, """
+        tourId,customerId,score,comment
+        1,100,5,"never closed
+        %s
+        2,101,4,ok
+        """.formatted("y".repeat(RatingImportReader.MAX_RECORD_LENGTH * 10)));
+
+    assertThat(rows, contains(new RatingImportRow(2, 2, 101, 4, "ok")));
+    assertThat(summary.getRejected(), is(1L));
+    assertThat(summary.getRejections().get(0).reason(), containsString("starting on line 2"));
+  }
+
+  @Test
+  void rejectsAnOverlongNdjsonLine() throws IOException {
+    List<RatingImportRow> rows = read(RatingImportReader.Format.NDJSON, """
+        {"tourId":1,"customerId":100,"score":5,"comment":"%s"}
+        {"tourId":2,"customerId":101,"score":4}
+        """.formatted("z".repeat(RatingImportReader.MAX_RECORD_LENGTH)));
+
+    assertThat(rows, contains(new RatingImportRow(2, 2, 101, 4, null)));
+    assertThat(summary.getRejections(), contains(new RatingImportSummary.Rejection(1,
+        "Malformed row: line 1 is longer than 1000 characters")));
+  }
+
+  @Test
+  void rejectsACommentLongerThanTheColumnByItself() throws IOException {
+    List<RatingImportRow> rows = read(RatingImportReader.Format.NDJSON, """
+        {"tourId":1,"customerId":100,"score":5,"comment":"%s"}
+        {"tourId":1,"customerId":101,"score":4,"comment":"%s"}
+        """.formatted("a".repeat(100), "b".repeat(101)));
+
+    assertThat(rows, contains(new RatingImportRow(1, 1, 100, 5, "a".repeat(100))));
+    assertThat(summary.getRejections(), contains(new RatingImportSummary.Rejection(2,
+        "comment: size must be between 0 and 100")));
+  }
+
+  @Test
+  void requiresTheCsvHeader() {
+    assertThrows(ConstraintViolationException.class, () -> read(RatingImportReader.Format.CSV, "1,100,5,\n"));
+  }
+
+  @Test
+  void parsesNdjsonAndRejectsMalformedLines() throws IOException {
+    List<RatingImportRow> rows = read(RatingImportReader.Format.NDJSON, """
+        {"tourId":1,"customerId":100,"score":5,"comment":"nice"}
+
+        {"tourId":1,"customerId":101,
+        {"customerId":102,"score":4}
+        {"tourId":2,"customerId":103,"score":0}
+        """);
+
+    assertThat(rows, contains(
+        new RatingImportRow(1, 1, 100, 5, "nice"),
+        new RatingImportRow(4, 2, 103, 0, null)));
+    assertThat(summary.getRejected(), is(2L));
+  }
+
+  private List<RatingImportRow> read(RatingImportReader.Format format, String input) throws IOException {
+    RatingImportReader reader = new RatingImportReader(new BufferedReader(new StringReader(input)), format,
+        objectMapper, validator, summary);
+    List<RatingImportRow> rows = new ArrayList<>();
+    reader.forEachRemaining(rows::add);
+    return rows;
+  }
+}
@@ -0,0 +1,82 @@
+package com.example.explorecalijpa.web;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.example.explorecalijpa.business.PendingRating;
+import com.example.explorecalijpa.business.RatingQueueFullException;
+import com.example.explorecalijpa.business.RatingWriteBehind;
+import com.example.explorecalijpa.business.RatingWritePendingException;
+import com.example.explorecalijpa.business.RatingWriterUnavailableException;
+
+/**
+ * Rating writes in write-behind mode.
+ */
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+public class RatingWriteBehindControllerTest {
+  private static final int TOUR_ID = 999;
+  private static final int CUSTOMER_ID = 1000;
+  private static final String TOUR_RATINGS_URL = "/tours/" + TOUR_ID + "/ratings";
+
+  @Autowired
+  private TestRestTemplate restTemplate;
+
+  @MockBean
+  private RatingWriteBehind writeBehindMock;
+
+  private RatingDto ratingDto = new RatingDto(3, "comment", CUSTOMER_ID);
+
+  @Test
+  void testAcceptsQueuedRating() {
+    when(writeBehindMock.submit(TOUR_ID, CUSTOMER_ID, 3, "comment"))
+        .thenReturn(new PendingRating(1, TOUR_ID, CUSTOMER_ID, 3, "comment"));
+    ResponseEntity<String> res = restTemplate.postForEntity(TOUR_RATINGS_URL, ratingDto, String.class);
+
+    assertThat(res.getStatusCode(), is(HttpStatus.ACCEPTED));
+    verify(writeBehindMock).submit(TOUR_ID, CUSTOMER_ID, 3, "comment");
+  }
+
+  @Test
+  void test429WithRetryAfterWhenTheQueueIsFull() {
+    when(writeBehindMock.submit(anyInt(), anyInt(), any(), any())).thenThrow(new RatingQueueFullException(10));
+    ResponseEntity<String> res = restTemplate.postForEntity(TOUR_RATINGS_URL, ratingDto, String.class);
+
+    assertThat(res.getStatusCode(), is(HttpStatus.TOO_MANY_REQUESTS));
+    assertThat(res.getHeaders().getFirst(HttpHeaders.RETRY_AFTER), is("1"));
+  }
+
+  @Test
+  void test503WhenTheWriterHasDied() {
+    when(writeBehindMock.submit(anyInt(), anyInt(), any(), any())).thenThrow(new RatingWriterUnavailableException());
+    ResponseEntity<String> res = restTemplate.postForEntity(TOUR_RATINGS_URL, ratingDto, String.class);
+
+    assertThat(res.getStatusCode(), is(HttpStatus.SERVICE_UNAVAILABLE));
+  }
+
+  @Test
+  void test409WhenDeletingARatingStillQueued() {
+    doThrow(new RatingWritePendingException(TOUR_ID, CUSTOMER_ID)).when(writeBehindMock)
+        .checkNotPending(TOUR_ID, CUSTOMER_ID);
+    ResponseEntity<String> res = restTemplate.exchange(TOUR_RATINGS_URL + "/" + CUSTOMER_ID, HttpMethod.DELETE,
+        null, String.class);
+
+    assertThat(res.getStatusCode(), is(HttpStatus.CONFLICT));
+    assertThat(res.getHeaders().getFirst(HttpHeaders.RETRY_AFTER), is("1"));
+  }
+}
@@ -1,16 +1,26 @@
 package com.example.explorecalijpa.web;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
 import static org.hamcrest.core.Is.is;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 
+import java.net.URI;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -18,12 +28,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
 import com.example.explorecalijpa.business.TourRatingService;
 import com.example.explorecalijpa.model.Tour;
 import com.example.explorecalijpa.model.TourRating;
+import com.example.explorecalijpa.repo.TourRatingView;
 
 import jakarta.validation.ConstraintViolationException;
 
@@ -49,6 +65,9 @@ public class TourRatingControllerTest {
   @Mock
   private Tour tourMock;
 
+  @Mock
+  private TourRatingView tourRatingViewMock;
+
   private RatingDto ratingDto = new RatingDto(SCORE, COMMENT,CUSTOMER_ID);
 
   @Test
@@ -56,7 +75,7 @@ public class TourRatingControllerTest {
 
     restTemplate.postForEntity(TOUR_RATINGS_URL, ratingDto, RatingDto.class);
 
-    verify(this.serviceMock).createNew(TOUR_ID, CUSTOMER_ID, SCORE, COMMENT);
+    verify(this.serviceMock).upsert(TOUR_ID, CUSTOMER_ID, SCORE, COMMENT);
   }
 
   @Test
@@ -69,20 +88,84 @@ public class TourRatingControllerTest {
 
   @Test
   void testGetAllRatingsForTour() {
-    when(serviceMock.lookupRatings(anyInt())).thenReturn(List.of(tourRatingMock));
+    when(serviceMock.lookupRatings(anyInt(), any(), anyInt())).thenReturn(List.of(tourRatingViewMock));
     ResponseEntity<String> res = restTemplate.getForEntity(TOUR_RATINGS_URL, String.class);
   
     assertThat(res.getStatusCode(), is(HttpStatus.OK));
-    verify(serviceMock).lookupRatings(anyInt());
+    // 100 unless asked, where it used to return every rating
+    verify(serviceMock).lookupRatings(TOUR_ID, null, 100);
+  }
+
+  @Test
+  void testNextLinkLeadsToTheFollowingPage() {
+    when(serviceMock.lookupRatings(TOUR_ID, null, 2)).thenReturn(List.of(view(5), view(7)));
+    when(serviceMock.lookupRatings(TOUR_ID, 7, 2)).thenReturn(List.of(view(9)));
+
+    ResponseEntity<String> first = restTemplate.getForEntity(TOUR_RATINGS_URL + "?limit=2", String.class);
+    String link = first.getHeaders().getFirst(HttpHeaders.LINK);
+    assertThat(link, startsWith("<"));
+    assertThat(link, endsWith(">; rel=\"next\""));
+
+    ResponseEntity<String> last = restTemplate.getForEntity(URI.create(link.substring(1, link.indexOf('>'))),
+        String.class);
+    assertThat(last.getStatusCode(), is(HttpStatus.OK));
+    assertThat(last.getHeaders().getFirst(HttpHeaders.LINK), is(nullValue()));
+    verify(serviceMock).lookupRatings(TOUR_ID, 7, 2);
+  }
+
+  @Test
+  void test400OnMalformedCursor() {
+    ResponseEntity<String> res = restTemplate.getForEntity(TOUR_RATINGS_URL + "?cursor=not-a-cursor", String.class);
+
+    assertThat(res.getStatusCode(), is(HttpStatus.BAD_REQUEST));
+    verify(serviceMock, never()).lookupRatings(anyInt(), any(), anyInt());
+  }
+
+  @Test
+  void test400OnCursorOfAnotherTour() {
+    ResponseEntity<String> res = restTemplate.getForEntity(
+        TOUR_RATINGS_URL + "?cursor=" + RatingCursor.encode(TOUR_ID + 1, 5), String.class);
+
+    assertThat(res.getStatusCode(), is(HttpStatus.BAD_REQUEST));
+    verify(serviceMock, never()).lookupRatings(anyInt(), any(), anyInt());
+  }
+
+  @Test
+  void testStreamAllRatingsForTour() {
+    List<TourRatingView> ratings = List.of(view(5), view(7));
+    doAnswer(invocation -> {
+      Consumer<TourRatingView> action = invocation.getArgument(1);
+      ratings.forEach(action);
+      return null;
+    }).when(serviceMock).forEachRating(eq(TOUR_ID), any());
+    HttpHeaders headers = new HttpHeaders();
+    headers.setAccept(List.of(MediaType.parseMediaType(TourRatingController.NDJSON_VALUE)));
+
+    ResponseEntity<String> res = restTemplate.exchange(TOUR_RATINGS_URL, HttpMethod.GET, new HttpEntity<>(headers),
+        String.class);
+
+    assertThat(res.getStatusCode(), is(HttpStatus.OK));
+    assertThat(res.getHeaders().getContentType().toString(), is(TourRatingController.NDJSON_VALUE));
+    String line = "{\"score\":" + SCORE + ",\"comment\":\"" + COMMENT + "\",\"customerId\":" + CUSTOMER_ID + "}";
+    assertThat(res.getBody(), is(line + "\n" + line + "\n"));
   }
 
   @Test
   void testGetAverage() {
-    when(serviceMock.lookupRatings(anyInt())).thenReturn(List.of(tourRatingMock));
+    when(serviceMock.getAverageScore(TOUR_ID)).thenReturn(3.5);
+    ResponseEntity<String> res = restTemplate.getForEntity(TOUR_RATINGS_URL + "/average", String.class);
+
+    assertThat(res.getStatusCode(), is(HttpStatus.OK));
+    assertThat(res.getBody(), is("{\"average\":3.5}"));
+  }
+
+  @Test
+  void testGetAverageOfUnratedTour() {
+    when(serviceMock.getAverageScore(TOUR_ID)).thenReturn(null);
     ResponseEntity<String> res = restTemplate.getForEntity(TOUR_RATINGS_URL + "/average", String.class);
 
     assertThat(res.getStatusCode(), is(HttpStatus.OK));
-    verify(serviceMock).getAverageScore(TOUR_ID);
+    assertThat(res.getBody(), is("{\"average\":null}"));
   }
 
   /*
@@ -100,7 +183,7 @@ public class TourRatingControllerTest {
   void testUpdateWithPut() {
     restTemplate.put(TOUR_RATINGS_URL, ratingDto);
 
-    verify(this.serviceMock).update(TOUR_ID, CUSTOMER_ID, SCORE, COMMENT);
+    verify(this.serviceMock).upsert(TOUR_ID, CUSTOMER_ID, SCORE, COMMENT);
   }
 
   @Test
@@ -116,7 +199,7 @@ public class TourRatingControllerTest {
   
   @Test
   public void test404() {
-    when(serviceMock.lookupRatings(anyInt())).thenThrow(new NoSuchElementException());
+    when(serviceMock.lookupRatings(anyInt(), any(), anyInt())).thenThrow(new NoSuchElementException());
     ResponseEntity<String> res = restTemplate.getForEntity(TOUR_RATINGS_URL, String.class);
   
     assertThat(res.getStatusCode(), is(HttpStatus.NOT_FOUND));
@@ -124,9 +207,29 @@ public class TourRatingControllerTest {
 
   @Test
   public void test400() {
-    when(serviceMock.lookupRatings(anyInt())).thenThrow(new ConstraintViolationException(null));
+    when(serviceMock.lookupRatings(anyInt(), any(), anyInt())).thenThrow(new ConstraintViolationException(null));
     ResponseEntity<String> res = restTemplate.getForEntity(TOUR_RATINGS_URL, String.class);
 
     assertThat(res.getStatusCode(), is(HttpStatus.BAD_REQUEST));
   }
+
+  @Test
+  public void test400OnDuplicateRating() {
+    doThrow(new DataIntegrityViolationException("duplicate")).when(serviceMock)
+        .rateMany(anyInt(), anyInt(), anyList());
+    Integer customers[] = {123};
+    ResponseEntity<String> res = restTemplate.postForEntity(TOUR_RATINGS_URL + "/batch?score=" + SCORE,
+        customers, String.class);
+
+    assertThat(res.getStatusCode(), is(HttpStatus.BAD_REQUEST));
+  }
+
+  private static TourRatingView view(int id) {
+    TourRatingView view = mock(TourRatingView.class);
+    when(view.getId()).thenReturn(id);
+    when(view.getCustomerId()).thenReturn(CUSTOMER_ID);
+    when(view.getScore()).thenReturn(SCORE);
+    when(view.getComment()).thenReturn(COMMENT);
+    return view;
+  }
 }
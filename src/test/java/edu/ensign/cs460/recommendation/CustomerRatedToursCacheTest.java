@@ -0,0 +1,83 @@
+package edu.ensign.cs460.recommendation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.explorecalijpa.business.CustomerRatingsChanged;
+import com.example.explorecalijpa.repo.TourRatingRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CustomerRatedToursCacheTest {
+
+  private static final int CUSTOMER_ID = 4;
+
+  private TourRatingRepository repoMock = mock(TourRatingRepository.class);
+  private SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  @Test
+  void loadsOnceAndCountsHits() {
+    CustomerRatedToursCache cache = new CustomerRatedToursCache(repoMock, registry, 1 << 20);
+    when(repoMock.findTourIdsByCustomerId(CUSTOMER_ID)).thenReturn(List.of(1, 3));
+
+    assertThat(cache.ratedTours(CUSTOMER_ID).get(3), is(true));
+    assertThat(cache.ratedTours(CUSTOMER_ID).get(2), is(false));
+
+    verify(repoMock, times(1)).findTourIdsByCustomerId(CUSTOMER_ID);
+    assertThat(registry.counter("recommendation.customer.cache.requests", "result", "hit").count(), is(1.0));
+    assertThat(registry.counter("recommendation.customer.cache.requests", "result", "miss").count(), is(1.0));
+  }
+
+  @Test
+  void writesUpdateCachedCustomers() {
+    CustomerRatedToursCache cache = new CustomerRatedToursCache(repoMock, registry, 1 << 20);
+    when(repoMock.findTourIdsByCustomerId(CUSTOMER_ID)).thenReturn(List.of(1));
+    cache.ratedTours(CUSTOMER_ID);
+
+    cache.onCustomerRatingsChanged(new CustomerRatingsChanged(2, List.of(CUSTOMER_ID), true));
+    cache.onCustomerRatingsChanged(new CustomerRatingsChanged(1, List.of(CUSTOMER_ID), false));
+
+    assertThat(cache.ratedTours(CUSTOMER_ID).get(1), is(false));
+    assertThat(cache.ratedTours(CUSTOMER_ID).get(2), is(true));
+    verify(repoMock, times(1)).findTourIdsByCustomerId(CUSTOMER_ID);
+  }
+
+  @Test
+  void setLoadedDuringAWriteIsNotCached() {
+    CustomerRatedToursCache cache = new CustomerRatedToursCache(repoMock, registry, 1 << 20);
+    when(repoMock.findTourIdsByCustomerId(CUSTOMER_ID)).thenAnswer(i -> {
+      cache.onCustomerRatingsChanged(new CustomerRatingsChanged(2, List.of(CUSTOMER_ID), true));
+      return List.of(1);
+    });
+
+    cache.ratedTours(CUSTOMER_ID);
+
+    assertThat(cache.size(), is(0));
+  }
+
+  @Test
+  void evictsLeastRecentlyUsedBeyondMaxBytes() {
+    CustomerRatedToursCache cache = new CustomerRatedToursCache(repoMock, registry, 200);
+    when(repoMock.findTourIdsByCustomerId(1)).thenReturn(List.of(1));
+    when(repoMock.findTourIdsByCustomerId(2)).thenReturn(List.of(2));
+    when(repoMock.findTourIdsByCustomerId(3)).thenReturn(List.of(3));
+
+    cache.ratedTours(1);
+    cache.ratedTours(2);
+    cache.ratedTours(1);
+    cache.ratedTours(3);
+
+    assertThat(cache.size(), is(2));
+    assertThat(cache.bytes() <= 200, is(true));
+    cache.ratedTours(1);
+    verify(repoMock, times(1)).findTourIdsByCustomerId(1);
+  }
+}
@@ -0,0 +1,55 @@
+package edu.ensign.cs460.recommendation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ItemSimilarityModelTest {
+
+  @Test
+  void keepsOnlyPositivelySimilarToursWithEnoughOverlap() {
+    ItemSimilarityModel model = sampleRatings().build(50, 2);
+
+    assertThat(model.customerCount(), is(3));
+    assertThat(model.ratingCount(), is(9));
+    assertThat(model.tourCount(), is(4));
+    assertThat((double) model.similarity(1, 2), greaterThan(0.0));
+    assertThat(model.similarity(1, 2), is(model.similarity(2, 1)));
+    // opposite tastes
+    assertThat(model.similarity(1, 3), is(0f));
+    // only one customer rated both
+    assertThat(model.similarity(1, 4), is(0f));
+  }
+
+  @Test
+  void minOverlapAndNeighborLimitBoundTheModel() {
+    assertThat(sampleRatings().build(50, 3).similarity(1, 2), is(0f));
+    assertThat(sampleRatings().build(50, 1).similarity(1, 4), greaterThan(0f));
+    assertThat(sampleRatings().build(1, 1).neighborCount() <= 4, is(true));
+  }
+
+  @Test
+  void predictsUnratedToursFromSimilarRatedOnes() {
+    ItemSimilarityModel model = sampleRatings().build(50, 2);
+
+    List<ItemSimilarityModel.ScoredTour> scored = model.score(new int[] { 1, 3 }, new int[] { 5, 1 }, 10);
+
+    assertThat(scored.size(), is(1));
+    assertThat(scored.get(0).tourId(), is(2));
+    assertThat(scored.get(0).predictedScore(), closeTo(5.0, 0.001));
+    assertThat(model.score(new int[0], new int[0], 10).isEmpty(), is(true));
+    assertThat(model.score(new int[] { 99 }, new int[] { 5 }, 10).isEmpty(), is(true));
+  }
+
+  private static ItemSimilarityModel.Builder sampleRatings() {
+    return ItemSimilarityModel.builder()
+        .add(1, 1, 5).add(1, 2, 5).add(1, 3, 1)
+        .add(2, 1, 4).add(2, 2, 5).add(2, 3, 2)
+        .add(3, 1, 5).add(3, 3, 1).add(3, 4, 5);
+  }
+}
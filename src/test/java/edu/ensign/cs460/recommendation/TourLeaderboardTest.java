@@ -0,0 +1,138 @@
+package edu.ensign.cs460.recommendation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.example.explorecalijpa.business.TourRatingStatsChanged;
+import com.example.explorecalijpa.model.Tour;
+import com.example.explorecalijpa.repo.TourRatingStatsRepository;
+import com.example.explorecalijpa.repo.TourRatingTotals;
+import com.example.explorecalijpa.repo.TourRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class TourLeaderboardTest {
+
+  @Mock
+  private TourRatingStatsRepository statsRepoMock;
+
+  @Mock
+  private TourRepository tourRepoMock;
+
+  @Mock
+  private Tour tourMock;
+
+  @InjectMocks
+  private TourLeaderboard leaderboard;
+
+  @Test
+  void rebuildRanksLikeFindTopTours() {
+    when(statsRepoMock.findAllTotals()).thenReturn(List.of(
+        totals(1, "Big Sur", 2, 8),
+        totals(2, "Avila Beach", 4, 16),
+        totals(3, "Channel Islands", 1, 5),
+        totals(4, "Death Valley", 0, 0)));
+
+    leaderboard.rebuild();
+
+    assertThat(leaderboard.isReady(), is(true));
+    assertThat(tourIds(leaderboard.top(10)), contains(3, 2, 1));
+    assertThat(tourIds(leaderboard.top(2)), contains(3, 2));
+    assertThat(leaderboard.find(4).isPresent(), is(false));
+  }
+
+  @Test
+  void statsChangesReorderTheRanking() {
+    when(statsRepoMock.findAllTotals()).thenReturn(List.of(
+        totals(1, "Big Sur", 2, 8),
+        totals(2, "Avila Beach", 4, 16)));
+    leaderboard.rebuild();
+
+    leaderboard.onStatsChanged(new TourRatingStatsChanged(1, 3, 3, 13));
+    assertThat(tourIds(leaderboard.top(10)), contains(1, 2));
+    assertThat(leaderboard.top(1).get(0).reviewCount(), is(3L));
+
+    leaderboard.onStatsChanged(new TourRatingStatsChanged(1, 4, 0, 0));
+    assertThat(tourIds(leaderboard.top(10)), contains(2));
+  }
+
+  @Test
+  void lateEventsDoNotUndoNewerChanges() {
+    when(statsRepoMock.findAllTotals()).thenReturn(List.of(totals(1, "Big Sur", 2, 8)));
+    leaderboard.rebuild();
+
+    leaderboard.onStatsChanged(new TourRatingStatsChanged(1, 4, 0, 0));
+    leaderboard.onStatsChanged(new TourRatingStatsChanged(1, 3, 3, 13));
+    leaderboard.onStatsChanged(new TourRatingStatsChanged(1, 2, 2, 8));
+
+    assertThat(leaderboard.find(1).isPresent(), is(false));
+  }
+
+  @Test
+  void rebuildKeepsChangesNewerThanTheDatabase() {
+    when(statsRepoMock.findAllTotals()).thenReturn(
+        List.of(totals(1, "Big Sur", 2, 8), totals(2, "Avila Beach", 4, 16)),
+        List.of(totals(1, "Big Sur", 2, 8), totals(2, "Avila Beach", 6, 5, 20)));
+    leaderboard.rebuild();
+    leaderboard.onStatsChanged(new TourRatingStatsChanged(1, 3, 3, 13));
+
+    // read before the change to tour 1 was stored, after a change to tour 2 that was never delivered
+    leaderboard.rebuild();
+
+    assertThat(leaderboard.find(1).get().reviewCount(), is(3L));
+    assertThat(leaderboard.find(2).get().reviewCount(), is(5L));
+  }
+
+  @Test
+  void firstRatingOfATourLooksUpItsTitle() {
+    when(tourRepoMock.findById(7)).thenReturn(Optional.of(tourMock));
+    when(tourMock.getTitle()).thenReturn("Hot Springs");
+
+    leaderboard.onStatsChanged(new TourRatingStatsChanged(7, 1, 1, 4));
+
+    assertThat(leaderboard.top(1).get(0).title(), is("Hot Springs"));
+  }
+
+  private static List<Integer> tourIds(List<TourRecommendation> recommendations) {
+    return recommendations.stream().map(TourRecommendation::tourId).toList();
+  }
+
+  private static TourRatingTotals totals(int tourId, String title, long count, long sum) {
+    // one change per rating
+    return totals(tourId, title, count, count, sum);
+  }
+
+  private static TourRatingTotals totals(int tourId, String title, long version, long count, long sum) {
+    return new TourRatingTotals() {
+      public Integer getTourId() {
+        return tourId;
+      }
+
+      public String getTitle() {
+        return title;
+      }
+
+      public Long getVersion() {
+        return version;
+      }
+
+      public Long getRatingCount() {
+        return count;
+      }
+
+      public Long getScoreSum() {
+        return sum;
+      }
+    };
+  }
+}